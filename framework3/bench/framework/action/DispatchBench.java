@@ -0,0 +1,230 @@
+package framework.action;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.ListResourceBundle;
+import java.util.Map;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+/**
+ * DispatcherServlet 의 요청당 디스패치 비용을 측정하는 벤치마크
+ * 서블릿 컨테이너 없이 요청, 응답, 세션, 서블릿 컨텍스트를 동적 프록시로 만들어 HttpServlet.service 를 반복 호출한다.
+ * <br>
+ * 실행 : java -cp "classes:lib/*:etc" framework.action.DispatchBench [반복횟수] [noop|action]
+ * <br>
+ * noop : execute()를 재정의한 컨트롤러로 경로 조회, 컨트롤러 생성, 메소드 검색 비용만 측정한다.
+ * <br>
+ * action : 빈 액션 메소드를 Controller.execute()로 실행하는 전체 요청 비용을 측정한다.
+ * <br>
+ * 로그 출력 비용이 섞이지 않도록 log4j 레벨은 ERROR 로 두고 실행한다.
+ */
+public final class DispatchBench {
+	private static final int ROUTES = 200;
+	private static final int ROUNDS = 8;
+
+	private DispatchBench() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		String mode = args.length > 1 ? args[1] : "noop";
+		HttpServlet servlet = new DispatcherServlet();
+		servlet.init(createConfig());
+		HttpSession session = createSession();
+		HttpServletRequest[] requests = new HttpServletRequest[ROUTES];
+		for (int i = 0; i < ROUTES; i++) {
+			requests[i] = createRequest("/" + mode + "/r" + i, session);
+		}
+		HttpServletResponse response = proxy(HttpServletResponse.class, new HashMap<String, Object>());
+		Method service = HttpServlet.class.getDeclaredMethod("service", HttpServletRequest.class, HttpServletResponse.class);
+		service.setAccessible(true);
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < iterations; i++) {
+				service.invoke(servlet, requests[i % ROUTES], response);
+			}
+			long elapsed = System.nanoTime() - start;
+			System.out.println("round " + round + " : " + (elapsed / iterations) + " ns/request");
+		}
+	}
+
+	/**
+	 * 벤치마크용 경로 매핑, noop/action 경로를 각각 ROUTES 개씩 등록한다.
+	 */
+	public static final class Routes extends ListResourceBundle {
+		@Override
+		protected Object[][] getContents() {
+			Object[][] contents = new Object[ROUTES * 2][];
+			for (int i = 0; i < ROUTES; i++) {
+				contents[i] = new Object[] { "/noop/r" + i, NoopController.class.getName() + ".index" };
+				contents[ROUTES + i] = new Object[] { "/action/r" + i, ActionController.class.getName() + ".index" };
+			}
+			return contents;
+		}
+	}
+
+	/**
+	 * 벤치마크용 뷰 매핑, 뷰를 사용하지 않으므로 비어있다.
+	 */
+	public static final class Views extends ListResourceBundle {
+		@Override
+		protected Object[][] getContents() {
+			return new Object[0][];
+		}
+	}
+
+	/**
+	 * 액션을 실행하지 않는 컨트롤러, DispatcherServlet 이 호출하는 execute()를 재정의한다.
+	 */
+	public static final class NoopController extends Controller {
+		@Override
+		void execute(HttpServlet servlet, HttpServletRequest request, HttpServletResponse response, Method method, ResponseCache responseCache) {
+		}
+
+		public void index() {
+		}
+	}
+
+	/**
+	 * 빈 액션 메소드를 가진 컨트롤러
+	 */
+	public static final class ActionController extends Controller {
+		public void index() {
+		}
+	}
+
+	/**
+	 * 프록시 메소드의 응답을 인자에 따라 만들어 내는 인터페이스
+	 */
+	private interface Answer {
+		Object get(Object[] args);
+	}
+
+	/*
+	 * 서블릿 초기화 파라미터로 벤치마크용 경로, 뷰 매핑을 넘기는 ServletConfig 를 생성한다.
+	 */
+	private static ServletConfig createConfig() {
+		final Map<String, Object> contextAttributes = new HashMap<String, Object>();
+		Map<String, Object> context = new HashMap<String, Object>();
+		context.put("getAttribute", new Answer() {
+			public Object get(Object[] args) {
+				return contextAttributes.get(args[0]);
+			}
+		});
+		context.put("setAttribute", new Answer() {
+			public Object get(Object[] args) {
+				contextAttributes.put((String) args[0], args[1]);
+				return null;
+			}
+		});
+		Map<String, Object> config = new HashMap<String, Object>();
+		config.put("getServletContext", proxy(ServletContext.class, context));
+		config.put("getServletName", "bench");
+		config.put("getInitParameter", new Answer() {
+			public Object get(Object[] args) {
+				if ("routes-mapping".equals(args[0])) {
+					return Routes.class.getName();
+				}
+				if ("views-mapping".equals(args[0])) {
+					return Views.class.getName();
+				}
+				return null;
+			}
+		});
+		return proxy(ServletConfig.class, config);
+	}
+
+	/*
+	 * 속성을 맵에 저장하는 HttpSession 을 생성한다.
+	 */
+	private static HttpSession createSession() {
+		final Map<String, Object> attributes = new HashMap<String, Object>();
+		Map<String, Object> session = new HashMap<String, Object>();
+		session.put("getAttribute", new Answer() {
+			public Object get(Object[] args) {
+				return attributes.get(args[0]);
+			}
+		});
+		session.put("setAttribute", new Answer() {
+			public Object get(Object[] args) {
+				attributes.put((String) args[0], args[1]);
+				return null;
+			}
+		});
+		session.put("removeAttribute", new Answer() {
+			public Object get(Object[] args) {
+				attributes.remove(args[0]);
+				return null;
+			}
+		});
+		session.put("getId", "bench");
+		return proxy(HttpSession.class, session);
+	}
+
+	/*
+	 * 주어진 경로로 들어온 파라미터 없는 GET 요청을 생성한다.
+	 */
+	private static HttpServletRequest createRequest(String path, HttpSession session) {
+		Map<String, Object> request = new HashMap<String, Object>();
+		request.put("getServletPath", path);
+		request.put("getRequestURI", path);
+		request.put("getMethod", "GET");
+		request.put("getSession", session);
+		request.put("getParameterMap", new HashMap<String, String[]>());
+		return proxy(HttpServletRequest.class, request);
+	}
+
+	/*
+	 * answers 에 등록된 메소드는 등록된 값으로, 나머지는 반환형의 기본값으로 응답하는 프록시를 생성한다.
+	 */
+	private static <T> T proxy(Class<T> type, final Map<String, Object> answers) {
+		return type.cast(Proxy.newProxyInstance(DispatchBench.class.getClassLoader(), new Class<?>[] { type }, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				String name = method.getName();
+				if (answers.containsKey(name)) {
+					Object value = answers.get(name);
+					return (value instanceof Answer) ? ((Answer) value).get(args) : value;
+				}
+				if ("hashCode".equals(name)) {
+					return Integer.valueOf(System.identityHashCode(proxy));
+				}
+				if ("equals".equals(name)) {
+					return Boolean.valueOf(proxy == args[0]);
+				}
+				return defaultValue(method.getReturnType());
+			}
+		}));
+	}
+
+	/*
+	 * 반환형의 기본값을 리턴한다.
+	 */
+	private static Object defaultValue(Class<?> type) {
+		if (type == boolean.class) {
+			return Boolean.FALSE;
+		}
+		if (type == int.class) {
+			return Integer.valueOf(0);
+		}
+		if (type == long.class) {
+			return Long.valueOf(0L);
+		}
+		if (type == Enumeration.class) {
+			return Collections.enumeration(Collections.emptyList());
+		}
+		if (type == Map.class) {
+			return Collections.emptyMap();
+		}
+		return null;
+	}
+}
@@ -0,0 +1,20 @@
+package framework.action;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 컨테이너 스레드를 점유하지 않고 별도의 실행기(Executor)에서 비동기로 실행할 액션메소드에 적용
+ * Servlet 3.0 이상의 컨테이너에서 web.xml에 async-supported가 설정되어 있어야 하며, 지원되지 않으면 동기로 실행한다.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Async {
+	/**
+	 * 비동기 처리 제한시간(밀리초), 0 이하이면 application.properties의 async.timeout 값을 사용한다.
+	 * @return 제한시간
+	 */
+	long timeout() default 0;
+}
\ No newline at end of file
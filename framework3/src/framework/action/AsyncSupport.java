@@ -0,0 +1,569 @@
+package framework.action;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import framework.config.Config;
+
+/**
+ * Servlet 3.0 AsyncContext를 이용하여 @Async 액션을 별도의 실행기(Executor)에서 실행하는 클래스
+ * 컴파일 환경의 Servlet API 버전과 무관하도록 비동기 관련 메소드는 초기화 시점에 리플렉션으로 찾아둔다.
+ * <br>
+ * application.properties 설정
+ * <br>
+ * async.executor : fixed(기본값, 고정크기 스레드풀) 또는 virtual(JDK 21 이상의 가상 스레드, 지원되지 않으면 fixed)
+ * <br>
+ * async.threads : 고정크기 스레드풀의 스레드 수(기본값 200)
+ * <br>
+ * async.queueSize : 고정크기 스레드풀의 대기열 크기(기본값 1000), 대기열이 가득차면 503 응답을 보낸다.
+ * <br>
+ * async.timeout : 비동기 처리 제한시간(밀리초, 기본값 30000)
+ */
+final class AsyncSupport {
+	private static final Log logger = LogFactory.getLog(AsyncSupport.class);
+	private final ExecutorService executor;
+	private final long defaultTimeout;
+	private final Method isAsyncSupportedMethod;
+	private final Method startAsyncMethod;
+	private final Method setTimeoutMethod;
+	private final Method completeMethod;
+	private final Method addListenerMethod;
+	private final Class<?> asyncListenerClass;
+
+	private AsyncSupport(Method isAsyncSupportedMethod, Method startAsyncMethod, Method setTimeoutMethod, Method completeMethod, Method addListenerMethod, Class<?> asyncListenerClass) {
+		this.isAsyncSupportedMethod = isAsyncSupportedMethod;
+		this.startAsyncMethod = startAsyncMethod;
+		this.setTimeoutMethod = setTimeoutMethod;
+		this.completeMethod = completeMethod;
+		this.addListenerMethod = addListenerMethod;
+		this.asyncListenerClass = asyncListenerClass;
+		Config config = Config.getInstance();
+		this.defaultTimeout = config.getLong("async.timeout", Long.valueOf(30000)).longValue();
+		this.executor = createExecutor(config.getString("async.executor", "fixed"), config.getInt("async.threads", Integer.valueOf(200)).intValue(), config.getInt("async.queueSize", Integer.valueOf(1000)).intValue());
+	}
+
+	/**
+	 * 컨테이너가 Servlet 3.0 비동기 처리를 지원하면 객체를 생성하여 리턴한다.
+	 * @return AsyncSupport 객체, 지원하지 않으면 null
+	 */
+	static AsyncSupport create() {
+		try {
+			Class<?> asyncContextClass = Class.forName("javax.servlet.AsyncContext", false, ServletRequest.class.getClassLoader());
+			Method isAsyncSupported = ServletRequest.class.getMethod("isAsyncSupported");
+			Method startAsync = ServletRequest.class.getMethod("startAsync");
+			Method setTimeout = asyncContextClass.getMethod("setTimeout", long.class);
+			Method complete = asyncContextClass.getMethod("complete");
+			Class<?> asyncListenerClass = Class.forName("javax.servlet.AsyncListener", false, ServletRequest.class.getClassLoader());
+			Method addListener = asyncContextClass.getMethod("addListener", asyncListenerClass);
+			return new AsyncSupport(isAsyncSupported, startAsync, setTimeout, complete, addListener, asyncListenerClass);
+		} catch (Throwable e) {
+			logger.info("Servlet 3.0 비동기 처리를 지원하지 않는 컨테이너입니다. @Async 액션은 동기로 실행됩니다.");
+			return null;
+		}
+	}
+
+	/**
+	 * 요청이 비동기로 처리될 수 있는지 여부를 리턴한다.
+	 * @param request HTTP 클라이언트 요청객체
+	 * @return 비동기 처리 가능여부
+	 */
+	boolean isAsyncSupported(HttpServletRequest request) {
+		try {
+			return ((Boolean) isAsyncSupportedMethod.invoke(request)).booleanValue();
+		} catch (Throwable e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 비동기 모드를 시작하고 작업을 실행기에 넘긴다. 작업이 끝나면 AsyncContext를 완료한다.
+	 * 제한시간이 지나면 503 응답을 보내고 AsyncContext를 완료하며, 이후 작업에서의 출력과 완료 처리는 무시되고 요청객체를 사용하면 IllegalStateException 이 발생한다.
+	 * @param request HTTP 클라이언트 요청객체
+	 * @param response HTTP 클라이언트 응답객체
+	 * @param timeout 제한시간(밀리초), 0 이하이면 기본값을 사용한다.
+	 * @param task 실행할 작업
+	 * @return 작업이 실행기에 넘겨졌으면 true, 대기열이 가득차서 거부되었으면 false
+	 * @throws Exception 비동기 모드를 시작할 수 없는 경우
+	 */
+	boolean execute(final HttpServletRequest request, HttpServletResponse response, long timeout, final Task task) throws Exception {
+		Object asyncContext = startAsyncMethod.invoke(request);
+		final AsyncState state = new AsyncState(asyncContext, response);
+		addListenerMethod.invoke(asyncContext, Proxy.newProxyInstance(asyncListenerClass.getClassLoader(), new Class<?>[] { asyncListenerClass }, state));
+		setTimeoutMethod.invoke(asyncContext, Long.valueOf(timeout > 0 ? timeout : defaultTimeout));
+		final HttpServletRequest guardRequest = new GuardRequestWrapper(request, state);
+		final HttpServletResponse guardResponse = new GuardResponseWrapper(response, state);
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						task.run(guardRequest, guardResponse);
+					} catch (Throwable e) {
+						logger.error("", e);
+						sendError(guardResponse, 500);
+					} finally {
+						state.complete();
+					}
+				}
+			});
+			return true;
+		} catch (RejectedExecutionException e) {
+			logger.error("비동기 실행기의 대기열이 가득찼습니다.");
+			sendError(guardResponse, 503);
+			state.complete();
+			return false;
+		}
+	}
+
+	/**
+	 * 실행기에서 실행할 작업, 넘겨받은 요청객체와 응답객체를 사용해야 제한시간이 지난 뒤에 컨테이너가 재사용하는 객체를 건드리지 않는다.
+	 */
+	interface Task {
+		void run(HttpServletRequest request, HttpServletResponse response) throws Throwable;
+	}
+
+	/**
+	 * 비동기 요청이 제한시간 초과 등으로 이미 완료되었는지 여부를 리턴한다. 컨트롤러는 완료된 요청의 액션 실행과 세션 저장을 건너뛴다.
+	 * @param request HTTP 클라이언트 요청객체
+	 * @return 비동기로 실행중인 요청이 이미 완료되었으면 true
+	 */
+	static boolean isExpired(HttpServletRequest request) {
+		return (request instanceof GuardRequestWrapper) && ((GuardRequestWrapper) request).state.isDone();
+	}
+
+	/**
+	 * 실행기를 종료한다.
+	 */
+	void shutdown() {
+		executor.shutdown();
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	private void complete(Object asyncContext) {
+		try {
+			completeMethod.invoke(asyncContext);
+		} catch (Throwable e) {
+			logger.error("", e);
+		}
+	}
+
+	/**
+	 * 하나의 비동기 요청의 완료 여부를 관리하는 AsyncListener 프록시 핸들러
+	 * 제한시간 초과, 오류, 작업 종료 중 먼저 일어난 것 하나만 응답을 마무리하고 AsyncContext를 완료한다.
+	 */
+	private final class AsyncState implements InvocationHandler {
+		private final Object asyncContext;
+		private final HttpServletResponse response;
+		private boolean done = false;
+
+		private AsyncState(Object asyncContext, HttpServletResponse response) {
+			this.asyncContext = asyncContext;
+			this.response = response;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if ("onTimeout".equals(name)) {
+				timeout();
+			} else if ("onError".equals(name) || "onComplete".equals(name)) {
+				synchronized (this) {
+					done = true;
+				}
+			} else if ("equals".equals(name)) {
+				return Boolean.valueOf(proxy == args[0]);
+			} else if ("hashCode".equals(name)) {
+				return Integer.valueOf(System.identityHashCode(proxy));
+			} else if ("toString".equals(name)) {
+				return "AsyncListener@" + Integer.toHexString(System.identityHashCode(proxy));
+			}
+			return null;
+		}
+
+		/*
+		 * 작업이 아직 끝나지 않았으면 503 응답을 보내고 완료, 출력중인 작업이 있으면 끝날때까지 기다린다.
+		 */
+		private synchronized void timeout() {
+			if (done) {
+				return;
+			}
+			done = true;
+			logger.error("비동기 처리 제한시간을 초과하였습니다.");
+			sendError(response, 503);
+			AsyncSupport.this.complete(asyncContext);
+		}
+
+		/*
+		 * 작업이 끝나면 호출, 제한시간 초과 등으로 이미 완료되었으면 아무것도 하지 않는다.
+		 */
+		private synchronized void complete() {
+			if (done) {
+				return;
+			}
+			done = true;
+			AsyncSupport.this.complete(asyncContext);
+		}
+
+		private synchronized boolean isDone() {
+			return done;
+		}
+	}
+
+	/**
+	 * 제한시간 초과 등으로 비동기 요청이 완료된 뒤에는 요청객체를 사용할 수 없도록 하는 요청 래퍼
+	 * 완료된 요청객체는 컨테이너가 다른 요청에 재사용하므로, 요청객체의 모든 메소드를 완료 여부를 확인하는 프록시를 거쳐 호출한다.
+	 */
+	private static final class GuardRequestWrapper extends HttpServletRequestWrapper {
+		private final AsyncState state;
+
+		private GuardRequestWrapper(final HttpServletRequest request, final AsyncState state) {
+			super((HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class }, new InvocationHandler() {
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					synchronized (state) {
+						if (state.isDone()) {
+							throw new IllegalStateException("비동기 처리가 완료된 요청입니다.");
+						}
+						try {
+							return method.invoke(request, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					}
+				}
+			}));
+			this.state = state;
+		}
+	}
+
+	/**
+	 * 제한시간 초과 등으로 비동기 요청이 완료된 뒤에는 출력과 응답설정을 무시하는 응답 래퍼
+	 * 완료된 응답객체는 컨테이너가 다른 요청에 재사용하므로 작업 스레드에서 건드리지 않아야 한다.
+	 */
+	private static final class GuardResponseWrapper extends HttpServletResponseWrapper {
+		private final AsyncState state;
+		private ServletOutputStream outputStream = null;
+		private PrintWriter writer = null;
+
+		private GuardResponseWrapper(HttpServletResponse response, AsyncState state) {
+			super(response);
+			this.state = state;
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			synchronized (state) {
+				if (outputStream == null) {
+					final ServletOutputStream os = state.isDone() ? null : super.getOutputStream();
+					outputStream = new ServletOutputStream() {
+						@Override
+						public void write(int b) throws IOException {
+							synchronized (state) {
+								if (os != null && !state.isDone()) {
+									os.write(b);
+								}
+							}
+						}
+
+						@Override
+						public void write(byte[] b, int off, int len) throws IOException {
+							synchronized (state) {
+								if (os != null && !state.isDone()) {
+									os.write(b, off, len);
+								}
+							}
+						}
+
+						@Override
+						public void flush() throws IOException {
+							synchronized (state) {
+								if (os != null && !state.isDone()) {
+									os.flush();
+								}
+							}
+						}
+
+						@Override
+						public void close() throws IOException {
+							synchronized (state) {
+								if (os != null && !state.isDone()) {
+									os.close();
+								}
+							}
+						}
+					};
+				}
+				return outputStream;
+			}
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			synchronized (state) {
+				if (writer == null) {
+					final PrintWriter pw = state.isDone() ? null : super.getWriter();
+					writer = new PrintWriter(new Writer() {
+						@Override
+						public void write(char[] cbuf, int off, int len) throws IOException {
+							synchronized (state) {
+								if (pw != null && !state.isDone()) {
+									pw.write(cbuf, off, len);
+								}
+							}
+						}
+
+						@Override
+						public void flush() throws IOException {
+							synchronized (state) {
+								if (pw != null && !state.isDone()) {
+									pw.flush();
+								}
+							}
+						}
+
+						@Override
+						public void close() throws IOException {
+							synchronized (state) {
+								if (pw != null && !state.isDone()) {
+									pw.close();
+								}
+							}
+						}
+					});
+				}
+				return writer;
+			}
+		}
+
+		@Override
+		public boolean isCommitted() {
+			synchronized (state) {
+				return state.isDone() || super.isCommitted();
+			}
+		}
+
+		@Override
+		public void flushBuffer() throws IOException {
+			synchronized (state) {
+				if (!state.isDone()) {
+					super.flushBuffer();
+				}
+			}
+		}
+
+		@Override
+		public void reset() {
+			synchronized (state) {
+				if (!state.isDone()) {
+					super.reset();
+				}
+			}
+		}
+
+		@Override
+		public void resetBuffer() {
+			synchronized (state) {
+				if (!state.isDone()) {
+					super.resetBuffer();
+				}
+			}
+		}
+
+		@Override
+		public void sendError(int sc) throws IOException {
+			synchronized (state) {
+				if (!state.isDone()) {
+					super.sendError(sc);
+				}
+			}
+		}
+
+		@Override
+		public void sendError(int sc, String msg) throws IOException {
+			synchronized (state) {
+				if (!state.isDone()) {
+					super.sendError(sc, msg);
+				}
+			}
+		}
+
+		@Override
+		public void sendRedirect(String location) throws IOException {
+			synchronized (state) {
+				if (!state.isDone()) {
+					super.sendRedirect(location);
+				}
+			}
+		}
+
+		@Override
+		public void setStatus(int sc) {
+			synchronized (state) {
+				if (!state.isDone()) {
+					super.setStatus(sc);
+				}
+			}
+		}
+
+		@Override
+		@SuppressWarnings("deprecation")
+		public void setStatus(int sc, String sm) {
+			synchronized (state) {
+				if (!state.isDone()) {
+					super.setStatus(sc, sm);
+				}
+			}
+		}
+
+		@Override
+		public void addCookie(Cookie cookie) {
+			synchronized (state) {
+				if (!state.isDone()) {
+					super.addCookie(cookie);
+				}
+			}
+		}
+
+		@Override
+		public void setHeader(String name, String value) {
+			synchronized (state) {
+				if (!state.isDone()) {
+					super.setHeader(name, value);
+				}
+			}
+		}
+
+		@Override
+		public void addHeader(String name, String value) {
+			synchronized (state) {
+				if (!state.isDone()) {
+					super.addHeader(name, value);
+				}
+			}
+		}
+
+		@Override
+		public void setIntHeader(String name, int value) {
+			synchronized (state) {
+				if (!state.isDone()) {
+					super.setIntHeader(name, value);
+				}
+			}
+		}
+
+		@Override
+		public void addIntHeader(String name, int value) {
+			synchronized (state) {
+				if (!state.isDone()) {
+					super.addIntHeader(name, value);
+				}
+			}
+		}
+
+		@Override
+		public void setDateHeader(String name, long date) {
+			synchronized (state) {
+				if (!state.isDone()) {
+					super.setDateHeader(name, date);
+				}
+			}
+		}
+
+		@Override
+		public void addDateHeader(String name, long date) {
+			synchronized (state) {
+				if (!state.isDone()) {
+					super.addDateHeader(name, date);
+				}
+			}
+		}
+
+		@Override
+		public void setContentType(String type) {
+			synchronized (state) {
+				if (!state.isDone()) {
+					super.setContentType(type);
+				}
+			}
+		}
+
+		@Override
+		public void setContentLength(int len) {
+			synchronized (state) {
+				if (!state.isDone()) {
+					super.setContentLength(len);
+				}
+			}
+		}
+
+		@Override
+		public void setCharacterEncoding(String charset) {
+			synchronized (state) {
+				if (!state.isDone()) {
+					super.setCharacterEncoding(charset);
+				}
+			}
+		}
+	}
+
+	private void sendError(HttpServletResponse response, int sc) {
+		if (!response.isCommitted()) {
+			try {
+				response.sendError(sc);
+			} catch (Throwable e) {
+				logger.error("", e);
+			}
+		}
+	}
+
+	/*
+	 * virtual 로 설정되어 있고 JDK가 가상 스레드를 지원하면 작업마다 가상 스레드를 생성하는 실행기를, 그렇지 않으면 고정크기 스레드풀을 생성
+	 */
+	private static ExecutorService createExecutor(String type, int threads, int queueSize) {
+		if ("virtual".equalsIgnoreCase(type)) {
+			try {
+				ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+				logger.info("비동기 실행기 : virtual thread per task");
+				return executor;
+			} catch (Throwable e) {
+				logger.info("가상 스레드를 지원하지 않는 JDK입니다. 고정크기 스레드풀을 사용합니다.");
+			}
+		}
+		logger.info("비동기 실행기 : fixed thread pool (threads=" + threads + ", queueSize=" + queueSize + ")");
+		return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+			private final AtomicInteger seq = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "framework-async-" + seq.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+}
\ No newline at end of file
@@ -0,0 +1,158 @@
+package framework.action;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import framework.metrics.LimiterMetric;
+import framework.metrics.Metrics;
+
+/**
+ * 라우트 또는 라우트 그룹의 동시실행 수를 제한하는 클래스(bulkhead)
+ * 최대 동시실행 수를 넘는 요청은 대기열에서 제한시간 동안 기다리며, 대기열이 가득찼거나 제한시간이 지나면 거부된다.
+ * <br>
+ * routes.properties 설정
+ * <br>
+ * bulkhead.그룹명.routes : 적용할 요청 경로 목록(쉼표로 구분, *로 끝나면 접두어로 비교)
+ * <br>
+ * bulkhead.그룹명.limit : 최대 동시실행 수(기본값 10)
+ * <br>
+ * bulkhead.그룹명.queue : 최대 대기 수(기본값 0)
+ * <br>
+ * bulkhead.그룹명.timeout : 대기 제한시간(밀리초, 기본값 0)
+ * <br>
+ * bulkhead.그룹명.retryAfter : 거부시 Retry-After 헤더 값(초, 기본값 1)
+ * <br>
+ * ex) 엑셀 다운로드를 최대 5개까지 실행 : bulkhead.excel.routes=/excel/*, bulkhead.excel.limit=5, bulkhead.excel.queue=10, bulkhead.excel.timeout=2000
+ */
+final class Bulkhead {
+	private static final String KEY_PREFIX = "bulkhead.";
+	private final String name;
+	private final String[] routes;
+	private final int queueSize;
+	private final long timeout;
+	private final int retryAfter;
+	private final Semaphore semaphore;
+	private final AtomicInteger waiting = new AtomicInteger();
+	private final LimiterMetric metric;
+
+	private Bulkhead(String name, String[] routes, int limit, int queueSize, long timeout, int retryAfter) {
+		this.name = name;
+		this.routes = routes;
+		this.queueSize = queueSize;
+		this.timeout = timeout;
+		this.retryAfter = retryAfter;
+		this.semaphore = new Semaphore(limit);
+		this.metric = Metrics.registerLimiterMetric(name, limit, queueSize);
+	}
+
+	/**
+	 * routes 번들의 bulkhead 설정을 읽어 동시실행 제한기 목록을 생성한다.
+	 * @param routesBundle routes 번들
+	 * @return 동시실행 제한기 목록
+	 */
+	static List<Bulkhead> create(ResourceBundle routesBundle) {
+		List<Bulkhead> list = new ArrayList<Bulkhead>();
+		for (Enumeration<String> keys = routesBundle.getKeys(); keys.hasMoreElements();) {
+			String key = keys.nextElement();
+			if (!key.startsWith(KEY_PREFIX) || !key.endsWith(".routes")) {
+				continue;
+			}
+			String name = key.substring(KEY_PREFIX.length(), key.length() - ".routes".length());
+			String[] routes = routesBundle.getString(key).split(",");
+			for (int i = 0; i < routes.length; i++) {
+				routes[i] = routes[i].trim();
+			}
+			int limit = Integer.parseInt(getString(routesBundle, KEY_PREFIX + name + ".limit", "10"));
+			int queueSize = Integer.parseInt(getString(routesBundle, KEY_PREFIX + name + ".queue", "0"));
+			long timeout = Long.parseLong(getString(routesBundle, KEY_PREFIX + name + ".timeout", "0"));
+			int retryAfter = Integer.parseInt(getString(routesBundle, KEY_PREFIX + name + ".retryAfter", "1"));
+			list.add(new Bulkhead(name, routes, limit, queueSize, timeout, retryAfter));
+		}
+		return list;
+	}
+
+	/**
+	 * 요청 경로가 이 제한기에 속하는지 여부를 리턴한다.
+	 * @param path 정규화된 요청 경로
+	 * @return 적용여부
+	 */
+	boolean matches(String path) {
+		for (String route : routes) {
+			if (route.endsWith("*")) {
+				if (path.startsWith(route.substring(0, route.length() - 1))) {
+					return true;
+				}
+			} else if (route.equals(path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 실행 허가를 얻는다. 허가가 없으면 대기열에서 제한시간 동안 기다린다.
+	 * @return 허가를 얻었으면 true, 대기열이 가득찼거나 제한시간이 지났으면 false
+	 */
+	boolean acquire() {
+		if (semaphore.tryAcquire()) {
+			metric.acquired();
+			return true;
+		}
+		if (waiting.incrementAndGet() > queueSize) {
+			waiting.decrementAndGet();
+			metric.rejectedByQueueFull();
+			return false;
+		}
+		metric.waitStarted();
+		try {
+			if (semaphore.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+				metric.acquired();
+				return true;
+			}
+			metric.rejectedByTimeout();
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			metric.rejectedByTimeout();
+			return false;
+		} finally {
+			waiting.decrementAndGet();
+			metric.waitEnded();
+		}
+	}
+
+	/**
+	 * 실행 허가를 반납한다.
+	 */
+	void release() {
+		metric.released();
+		semaphore.release();
+	}
+
+	/**
+	 * 거부시 Retry-After 헤더 값(초)을 리턴한다.
+	 * @return Retry-After 헤더 값
+	 */
+	int getRetryAfter() {
+		return retryAfter;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	private static String getString(ResourceBundle bundle, String key, String defaultValue) {
+		if (bundle.containsKey(key)) {
+			return bundle.getString(key).trim();
+		}
+		return defaultValue;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+package framework.action;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * GET 요청에 대한 응답을 캐시할 액션메소드에 적용
+ * 캐시가 있으면 액션과 DB 작업을 실행하지 않고 캐시(Memcached, Redis, EhCache)에 저장된 응답을 그대로 출력한다.
+ * @Before 필터는 캐시 여부와 관계없이 항상 실행되므로 로그인, 권한 검사를 통과한 요청에만 캐시된 응답을 출력한다.
+ * 상태코드가 200이 아니거나 쿠키를 설정하는 응답은 캐시하지 않는다.
+ * <br>
+ * ex) 10분간 page 파라미터별로 캐시 : @CacheFor(ttl = 600, params = { "page" })
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CacheFor {
+	/**
+	 * 캐시시간(초단위)
+	 * @return 캐시시간
+	 */
+	int ttl() default 60;
+
+	/**
+	 * 캐시키에 포함할 요청파라미터 이름, 지정하지 않으면 모든 요청파라미터를 포함한다.
+	 * @return 요청파라미터 이름 배열
+	 */
+	String[] params() default {};
+
+	/**
+	 * 캐시키에 포함할 헤더 이름
+	 * @return 헤더 이름 배열
+	 */
+	String[] headers() default {};
+
+	/**
+	 * 사용자별 캐시 여부, 사용자(remoteUser 또는 이미 생성된 세션)를 식별할 수 없으면 캐시를 사용하지 않는다.
+	 * @return 사용자별 캐시 여부
+	 */
+	boolean perUser() default false;
+}
\ No newline at end of file
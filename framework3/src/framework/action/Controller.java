@@ -1,14 +1,11 @@
 package framework.action;
 
+import java.io.IOException;
 import java.io.PrintWriter;
-import java.lang.annotation.Annotation;
+import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.ResourceBundle;
@@ -25,6 +22,7 @@ import org.apache.commons.logging.LogFactory;
 
 import framework.config.Config;
 import framework.db.DB;
+import framework.metrics.RequestMetric;
 import framework.util.StringUtil;
 
 /**
@@ -36,6 +34,8 @@ import framework.util.StringUtil;
 public abstract class Controller {
 	private static final String FLASH_SCOPE_OBJECT_KEY = "___FLASH_SCOPE_OBJECT___";
 	private final Map<String, DB> dbMap = new HashMap<String, DB>();
+	private boolean releaseOnCommit = false;
+	private boolean readOnly = false;
 
 	/**
 	 * Controller의 로거객체
@@ -100,6 +100,8 @@ public abstract class Controller {
 	/**
 	 * 클라이언트에서 서비스를 호출할 때 요청 url에 설정된 값을 참고하여 해당 메소드를 실행한다.
 	 * 정의되지 않은 메소드를 호출할 경우 로그에 오류메시지가 기록되며 메소드 실행을 마친 후 데이터베이스 컨넥을 자동으로 닫아준다.
+	 * 데이터베이스 컨넥션은 액션과 @After 필터가 끝나면 바로 풀에 반환하며, @ReleaseOnCommit 이 적용된 액션은 커밋할 때 반환한다.
+	 * 요청파라미터, 쿠키, 헤더, 세션, 출력 Writer는 액션에서 처음 사용할 때 생성된다.
 	 * @param servlet 서블릿 객체
 	 * @param request 클라이언트에서 요청된 Request객체
 	 * @param response 클라이언트로 응답할 Response객체
@@ -107,46 +109,50 @@ public abstract class Controller {
 	 * @throws Throwable 예외 객체
 	 */
 	public void execute(HttpServlet servlet, HttpServletRequest request, HttpServletResponse response, Method method) throws Throwable {
+		execute(servlet, request, response, method, null);
+	}
+
+	/*
+	 * @CacheFor 가 적용된 액션은 @Before 필터를 실행한 뒤 응답캐시를 확인하고, 캐시가 있으면 액션과 @After 필터를 건너뛴다.
+	 */
+	void execute(HttpServlet servlet, HttpServletRequest request, HttpServletResponse response, final Method method, ResponseCache responseCache) throws Throwable {
+		final InterceptorPlan.Action plan = InterceptorPlan.forClass(getClass()).getAction(method);
 		try {
 			this.application = servlet.getServletContext();
 			this.request = request;
-			this.params = Params.getParams(request);
-			this.cookies = Params.getParamsFromCookie(request);
-			this.headers = Params.getParamsFromHeader(request);
-			this.session = request.getSession();
+			this.params = Params.getLazyParams(request, plan.getUpload());
+			this.cookies = Params.getLazyParamsFromCookie(request);
+			this.headers = Params.getLazyParamsFromHeader(request);
+			this.session = new LazySession(request);
 			this.flash = new HashMap<String, Object>();
 			this.response = response;
-			this.out = response.getWriter();
+			this.out = new PrintWriter(new ResponseWriter(response));
 			this.action = method;
-			this.actionName = getClass().getName() + "." + method.getName();
-			long currTime = 0;
+			this.actionName = plan.getActionName();
+			this.releaseOnCommit = plan.isReleaseOnCommit();
+			this.readOnly = plan.isReadOnly();
 			flashRestore();
-			beforeFilter();
-			if (logger.isDebugEnabled()) {
-				currTime = System.nanoTime();
-				logger.debug("Start Class : " + getClass().getName() + ", Method : " + method.getName());
-				logger.debug(this.headers.toString());
-				logger.debug(this.cookies.toString());
-				logger.debug(this.params.toString());
-			}
-			try {
-				method.invoke(this, (Object[]) null);
-			} catch (InvocationTargetException e) {
-				if (e.getCause() instanceof ActionStopException) {
-					throw e.getCause();
-				} else {
-					catchFilter(e.getCause());
-				}
-			}
-			if (logger.isDebugEnabled()) {
-				logger.debug("End | duration : " + (System.nanoTime() - currTime) + " ns");
+			beforeFilter(plan);
+			if (responseCache == null) {
+				invokeAction(plan, method);
+			} else {
+				responseCache.execute(request, response, new ResponseCache.Action() {
+					@Override
+					public void run(HttpServletResponse actionResponse) throws Throwable {
+						if (actionResponse != Controller.this.response) {
+							Controller.this.response = actionResponse;
+							Controller.this.out = new PrintWriter(new ResponseWriter(actionResponse));
+						}
+						invokeAction(plan, method);
+					}
+				});
 			}
-			afterFilter();
+			releaseDB();
 		} catch (ActionStopException e) {
 			logger.info("Stop Action!");
 		} finally {
 			try {
-				finallyFilter();
+				finallyFilter(plan);
 			} catch (Throwable te) {
 				logger.error("", te);
 			}
@@ -226,6 +232,7 @@ public abstract class Controller {
 	 * jndiName이 등록되어 있지 않는 경우 연결정보를 바탕으로 db 컨넥션을 생성한다.
 	 * 파라미터로 넘겨진 업무명에 해당하는 설정파일 정보를 이용하여 컨넥션을 생성한다.
 	 * 생성된 컨넥션의 autoCommit 속성은 false 로 셋팅된다.
+	 * 컨넥션은 처음 문장을 실행할 때 얻는다. @ReadOnly 가 적용된 액션이면 조회를 리플리카에서 실행한다.
 	 * @param serviceName 서비스명(업무명)
 	 * @return DB 객체
 	 */
@@ -236,6 +243,9 @@ public abstract class Controller {
 				if (db != null) {
 					dbMap.put(serviceName, db);
 					db.setAutoCommit(false);
+					db.setReleaseOnCommit(releaseOnCommit);
+					db.setReadOnly(readOnly);
+					db.setActionName(actionName);
 				}
 			} catch (Throwable e) {
 				logger.error("", e);
@@ -320,11 +330,55 @@ public abstract class Controller {
 		private static final long serialVersionUID = -4449840322691459821L;
 	}
 
+	/*
+	 * 처음 출력할 때 응답객체의 Writer를 얻는 Writer
+	 * 액션이 출력하지 않거나 OutputStream을 사용하는 경우 response.getWriter()를 호출하지 않는다.
+	 */
+	private static class ResponseWriter extends Writer {
+		private final HttpServletResponse response;
+		private PrintWriter writer = null;
+
+		ResponseWriter(HttpServletResponse response) {
+			this.response = response;
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			getWriter().write(cbuf, off, len);
+		}
+
+		@Override
+		public void write(String str, int off, int len) throws IOException {
+			getWriter().write(str, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (writer != null) {
+				writer.flush();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (writer != null) {
+				writer.close();
+			}
+		}
+
+		private PrintWriter getWriter() throws IOException {
+			if (writer == null) {
+				writer = response.getWriter();
+			}
+			return writer;
+		}
+	}
+
 	/*
 	 * 플래시객체를 세션에 저장
 	 */
 	private void flashSave() {
-		if (flash != null && !flash.isEmpty()) {
+		if (flash != null && !flash.isEmpty() && !AsyncSupport.isExpired(request)) {
 			try {
 				session.setAttribute(FLASH_SCOPE_OBJECT_KEY, flash);
 			} catch (IllegalStateException e) {
@@ -334,9 +388,12 @@ public abstract class Controller {
 	}
 
 	/*
-	 * 세션에서 플래시객체를 복원
+	 * 세션에서 플래시객체를 복원, 세션이 없으면 세션을 생성하지 않고 건너뛴다.
 	 */
 	private void flashRestore() {
+		if (!((LazySession) session).exists()) {
+			return;
+		}
 		@SuppressWarnings("unchecked")
 		Map<String, Object> flashMap = (Map<String, Object>) session.getAttribute(FLASH_SCOPE_OBJECT_KEY);
 		if (flashMap != null) {
@@ -348,107 +405,52 @@ public abstract class Controller {
 	}
 
 	/*
-	 * Play framework 참고
+	 * 액션 메소드와 @After 필터 실행
 	 */
-	private void beforeFilter() throws Throwable {
-		List<Method> beforeMethods = getAnnotationMethods(Before.class);
-		if (!beforeMethods.isEmpty()) {
-			Collections.sort(beforeMethods, new Comparator<Method>() {
-				@Override
-				public int compare(Method m1, Method m2) {
-					Before before1 = m1.getAnnotation(Before.class);
-					Before before2 = m2.getAnnotation(Before.class);
-					return before1.priority() - before2.priority();
-				}
-			});
-			for (Method beforeMethod : beforeMethods) {
-				String[] only = beforeMethod.getAnnotation(Before.class).only();
-				String[] unless = beforeMethod.getAnnotation(Before.class).unless();
-				boolean skip = false;
-				for (String o : only) {
-					if (!o.contains(".")) {
-						o = getClass().getName() + "." + o;
-					}
-					if (o.equals(this.actionName)) {
-						skip = false;
-						break;
-					} else {
-						skip = true;
-					}
-				}
-				for (String u : unless) {
-					if (!u.contains(".")) {
-						u = getClass().getName() + "." + u;
-					}
-					if (u.equals(this.actionName)) {
-						skip = true;
-						break;
-					}
-				}
-				if (!skip) {
-					if (logger.isDebugEnabled()) {
-						logger.debug("@Before Class : " + beforeMethod.getDeclaringClass().getName() + ", Method : " + beforeMethod.getName());
-					}
-					beforeMethod.setAccessible(true);
-					try {
-						beforeMethod.invoke(this, (Object[]) null);
-					} catch (InvocationTargetException e) {
-						throw e.getCause();
-					}
-				}
+	private void invokeAction(InterceptorPlan.Action plan, Method method) throws Throwable {
+		if (AsyncSupport.isExpired(request)) {
+			throw new ActionStopException();
+		}
+		long currTime = 0;
+		if (logger.isDebugEnabled()) {
+			currTime = System.nanoTime();
+			logger.debug("Start Class : " + getClass().getName() + ", Method : " + method.getName());
+			logger.debug(this.headers.toString());
+			logger.debug(this.cookies.toString());
+			logger.debug(this.params.toString());
+		}
+		RequestMetric metric = plan.getMetric();
+		long startTime = metric.start();
+		try {
+			method.invoke(this, (Object[]) null);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof ActionStopException) {
+				throw e.getCause();
+			} else {
+				metric.error(e.getCause());
+				catchFilter(plan, e.getCause());
 			}
+		} finally {
+			metric.stop(startTime);
 		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("End | duration : " + (System.nanoTime() - currTime) + " ns");
+		}
+		afterFilter(plan);
 	}
 
 	/*
 	 * Play framework 참고
 	 */
-	private void afterFilter() throws Throwable {
-		List<Method> afterMethods = getAnnotationMethods(After.class);
-		if (!afterMethods.isEmpty()) {
-			Collections.sort(afterMethods, new Comparator<Method>() {
-				@Override
-				public int compare(Method m1, Method m2) {
-					After after1 = m1.getAnnotation(After.class);
-					After after2 = m2.getAnnotation(After.class);
-					return after1.priority() - after2.priority();
-				}
-			});
-			for (Method afterMethod : afterMethods) {
-				String[] only = afterMethod.getAnnotation(After.class).only();
-				String[] unless = afterMethod.getAnnotation(After.class).unless();
-				boolean skip = false;
-				for (String o : only) {
-					if (!o.contains(".")) {
-						o = getClass().getName() + "." + o;
-					}
-					if (o.equals(this.actionName)) {
-						skip = false;
-						break;
-					} else {
-						skip = true;
-					}
-				}
-				for (String u : unless) {
-					if (!u.contains(".")) {
-						u = getClass().getName() + "." + u;
-					}
-					if (u.equals(this.actionName)) {
-						skip = true;
-						break;
-					}
-				}
-				if (!skip) {
-					if (logger.isDebugEnabled()) {
-						logger.debug("@After Class : " + afterMethod.getDeclaringClass().getName() + ", Method : " + afterMethod.getName());
-					}
-					afterMethod.setAccessible(true);
-					try {
-						afterMethod.invoke(this, (Object[]) null);
-					} catch (InvocationTargetException e) {
-						throw e.getCause();
-					}
-				}
+	private void beforeFilter(InterceptorPlan.Action plan) throws Throwable {
+		for (Method beforeMethod : plan.getBeforeMethods()) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("@Before Class : " + beforeMethod.getDeclaringClass().getName() + ", Method : " + beforeMethod.getName());
+			}
+			try {
+				beforeMethod.invoke(this, (Object[]) null);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
 			}
 		}
 	}
@@ -456,102 +458,57 @@ public abstract class Controller {
 	/*
 	 * Play framework 참고
 	 */
-	private void catchFilter(Throwable e) throws Throwable {
-		List<Method> catchMethods = getAnnotationMethods(Catch.class);
-		if (!catchMethods.isEmpty()) {
-			Collections.sort(catchMethods, new Comparator<Method>() {
-				@Override
-				public int compare(Method m1, Method m2) {
-					Catch catch1 = m1.getAnnotation(Catch.class);
-					Catch catch2 = m2.getAnnotation(Catch.class);
-					return catch1.priority() - catch2.priority();
-				}
-			});
-			for (Method catchMethod : catchMethods) {
-				Class<?>[] exceptionClasses = catchMethod.getAnnotation(Catch.class).value();
-				if (exceptionClasses.length == 0) {
-					exceptionClasses = new Class<?>[] { Exception.class };
-				}
-				for (Class<?> exceptionClass : exceptionClasses) {
-					if (exceptionClass.isInstance(e)) {
-						if (logger.isDebugEnabled()) {
-							logger.debug("@Catch Class : " + catchMethod.getDeclaringClass().getName() + ", Method : " + catchMethod.getName());
-						}
-						catchMethod.setAccessible(true);
-						try {
-							catchMethod.invoke(this, e);
-						} catch (InvocationTargetException ie) {
-							throw ie.getCause();
-						}
-						break;
-					}
-				}
+	private void afterFilter(InterceptorPlan.Action plan) throws Throwable {
+		for (Method afterMethod : plan.getAfterMethods()) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("@After Class : " + afterMethod.getDeclaringClass().getName() + ", Method : " + afterMethod.getName());
+			}
+			try {
+				afterMethod.invoke(this, (Object[]) null);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
 			}
 		}
-		throw e;
 	}
 
 	/*
 	 * Play framework 참고
 	 */
-	private void finallyFilter() throws Throwable {
-		List<Method> finallyMethods = getAnnotationMethods(Finally.class);
-		if (!finallyMethods.isEmpty()) {
-			Collections.sort(finallyMethods, new Comparator<Method>() {
-				@Override
-				public int compare(Method m1, Method m2) {
-					Finally finally1 = m1.getAnnotation(Finally.class);
-					Finally finally2 = m2.getAnnotation(Finally.class);
-					return finally1.priority() - finally2.priority();
-				}
-			});
-			for (Method finallyMethod : finallyMethods) {
-				String[] only = finallyMethod.getAnnotation(Finally.class).only();
-				String[] unless = finallyMethod.getAnnotation(Finally.class).unless();
-				boolean skip = false;
-				for (String o : only) {
-					if (!o.contains(".")) {
-						o = getClass().getName() + "." + o;
-					}
-					if (o.equals(this.actionName)) {
-						skip = false;
-						break;
-					} else {
-						skip = true;
-					}
-				}
-				for (String u : unless) {
-					if (!u.contains(".")) {
-						u = getClass().getName() + "." + u;
-					}
-					if (u.equals(this.actionName)) {
-						skip = true;
-						break;
-					}
-				}
-				if (!skip) {
+	private void catchFilter(InterceptorPlan.Action plan, Throwable e) throws Throwable {
+		Method[] catchMethods = plan.getCatchMethods();
+		for (int i = 0; i < catchMethods.length; i++) {
+			Method catchMethod = catchMethods[i];
+			for (Class<?> exceptionClass : plan.getCatchExceptions(i)) {
+				if (exceptionClass.isInstance(e)) {
 					if (logger.isDebugEnabled()) {
-						logger.debug("@Finally Class : " + finallyMethod.getDeclaringClass().getName() + ", Method : " + finallyMethod.getName());
+						logger.debug("@Catch Class : " + catchMethod.getDeclaringClass().getName() + ", Method : " + catchMethod.getName());
 					}
-					finallyMethod.setAccessible(true);
 					try {
-						finallyMethod.invoke(this, (Object[]) null);
-					} catch (InvocationTargetException e) {
-						throw e.getCause();
+						catchMethod.invoke(this, e);
+					} catch (InvocationTargetException ie) {
+						throw ie.getCause();
 					}
+					break;
 				}
 			}
 		}
+		throw e;
 	}
 
-	private List<Method> getAnnotationMethods(Class<? extends Annotation> annotation) {
-		List<Method> methods = new ArrayList<Method>();
-		for (Method method : getClass().getMethods()) {
-			if (method.isAnnotationPresent(annotation)) {
-				methods.add(method);
+	/*
+	 * Play framework 참고
+	 */
+	private void finallyFilter(InterceptorPlan.Action plan) throws Throwable {
+		for (Method finallyMethod : plan.getFinallyMethods()) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("@Finally Class : " + finallyMethod.getDeclaringClass().getName() + ", Method : " + finallyMethod.getName());
+			}
+			try {
+				finallyMethod.invoke(this, (Object[]) null);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
 			}
 		}
-		return methods;
 	}
 
 	/*
@@ -559,14 +516,7 @@ public abstract class Controller {
 	 */
 	private void destroy() {
 		try {
-			DB db = null;
-			for (String key : dbMap.keySet()) {
-				db = dbMap.get(key);
-				if (db != null) {
-					db.release();
-					db = null;
-				}
-			}
+			releaseDB();
 			dbMap.clear();
 			params = null;
 			out = null;
@@ -575,6 +525,17 @@ public abstract class Controller {
 		}
 	}
 
+	/*
+	 * DB 컨넥션을 풀에 반환하고 끝나지 않은 병렬 조회를 취소한다. DB 객체는 남겨두므로 이후에 다시 사용하면 새 컨넥션을 얻는다.
+	 */
+	private void releaseDB() {
+		for (DB db : dbMap.values()) {
+			if (db != null) {
+				db.release();
+			}
+		}
+	}
+
 	/*
 	 * 클라이언트 아이피 주소 획득
 	 */
@@ -2,8 +2,15 @@ package framework.action;
 
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletConfig;
@@ -12,10 +19,14 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import framework.cache.Cache;
+import framework.db.DB;
+import framework.metrics.Metrics;
+import framework.metrics.RequestMetric;
 import framework.util.StringUtil;
 
 /**
@@ -27,10 +38,24 @@ public class DispatcherServlet extends HttpServlet {
 	private static final long serialVersionUID = -6478697606075642071L;
 	private static final Log logger = LogFactory.getLog(DispatcherServlet.class);
 	private static final String[] DEFAULT_SERVLET_NAMES = new String[] { "default", "WorkerServlet", "ResourceServlet", "FileServlet", "resin-file", "SimpleFileServlet", "_ah_default" };
+	private static final int UNKNOWN_PATH_MAX_LENGTH = 512;
+	private Map<String, Route> routeMap = Collections.emptyMap();
+	private AsyncSupport asyncSupport = null;
+	private String metricsPath = null;
+	private String readinessPath = null;
+	private Warmup warmup = null;
+	private RequestDispatcher defaultDispatcher = null;
+	private final ConcurrentMap<String, Boolean> unknownPathMap = new ConcurrentHashMap<String, Boolean>();
+	private int unknownPathCacheSize = 10000;
 
 	/**
 	 * 서블릿 객체를 초기화 한다.
 	 * web.xml에 초기화 파라미터로 등록되어 있는 routes-mapping, views-mapping 값을 찾아 리소스 번들을 생성하는 역할을 한다.
+	 * routes 번들의 모든 항목은 이 시점에 컨트롤러 클래스와 액션 메소드로 해석되어 라우트 테이블로 만들어진다.
+	 * 초기화 파라미터 metrics-path 가 설정되어 있으면 해당 경로로 라우트별, 액션별 지표를 출력한다.
+	 * routes 번들의 bulkhead.* 항목은 라우트 또는 라우트 그룹의 동시실행 제한 설정으로 사용된다.
+	 * 초기화 파라미터 unknown-path-cache-size 는 라우트가 없는 요청 URI를 기억해 둘 최대 건수(기본값 10000, 0이면 사용하지 않음)이다.
+	 * 초기화 파라미터 warmup 이 true 이면 워밍업을 수행하며, readiness-path 로 설정된 경로는 워밍업이 끝나기 전까지 503을 응답한다.
 	 * @param config ServletConfig 객체
 	 */
 	@Override
@@ -50,6 +75,7 @@ public class DispatcherServlet extends HttpServlet {
 			RequestDispatcher dispatcher = getServletContext().getNamedDispatcher(defaultServletName);
 			if (dispatcher != null) {
 				getServletContext().setAttribute("default-servlet-dispatcher", dispatcher);
+				defaultDispatcher = dispatcher;
 				logger.info("Default Servlet을 찾았습니다. (" + defaultServletName + ")");
 			} else {
 				logger.info("Default Servlet을 찾을 수 없습니다.");
@@ -57,14 +83,50 @@ public class DispatcherServlet extends HttpServlet {
 			// routes 번들 설정
 			ResourceBundle routesBundle = ResourceBundle.getBundle(config.getInitParameter("routes-mapping"));
 			getServletContext().setAttribute("routes-mapping", routesBundle);
+			routeMap = buildRouteMap(routesBundle, Bulkhead.create(routesBundle));
 			// views 번들 설정
 			ResourceBundle viewsBundle = ResourceBundle.getBundle(config.getInitParameter("views-mapping"));
 			getServletContext().setAttribute("views-mapping", viewsBundle);
+			// metrics 경로 설정
+			String metricsPathParam = StringUtil.nullToBlankString(config.getInitParameter("metrics-path")).trim();
+			if (!"".equals(metricsPathParam)) {
+				metricsPath = normalizePath(metricsPathParam);
+				logger.info("지표 출력 경로 : " + metricsPath);
+			}
+			// readiness 경로 설정
+			String readinessPathParam = StringUtil.nullToBlankString(config.getInitParameter("readiness-path")).trim();
+			if (!"".equals(readinessPathParam)) {
+				readinessPath = normalizePath(readinessPathParam);
+			}
+			// 라우트가 없는 경로 캐시 크기 설정
+			String unknownPathCacheSizeParam = StringUtil.nullToBlankString(config.getInitParameter("unknown-path-cache-size")).trim();
+			if (!"".equals(unknownPathCacheSizeParam)) {
+				unknownPathCacheSize = Integer.parseInt(unknownPathCacheSizeParam);
+			}
 		} catch (MissingResourceException e) {
 			throw new ServletException(e);
 		}
 		// Cache
 		Cache.init();
+		// Async
+		asyncSupport = AsyncSupport.create();
+		// Warm-up
+		if ("true".equalsIgnoreCase(config.getInitParameter("warmup"))) {
+			warmup = new Warmup(config);
+			warmup.start(routeMap.values());
+		}
+	}
+
+	/**
+	 * 서블릿 객체를 정리한다. 비동기 실행기를 종료하고 내장 커넥션풀을 닫는다.
+	 */
+	@Override
+	public void destroy() {
+		if (asyncSupport != null) {
+			asyncSupport.shutdown();
+		}
+		DB.closeDataSources();
+		super.destroy();
 	}
 
 	/**
@@ -117,40 +179,72 @@ public class DispatcherServlet extends HttpServlet {
 
 	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
 
-	private void processRequest(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+	private void processRequest(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
 		try {
+			String requestURI = request.getRequestURI();
+			if (unknownPathMap.containsKey(requestURI)) {
+				forwardToDefault(request, response);
+				return;
+			}
+			String path = getRoutePath(request);
+			if (metricsPath != null && metricsPath.equals(path)) {
+				renderMetrics(request, response);
+				return;
+			}
+			if (readinessPath != null && readinessPath.equals(path)) {
+				renderReadiness(response);
+				return;
+			}
+			Route route = routeMap.get(path);
+			if (route == null) {
+				addUnknownPath(requestURI);
+				forwardToDefault(request, response);
+				return;
+			}
+			if (route.getUploadSizeMax() > 0 && request.getContentLength() > route.getUploadSizeMax() && ServletFileUpload.isMultipartContent(request)) {
+				logger.warn("업로드 크기 제한을 초과하여 요청을 거부합니다. (" + path + " : " + request.getContentLength() + " bytes)");
+				response.sendError(413);
+				return;
+			}
 			Controller controller = null;
-			Method action = null;
 			try {
-				String routePath = getRoutePath(request);
-				String[] controllerAction = getControllerAction(routePath);
-				String controllerName = controllerAction[0];
-				String actionName = controllerAction[1];
-				Class<?> controllerClass = Class.forName(controllerName);
-				controller = (Controller) controllerClass.newInstance();
-				action = controllerClass.getMethod(actionName);
-				if (!isActionMethod(action)) {
-					throw new Exception("호출할 수 없는 메소드입니다.");
-				}
+				controller = route.newController();
 			} catch (Throwable e) {
-				RequestDispatcher dispatcher = (RequestDispatcher) getServletContext().getAttribute("default-servlet-dispatcher");
-				if (dispatcher != null) {
-					dispatcher.forward(request, response);
-				} else {
-					response.sendError(404);
-					response.setContentType("text/plain;charset=utf-8");
-				}
+				logger.error("컨트롤러 객체를 생성할 수 없습니다. (" + route + ")", e);
+				forwardToDefault(request, response);
 				return;
 			}
-			long currTime = 0;
-			if (logger.isDebugEnabled()) {
-				currTime = System.nanoTime();
-				logger.debug("★★★ " + getIpAddr(request) + " 로 부터 \"" + request.getMethod() + " " + request.getRequestURI() + "\" 요청이 시작되었습니다");
-				logger.debug("ContentLength : " + request.getContentLength() + " bytes");
+			final Bulkhead bulkhead = route.getBulkhead();
+			if (bulkhead != null && !bulkhead.acquire()) {
+				logger.warn("동시실행 제한을 초과하여 요청을 거부합니다. (" + bulkhead + " : " + path + ")");
+				response.setHeader("Retry-After", String.valueOf(bulkhead.getRetryAfter()));
+				response.sendError(503);
+				return;
 			}
-			controller.execute(this, request, response, action);
-			if (logger.isDebugEnabled()) {
-				logger.debug("☆☆☆ " + getIpAddr(request) + " 로 부터 \"" + request.getMethod() + " " + request.getRequestURI() + "\" 요청이 종료되었습니다 | duration : " + (System.nanoTime() - currTime) + " ns\n");
+			boolean submitted = false;
+			try {
+				if (route.isAsync() && asyncSupport != null && asyncSupport.isAsyncSupported(request)) {
+					final Controller asyncController = controller;
+					final Route asyncRoute = route;
+					submitted = asyncSupport.execute(request, response, route.getAsyncTimeout(), new AsyncSupport.Task() {
+						@Override
+						public void run(HttpServletRequest asyncRequest, HttpServletResponse asyncResponse) throws Throwable {
+							try {
+								executeController(asyncController, asyncRoute, asyncRequest, asyncResponse);
+							} finally {
+								if (bulkhead != null) {
+									bulkhead.release();
+								}
+							}
+						}
+					});
+					return;
+				}
+				executeController(controller, route, request, response);
+			} finally {
+				if (bulkhead != null && !submitted) {
+					bulkhead.release();
+				}
 			}
 		} catch (Throwable e) {
 			logger.error("", e);
@@ -158,21 +252,154 @@ public class DispatcherServlet extends HttpServlet {
 		}
 	}
 
-	private String getRoutePath(HttpServletRequest request) {
-		String path = request.getServletPath() + StringUtil.nullToBlankString(request.getPathInfo());
-		String normalizePath = path.replaceAll("/+", "/");
-		return normalizePath;
+	private void executeController(Controller controller, Route route, HttpServletRequest request, HttpServletResponse response) throws Throwable {
+		long currTime = 0;
+		if (logger.isDebugEnabled()) {
+			currTime = System.nanoTime();
+			logger.debug("★★★ " + getIpAddr(request) + " 로 부터 \"" + request.getMethod() + " " + request.getRequestURI() + "\" 요청이 시작되었습니다");
+			logger.debug("ContentLength : " + request.getContentLength() + " bytes");
+		}
+		RequestMetric metric = route.getMetric();
+		long startTime = metric.start();
+		try {
+			controller.execute(this, request, response, route.getAction(), route.getResponseCache());
+		} catch (Throwable e) {
+			metric.error(e);
+			throw e;
+		} finally {
+			metric.stop(startTime);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("☆☆☆ " + getIpAddr(request) + " 로 부터 \"" + request.getMethod() + " " + request.getRequestURI() + "\" 요청이 종료되었습니다 | duration : " + (System.nanoTime() - currTime) + " ns\n");
+		}
 	}
 
-	private String[] getControllerAction(String routePath) {
-		try {
-			ResourceBundle routesBundle = (ResourceBundle) getServletContext().getAttribute("routes-mapping");
-			String value = ((String) routesBundle.getObject(routePath)).trim();
+	/*
+	 * 라우트가 없는 요청을 default servlet으로 포워드하고, default servlet이 없으면 404 응답을 보낸다.
+	 */
+	private void forwardToDefault(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		if (defaultDispatcher != null) {
+			defaultDispatcher.forward(request, response);
+		} else {
+			response.sendError(404);
+			response.setContentType("text/plain;charset=utf-8");
+		}
+	}
+
+	/*
+	 * 라우트가 없는 요청 URI를 기억해 둔다. 최대 건수에 도달하면 비우고 다시 채운다.
+	 */
+	private void addUnknownPath(String requestURI) {
+		if (unknownPathCacheSize <= 0 || requestURI == null || requestURI.length() > UNKNOWN_PATH_MAX_LENGTH) {
+			return;
+		}
+		if (unknownPathMap.size() >= unknownPathCacheSize) {
+			unknownPathMap.clear();
+		}
+		unknownPathMap.put(requestURI, Boolean.TRUE);
+	}
+
+	/*
+	 * 워밍업이 끝났으면 200, 진행중이면 503 응답
+	 */
+	private void renderReadiness(HttpServletResponse response) throws IOException {
+		response.setHeader("Cache-Control", "no-cache");
+		response.setContentType("text/plain;charset=utf-8");
+		if (warmup == null || warmup.isDone()) {
+			response.getWriter().print("READY");
+		} else {
+			response.setStatus(503);
+			response.getWriter().print("WARMING UP");
+		}
+	}
+
+	/*
+	 * format=json 파라미터가 있으면 JSON 형식으로, 그렇지 않으면 Prometheus 텍스트 형식으로 지표를 출력
+	 */
+	private void renderMetrics(HttpServletRequest request, HttpServletResponse response) {
+		response.setHeader("Cache-Control", "no-cache");
+		if ("json".equalsIgnoreCase(request.getParameter("format"))) {
+			Metrics.renderJson(response);
+		} else {
+			Metrics.renderPrometheus(response);
+		}
+	}
+
+	/*
+	 * routes 번들의 모든 항목을 해석하여 변경할 수 없는 라우트 테이블을 생성
+	 */
+	private Map<String, Route> buildRouteMap(ResourceBundle routesBundle, List<Bulkhead> bulkheads) {
+		Map<String, Route> map = new HashMap<String, Route>();
+		ClassLoader classLoader = getClass().getClassLoader();
+		for (Enumeration<String> keys = routesBundle.getKeys(); keys.hasMoreElements();) {
+			String key = keys.nextElement();
+			if (!key.startsWith("/")) {
+				continue;
+			}
+			String path = normalizePath(key.trim());
+			String value = routesBundle.getString(key).trim();
 			int pos = value.lastIndexOf(".");
-			return new String[] { value.substring(0, pos), value.substring(pos + 1) };
-		} catch (MissingResourceException e) {
-			return null;
+			if (pos == -1) {
+				logger.error("라우트 설정이 올바르지 않습니다. (" + key + "=" + value + ")");
+				continue;
+			}
+			try {
+				Class<?> controllerClass = Class.forName(value.substring(0, pos), false, classLoader);
+				if (!Controller.class.isAssignableFrom(controllerClass)) {
+					throw new Exception(controllerClass.getName() + " 클래스는 Controller를 상속받지 않았습니다.");
+				}
+				Method action = controllerClass.getMethod(value.substring(pos + 1));
+				if (!isActionMethod(action)) {
+					throw new Exception("호출할 수 없는 메소드입니다.");
+				}
+				map.put(path, new Route(path, controllerClass.asSubclass(Controller.class), action, findBulkhead(bulkheads, path)));
+			} catch (Throwable e) {
+				logger.error("라우트를 등록할 수 없습니다. (" + key + "=" + value + ")", e);
+			}
+		}
+		logger.info("라우트 " + map.size() + "건을 등록하였습니다.");
+		return Collections.unmodifiableMap(map);
+	}
+
+	/*
+	 * 요청 경로에 적용되는 첫번째 동시실행 제한기
+	 */
+	private Bulkhead findBulkhead(List<Bulkhead> bulkheads, String path) {
+		for (Bulkhead bulkhead : bulkheads) {
+			if (bulkhead.matches(path)) {
+				logger.info("동시실행 제한기를 적용합니다. (" + bulkhead + " : " + path + ")");
+				return bulkhead;
+			}
+		}
+		return null;
+	}
+
+	private String getRoutePath(HttpServletRequest request) {
+		String pathInfo = request.getPathInfo();
+		if (pathInfo == null) {
+			return normalizePath(request.getServletPath());
+		}
+		return normalizePath(request.getServletPath() + pathInfo);
+	}
+
+	/*
+	 * 연속된 슬래시(/)를 하나로 합친다. 합칠 슬래시가 없으면 원래 문자열을 그대로 리턴한다.
+	 */
+	private static String normalizePath(String path) {
+		if (path.indexOf("//") == -1) {
+			return path;
+		}
+		StringBuilder buf = new StringBuilder(path.length());
+		char prev = 0;
+		for (int i = 0, length = path.length(); i < length; i++) {
+			char c = path.charAt(i);
+			if (c == '/' && prev == '/') {
+				continue;
+			}
+			buf.append(c);
+			prev = c;
 		}
+		return buf.toString();
 	}
 
 	private boolean isActionMethod(Method method) {
@@ -0,0 +1,223 @@
+package framework.action;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import framework.metrics.Metrics;
+import framework.metrics.RequestMetric;
+
+/**
+ * 컨트롤러 클래스별로 @Before, @After, @Catch, @Finally 필터 메소드의 실행계획을 캐시하는 클래스
+ * 필터 메소드의 검색과 우선순위 정렬은 클래스당 한번, only/unless 판단은 액션당 한번만 수행한다.
+ */
+final class InterceptorPlan {
+	private static final ConcurrentMap<Class<?>, InterceptorPlan> PLANS = new ConcurrentHashMap<Class<?>, InterceptorPlan>();
+	private static final Class<?>[] DEFAULT_CATCH_EXCEPTIONS = new Class<?>[] { Exception.class };
+	private final ConcurrentMap<Method, Action> actions = new ConcurrentHashMap<Method, Action>();
+	private final String className;
+	private final Method[] beforeMethods;
+	private final Method[] afterMethods;
+	private final Method[] finallyMethods;
+	private final Method[] catchMethods;
+	private final Class<?>[][] catchExceptions;
+
+	private InterceptorPlan(Class<?> controllerClass) {
+		this.className = controllerClass.getName();
+		this.beforeMethods = getAnnotationMethods(controllerClass, Before.class);
+		this.afterMethods = getAnnotationMethods(controllerClass, After.class);
+		this.finallyMethods = getAnnotationMethods(controllerClass, Finally.class);
+		this.catchMethods = getAnnotationMethods(controllerClass, Catch.class);
+		this.catchExceptions = new Class<?>[catchMethods.length][];
+		for (int i = 0; i < catchMethods.length; i++) {
+			Class<?>[] exceptionClasses = catchMethods[i].getAnnotation(Catch.class).value();
+			catchExceptions[i] = (exceptionClasses.length == 0) ? DEFAULT_CATCH_EXCEPTIONS : exceptionClasses;
+		}
+	}
+
+	/**
+	 * 컨트롤러 클래스의 실행계획을 리턴한다. 처음 요청된 클래스이면 실행계획을 만들어 캐시한다.
+	 * @param controllerClass 컨트롤러 클래스
+	 * @return 실행계획
+	 */
+	static InterceptorPlan forClass(Class<?> controllerClass) {
+		InterceptorPlan plan = PLANS.get(controllerClass);
+		if (plan == null) {
+			plan = new InterceptorPlan(controllerClass);
+			InterceptorPlan old = PLANS.putIfAbsent(controllerClass, plan);
+			if (old != null) {
+				plan = old;
+			}
+		}
+		return plan;
+	}
+
+	/**
+	 * 액션 메소드에 적용할 필터 목록을 리턴한다. 처음 요청된 액션이면 only/unless 조건을 판단하여 캐시한다.
+	 * @param method 액션 메소드
+	 * @return 액션의 필터 목록
+	 */
+	Action getAction(Method method) {
+		Action action = actions.get(method);
+		if (action == null) {
+			action = new Action(method);
+			Action old = actions.putIfAbsent(method, action);
+			if (old != null) {
+				action = old;
+			}
+		}
+		return action;
+	}
+
+	/**
+	 * 하나의 액션에 적용되는 필터 메소드 목록
+	 */
+	final class Action {
+		private final String actionName;
+		private final Method[] beforeMethods;
+		private final Method[] afterMethods;
+		private final Method[] finallyMethods;
+		private final RequestMetric metric;
+		private final Upload upload;
+		private final boolean releaseOnCommit;
+		private final boolean readOnly;
+
+		private Action(Method method) {
+			this.actionName = className + "." + method.getName();
+			this.upload = method.getAnnotation(Upload.class);
+			this.releaseOnCommit = method.isAnnotationPresent(ReleaseOnCommit.class);
+			this.readOnly = method.isAnnotationPresent(ReadOnly.class);
+			this.metric = Metrics.getActionMetric(actionName);
+			this.beforeMethods = filter(InterceptorPlan.this.beforeMethods, Before.class);
+			this.afterMethods = filter(InterceptorPlan.this.afterMethods, After.class);
+			this.finallyMethods = filter(InterceptorPlan.this.finallyMethods, Finally.class);
+		}
+
+		String getActionName() {
+			return actionName;
+		}
+
+		RequestMetric getMetric() {
+			return metric;
+		}
+
+		Upload getUpload() {
+			return upload;
+		}
+
+		boolean isReleaseOnCommit() {
+			return releaseOnCommit;
+		}
+
+		boolean isReadOnly() {
+			return readOnly;
+		}
+
+		Method[] getBeforeMethods() {
+			return beforeMethods;
+		}
+
+		Method[] getAfterMethods() {
+			return afterMethods;
+		}
+
+		Method[] getFinallyMethods() {
+			return finallyMethods;
+		}
+
+		Method[] getCatchMethods() {
+			return catchMethods;
+		}
+
+		Class<?>[] getCatchExceptions(int idx) {
+			return catchExceptions[idx];
+		}
+
+		private Method[] filter(Method[] methods, Class<? extends Annotation> annotation) {
+			List<Method> list = new ArrayList<Method>(methods.length);
+			for (Method method : methods) {
+				String[] only;
+				String[] unless;
+				if (annotation == Before.class) {
+					only = method.getAnnotation(Before.class).only();
+					unless = method.getAnnotation(Before.class).unless();
+				} else if (annotation == After.class) {
+					only = method.getAnnotation(After.class).only();
+					unless = method.getAnnotation(After.class).unless();
+				} else {
+					only = method.getAnnotation(Finally.class).only();
+					unless = method.getAnnotation(Finally.class).unless();
+				}
+				if (isApplicable(only, unless)) {
+					list.add(method);
+				}
+			}
+			return list.toArray(new Method[list.size()]);
+		}
+
+		private boolean isApplicable(String[] only, String[] unless) {
+			boolean skip = false;
+			for (String o : only) {
+				if (qualify(o).equals(actionName)) {
+					skip = false;
+					break;
+				} else {
+					skip = true;
+				}
+			}
+			for (String u : unless) {
+				if (qualify(u).equals(actionName)) {
+					skip = true;
+					break;
+				}
+			}
+			return !skip;
+		}
+
+		private String qualify(String name) {
+			if (!name.contains(".")) {
+				return className + "." + name;
+			}
+			return name;
+		}
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	/*
+	 * 어노테이션이 적용된 메소드를 우선순위 순서로 정렬하여 리턴
+	 */
+	private static Method[] getAnnotationMethods(Class<?> controllerClass, final Class<? extends Annotation> annotation) {
+		List<Method> methods = new ArrayList<Method>();
+		for (Method method : controllerClass.getMethods()) {
+			if (method.isAnnotationPresent(annotation)) {
+				method.setAccessible(true);
+				methods.add(method);
+			}
+		}
+		Collections.sort(methods, new Comparator<Method>() {
+			@Override
+			public int compare(Method m1, Method m2) {
+				return getPriority(m1, annotation) - getPriority(m2, annotation);
+			}
+		});
+		return methods.toArray(new Method[methods.size()]);
+	}
+
+	private static int getPriority(Method method, Class<? extends Annotation> annotation) {
+		if (annotation == Before.class) {
+			return method.getAnnotation(Before.class).priority();
+		} else if (annotation == After.class) {
+			return method.getAnnotation(After.class).priority();
+		} else if (annotation == Catch.class) {
+			return method.getAnnotation(Catch.class).priority();
+		} else {
+			return method.getAnnotation(Finally.class).priority();
+		}
+	}
+}
\ No newline at end of file
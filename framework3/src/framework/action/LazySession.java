@@ -0,0 +1,148 @@
+package framework.action;
+
+import java.util.Collections;
+import java.util.Enumeration;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+/**
+ * 실제로 사용될 때까지 세션 생성을 미루는 HttpSession 구현 클래스
+ * 세션이 없는 상태에서의 조회는 세션을 만들지 않고 빈 값을 리턴하며, 값을 저장하거나 세션정보가 필요할 때 세션을 생성한다.
+ */
+@SuppressWarnings("deprecation")
+final class LazySession implements HttpSession {
+	private final HttpServletRequest request;
+	private HttpSession session = null;
+
+	LazySession(HttpServletRequest request) {
+		this.request = request;
+	}
+
+	@Override
+	public long getCreationTime() {
+		return getSession(true).getCreationTime();
+	}
+
+	@Override
+	public String getId() {
+		return getSession(true).getId();
+	}
+
+	@Override
+	public long getLastAccessedTime() {
+		return getSession(true).getLastAccessedTime();
+	}
+
+	@Override
+	public ServletContext getServletContext() {
+		return getSession(true).getServletContext();
+	}
+
+	@Override
+	public void setMaxInactiveInterval(int interval) {
+		getSession(true).setMaxInactiveInterval(interval);
+	}
+
+	@Override
+	public int getMaxInactiveInterval() {
+		return getSession(true).getMaxInactiveInterval();
+	}
+
+	@Override
+	public javax.servlet.http.HttpSessionContext getSessionContext() {
+		return getSession(true).getSessionContext();
+	}
+
+	@Override
+	public Object getAttribute(String name) {
+		HttpSession session = getSession(false);
+		if (session == null) {
+			return null;
+		}
+		return session.getAttribute(name);
+	}
+
+	@Override
+	public Object getValue(String name) {
+		return getAttribute(name);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Enumeration<String> getAttributeNames() {
+		HttpSession session = getSession(false);
+		if (session == null) {
+			return Collections.enumeration(Collections.<String>emptyList());
+		}
+		return session.getAttributeNames();
+	}
+
+	@Override
+	public String[] getValueNames() {
+		HttpSession session = getSession(false);
+		if (session == null) {
+			return new String[] {};
+		}
+		return session.getValueNames();
+	}
+
+	@Override
+	public void setAttribute(String name, Object value) {
+		if (value == null) {
+			removeAttribute(name);
+			return;
+		}
+		getSession(true).setAttribute(name, value);
+	}
+
+	@Override
+	public void putValue(String name, Object value) {
+		setAttribute(name, value);
+	}
+
+	@Override
+	public void removeAttribute(String name) {
+		HttpSession session = getSession(false);
+		if (session != null) {
+			session.removeAttribute(name);
+		}
+	}
+
+	@Override
+	public void removeValue(String name) {
+		removeAttribute(name);
+	}
+
+	@Override
+	public void invalidate() {
+		HttpSession session = getSession(false);
+		if (session != null) {
+			session.invalidate();
+			this.session = null;
+		}
+	}
+
+	@Override
+	public boolean isNew() {
+		return getSession(true).isNew();
+	}
+
+	/**
+	 * 세션이 이미 생성되어 있는지 여부를 리턴한다.
+	 * @return 세션 존재여부
+	 */
+	boolean exists() {
+		return getSession(false) != null;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	private HttpSession getSession(boolean create) {
+		if (session == null) {
+			session = request.getSession(create);
+		}
+		return session;
+	}
+}
\ No newline at end of file
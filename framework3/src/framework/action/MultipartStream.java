@@ -0,0 +1,100 @@
+package framework.action;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.util.Streams;
+
+/**
+ * Multipart 요청 본문을 디스크에 저장하지 않고 파일 단위로 순서대로 읽는 클래스
+ * 파일 사이에 있는 일반 필드는 읽는 시점에 요청파라미터(Params)에 추가되므로, 파일보다 뒤에 있는 필드는 해당 파일을 지나간 후에 조회할 수 있다.
+ * 현재 파일의 InputStream 은 next() 를 호출하기 전까지만 읽을 수 있다.
+ * <br>
+ * ex) 업로드 파일을 저장소로 바로 복사하는 경우
+ * <br>
+ * MultipartStream multipart = params.getMultipartStream();
+ * <br>
+ * while (multipart.next()) { storage.save(multipart.getFileName(), multipart.getInputStream()); }
+ */
+public final class MultipartStream {
+	private final FileItemIterator iterator;
+	private final Params params;
+	private final String encoding;
+	private FileItemStream current = null;
+
+	MultipartStream(FileItemIterator iterator, Params params, String encoding) {
+		this.iterator = iterator;
+		this.params = params;
+		this.encoding = encoding;
+	}
+
+	/**
+	 * 다음 파일로 이동한다. 그 사이의 일반 필드는 요청파라미터에 추가한다.
+	 * @return 다음 파일이 있으면 true, 끝이면 false
+	 * @throws IOException 요청 본문을 읽을 수 없거나 크기 제한을 넘은 경우
+	 */
+	public boolean next() throws IOException {
+		try {
+			while (iterator.hasNext()) {
+				FileItemStream item = iterator.next();
+				if (item.isFormField()) {
+					InputStream is = item.openStream();
+					String value = (encoding == null) ? Streams.asString(is) : Streams.asString(is, encoding);
+					params.addValue(item.getFieldName(), value);
+				} else {
+					current = item;
+					return true;
+				}
+			}
+		} catch (FileUploadException e) {
+			throw new RuntimeException(e);
+		}
+		current = null;
+		return false;
+	}
+
+	/**
+	 * 현재 파일의 필드 이름을 리턴한다.
+	 * @return 필드 이름
+	 */
+	public String getFieldName() {
+		return getCurrent().getFieldName();
+	}
+
+	/**
+	 * 현재 파일의 클라이언트 파일명을 리턴한다.
+	 * @return 파일명
+	 */
+	public String getFileName() {
+		return getCurrent().getName();
+	}
+
+	/**
+	 * 현재 파일의 Content-Type 을 리턴한다.
+	 * @return Content-Type
+	 */
+	public String getContentType() {
+		return getCurrent().getContentType();
+	}
+
+	/**
+	 * 현재 파일의 내용을 읽는 InputStream 을 리턴한다.
+	 * @return InputStream 객체
+	 * @throws IOException 스트림을 열 수 없는 경우
+	 */
+	public InputStream getInputStream() throws IOException {
+		return getCurrent().openStream();
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	private FileItemStream getCurrent() {
+		if (current == null) {
+			throw new IllegalStateException("next() 를 먼저 호출하여야 합니다.");
+		}
+		return current;
+	}
+}
\ No newline at end of file
@@ -4,15 +4,21 @@ import java.io.File;
 import java.math.BigDecimal;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 
 import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemIterator;
 import org.apache.commons.fileupload.disk.DiskFileItemFactory;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
 
@@ -25,8 +31,18 @@ import framework.util.StringUtil;
  */
 public class Params extends HashMap<String, String[]> {
 	private static final long serialVersionUID = 7143941735208780214L;
+	private static final int SOURCE_PARAMETER = 1;
+	private static final int SOURCE_COOKIE = 2;
+	private static final int SOURCE_HEADER = 3;
 	private final List<FileItem> fileItems = new ArrayList<FileItem>();
 	private String name = null;
+	// 처음 접근할 때 값을 채울 요청객체와 값의 종류
+	private transient HttpServletRequest source = null;
+	private int sourceType = 0;
+	// 액션메소드의 업로드 설정과 스트리밍 업로드를 읽을 요청객체
+	private transient Upload upload = null;
+	private transient HttpServletRequest multipartSource = null;
+	private transient MultipartStream multipartStream = null;
 
 	/***
 	 * Params 생성자
@@ -37,6 +53,17 @@ public class Params extends HashMap<String, String[]> {
 		this.name = name;
 	}
 
+	private Params(String name, HttpServletRequest source, int sourceType) {
+		this(name);
+		this.source = source;
+		this.sourceType = sourceType;
+	}
+
+	private Params(String name, HttpServletRequest source, int sourceType, Upload upload) {
+		this(name, source, sourceType);
+		this.upload = upload;
+	}
+
 	/**
 	 * 요청객체의 파라미터 이름과 값을 저장한 해시테이블을 생성한다.
 	 * <br>
@@ -46,79 +73,140 @@ public class Params extends HashMap<String, String[]> {
 	 */
 	public static Params getParams(HttpServletRequest request) {
 		Params params = new Params("Params");
+		loadParams(params, request, null);
+		return params;
+	}
+
+	/**
+	 * 요청객체의 쿠키 이름과 값을 저장한 해시테이블을 생성한다.
+	 * <br>
+	 * ex) cookie Params 객체를 얻는 경우 : Params params = Params.getParamsFromCookie(request)
+	 * @param request HTTP 클라이언트 요청객체
+	 * @return 쿠키Params 객체
+	 */
+	public static Params getParamsFromCookie(HttpServletRequest request) {
+		Params cookieParams = new Params("Cookie");
+		loadCookies(cookieParams, request);
+		return cookieParams;
+	}
+
+	/**
+	 * 요청객체의 헤더 이름과 값을 저장한 해시테이블을 생성한다.
+	 * <br>
+	 * ex) header Params 객체를 얻는 경우 : Params params = Params.getParamsFromHeader(request)
+	 * @param request HTTP 클라이언트 요청객체
+	 * @return 헤더Params 객체
+	 */
+	public static Params getParamsFromHeader(HttpServletRequest request) {
+		Params headerParams = new Params("Header");
+		loadHeaders(headerParams, request);
+		return headerParams;
+	}
+
+	/**
+	 * 처음 접근할 때 요청객체의 파라미터를 읽어들이는 Params 객체를 생성한다.
+	 * 액션에서 사용하지 않으면 파라미터 파싱과 Multipart 업로드 처리를 하지 않는다.
+	 * @param request HTTP 클라이언트 요청객체
+	 * @param upload 액션메소드의 업로드 설정, 없으면 null
+	 * @return 요청Params 객체
+	 */
+	static Params getLazyParams(HttpServletRequest request, Upload upload) {
+		return new Params("Params", request, SOURCE_PARAMETER, upload);
+	}
+
+	/**
+	 * 처음 접근할 때 요청객체의 쿠키를 읽어들이는 Params 객체를 생성한다.
+	 * @param request HTTP 클라이언트 요청객체
+	 * @return 쿠키Params 객체
+	 */
+	static Params getLazyParamsFromCookie(HttpServletRequest request) {
+		return new Params("Cookie", request, SOURCE_COOKIE);
+	}
+
+	/**
+	 * 처음 접근할 때 요청객체의 헤더를 읽어들이는 Params 객체를 생성한다.
+	 * @param request HTTP 클라이언트 요청객체
+	 * @return 헤더Params 객체
+	 */
+	static Params getLazyParamsFromHeader(HttpServletRequest request) {
+		return new Params("Header", request, SOURCE_HEADER);
+	}
+
+	private static void loadParams(Params params, HttpServletRequest request, Upload upload) {
 		for (Object obj : request.getParameterMap().keySet()) {
 			String key = (String) obj;
 			params.put(key, request.getParameterValues(key));
 		}
 		if (ServletFileUpload.isMultipartContent(request)) {
+			if (upload != null && upload.streaming()) {
+				params.multipartSource = request;
+				return;
+			}
 			try {
 				DiskFileItemFactory factory = new DiskFileItemFactory();
 				factory.setSizeThreshold(Config.getInstance().getInt("fileupload.sizeThreshold"));
 				factory.setRepository(new File(Config.getInstance().getString("fileupload.repository")));
-				ServletFileUpload upload = new ServletFileUpload(factory);
-				upload.setSizeMax(Config.getInstance().getInt("fileupload.sizeMax"));
+				ServletFileUpload fileUpload = newServletFileUpload(factory, upload);
 				@SuppressWarnings("unchecked")
-				List<FileItem> items = upload.parseRequest(request);
+				List<FileItem> items = fileUpload.parseRequest(request);
+				Map<String, List<String>> fieldMap = new LinkedHashMap<String, List<String>>();
 				for (FileItem item : items) {
 					if (item.isFormField()) {
-						String fieldName = item.getFieldName();
-						String fieldValue = item.getString(request.getCharacterEncoding());
-						String[] oldValue = params.getArray(fieldName);
-						if (oldValue == null) {
-							params.put(fieldName, new String[] { fieldValue });
-						} else {
-							int size = oldValue.length;
-							String[] newValue = new String[size + 1];
-							for (int i = 0; i < size; i++) {
-								newValue[i] = oldValue[i];
-							}
-							newValue[size] = fieldValue;
-							params.put(fieldName, newValue);
+						List<String> values = fieldMap.get(item.getFieldName());
+						if (values == null) {
+							values = new ArrayList<String>();
+							fieldMap.put(item.getFieldName(), values);
 						}
+						values.add(item.getString(request.getCharacterEncoding()));
 					} else {
 						params.addFileItem(item);
 					}
 				}
+				for (Map.Entry<String, List<String>> entry : fieldMap.entrySet()) {
+					String[] oldValue = params.getArray(entry.getKey());
+					List<String> values = entry.getValue();
+					if (oldValue != null) {
+						values.addAll(0, Arrays.asList(oldValue));
+					}
+					params.put(entry.getKey(), values.toArray(new String[values.size()]));
+				}
 			} catch (Throwable e) {
 				throw new RuntimeException(e);
 			}
 		}
-		return params;
 	}
 
-	/**
-	 * 요청객체의 쿠키 이름과 값을 저장한 해시테이블을 생성한다.
-	 * <br>
-	 * ex) cookie Params 객체를 얻는 경우 : Params params = Params.getParamsFromCookie(request)
-	 * @param request HTTP 클라이언트 요청객체
-	 * @return 쿠키Params 객체
+	/*
+	 * 액션메소드의 업로드 설정 또는 application.properties 설정으로 크기 제한을 적용한 ServletFileUpload 객체 생성
 	 */
-	public static Params getParamsFromCookie(HttpServletRequest request) {
-		Params cookieParams = new Params("Cookie");
+	private static ServletFileUpload newServletFileUpload(DiskFileItemFactory factory, Upload upload) {
+		ServletFileUpload fileUpload = (factory == null) ? new ServletFileUpload() : new ServletFileUpload(factory);
+		if (upload != null && upload.sizeMax() > 0) {
+			fileUpload.setSizeMax(upload.sizeMax());
+		} else {
+			fileUpload.setSizeMax(Config.getInstance().getInt("fileupload.sizeMax"));
+		}
+		if (upload != null && upload.fileSizeMax() > 0) {
+			fileUpload.setFileSizeMax(upload.fileSizeMax());
+		}
+		return fileUpload;
+	}
+
+	private static void loadCookies(Params cookieParams, HttpServletRequest request) {
 		Cookie[] cookies = request.getCookies();
 		if (cookies != null) {
 			for (Cookie cookie : cookies) {
 				cookieParams.put(cookie.getName(), new String[] { StringUtil.nullToBlankString(cookie.getValue()) });
 			}
 		}
-		return cookieParams;
 	}
 
-	/**
-	 * 요청객체의 헤더 이름과 값을 저장한 해시테이블을 생성한다.
-	 * <br>
-	 * ex) header Params 객체를 얻는 경우 : Params params = Params.getParamsFromHeader(request)
-	 * @param request HTTP 클라이언트 요청객체
-	 * @return 헤더Params 객체
-	 */
-	public static Params getParamsFromHeader(HttpServletRequest request) {
-		Params headerParams = new Params("Header");
+	private static void loadHeaders(Params headerParams, HttpServletRequest request) {
 		Enumeration<?> headerNames = request.getHeaderNames();
 		while (headerNames.hasMoreElements()) {
 			String headerName = (String) headerNames.nextElement();
 			headerParams.put(headerName.toLowerCase(), new String[] { StringUtil.nullToBlankString(request.getHeader(headerName)) });
 		}
-		return headerParams;
 	}
 
 	/**
@@ -137,6 +225,7 @@ public class Params extends HashMap<String, String[]> {
 	 * @return key에 매핑되어 있는 값 또는 기본 값
 	 */
 	public String[] getArray(String key, String[] defaultValue) {
+		load();
 		String[] value = super.get(key);
 		if (value == null) {
 			return defaultValue;
@@ -360,6 +449,7 @@ public class Params extends HashMap<String, String[]> {
 	 * @return key에 매핑되어 있는 값 또는 기본 값
 	 */
 	public String getRawString(String key, String defaultValue) {
+		load();
 		String[] value = super.get(key);
 		if (value == null || value.length == 0 || StringUtil.isEmpty(value[0])) {
 			return defaultValue;
@@ -437,11 +527,32 @@ public class Params extends HashMap<String, String[]> {
 	 * @return 파일아이템 리스트 객체
 	 */
 	public List<FileItem> getFileItems() {
+		load();
 		List<FileItem> list = new ArrayList<FileItem>();
 		list.addAll(fileItems);
 		return list;
 	}
 
+	/**
+	 * 스트리밍 업로드(@Upload(streaming = true)) 액션에서 Multipart 요청 본문을 파일 단위로 읽는 객체를 리턴한다.
+	 * 파일은 디스크에 저장되지 않으며, 일반 필드는 읽는 시점에 요청파라미터에 추가된다.
+	 * @return MultipartStream 객체, 스트리밍 업로드 요청이 아니면 null
+	 */
+	public MultipartStream getMultipartStream() {
+		load();
+		if (multipartStream == null && multipartSource != null) {
+			HttpServletRequest request = multipartSource;
+			multipartSource = null;
+			try {
+				FileItemIterator iterator = newServletFileUpload(null, upload).getItemIterator(request);
+				multipartStream = new MultipartStream(iterator, this, request.getCharacterEncoding());
+			} catch (Throwable e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return multipartStream;
+	}
+
 	/**
 	 * 키(key)에 매핑되는 스트링을 셋팅한다.
 	 * @param key 값을 찾기 위한 키 문자열
@@ -452,6 +563,90 @@ public class Params extends HashMap<String, String[]> {
 		return put(key, new String[] { value });
 	}
 
+	@Override
+	public String[] get(Object key) {
+		load();
+		return super.get(key);
+	}
+
+	@Override
+	public String[] put(String key, String[] value) {
+		load();
+		return super.put(key, value);
+	}
+
+	@Override
+	public void putAll(Map<? extends String, ? extends String[]> m) {
+		load();
+		super.putAll(m);
+	}
+
+	@Override
+	public String[] remove(Object key) {
+		load();
+		return super.remove(key);
+	}
+
+	@Override
+	public void clear() {
+		load();
+		super.clear();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		load();
+		return super.containsKey(key);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		load();
+		return super.containsValue(value);
+	}
+
+	@Override
+	public int size() {
+		load();
+		return super.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		load();
+		return super.isEmpty();
+	}
+
+	@Override
+	public Set<String> keySet() {
+		load();
+		return super.keySet();
+	}
+
+	@Override
+	public Collection<String[]> values() {
+		load();
+		return super.values();
+	}
+
+	@Override
+	public Set<Map.Entry<String, String[]>> entrySet() {
+		load();
+		return super.entrySet();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		load();
+		return super.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		load();
+		return super.hashCode();
+	}
+
 	/**
 	 * Param 객체가 가지고 있는 값들을 화면 출력을 위해 문자열로 변환한다.
 	 * @return 화면에 출력하기 위해 변환된 문자열
@@ -623,6 +818,24 @@ public class Params extends HashMap<String, String[]> {
 	}
 
 	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+	/**
+	 * 지연 생성된 객체이면 요청객체에서 값을 읽어들인다.
+	 */
+	private void load() {
+		if (source == null) {
+			return;
+		}
+		HttpServletRequest request = source;
+		source = null;
+		if (sourceType == SOURCE_PARAMETER) {
+			loadParams(this, request, upload);
+		} else if (sourceType == SOURCE_COOKIE) {
+			loadCookies(this, request);
+		} else if (sourceType == SOURCE_HEADER) {
+			loadHeaders(this, request);
+		}
+	}
+
 	/**
 	 * 자바스크립트상에 특수하게 인식되는 문자들을 JSON등에 사용하기 위해 변환하여준다.
 	 * @param str 변환할 문자열
@@ -642,4 +855,20 @@ public class Params extends HashMap<String, String[]> {
 	private boolean addFileItem(FileItem item) {
 		return fileItems.add(item);
 	}
+
+	/**
+	 * 키에 값을 추가한다. 이미 값이 있으면 배열의 끝에 덧붙인다.
+	 * @param key 키
+	 * @param value 추가할 값
+	 */
+	void addValue(String key, String value) {
+		String[] oldValue = getArray(key);
+		if (oldValue == null) {
+			put(key, new String[] { value });
+		} else {
+			String[] newValue = Arrays.copyOf(oldValue, oldValue.length + 1);
+			newValue[oldValue.length] = value;
+			put(key, newValue);
+		}
+	}
 }
\ No newline at end of file
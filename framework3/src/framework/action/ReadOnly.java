@@ -0,0 +1,18 @@
+package framework.action;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 조회만 하는 액션메소드에 적용
+ * 리플리카가 설정된 서비스이면 트랜잭션(autoCommit false) 중에도 조회를 리플리카에서 실행한다.
+ * 변경 문장이나 잠금을 거는 조회를 실행하면 그 이후의 조회는 주 데이터베이스에서 실행한다.
+ * <br>
+ * ex) 목록 조회 화면 : @ReadOnly
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ReadOnly {
+}
@@ -0,0 +1,17 @@
+package framework.action;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 커밋 후 DB 컨넥션을 바로 풀에 반환할 액션메소드에 적용
+ * 커밋한 다음 JSP 로 포워딩하거나 응답을 출력하는 동안 컨넥션을 붙잡지 않는다. 커밋 후 다시 문장을 실행하면 새 컨넥션을 얻는다.
+ * <br>
+ * ex) 저장 후 목록 화면을 그리는 경우 : @ReleaseOnCommit
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ReleaseOnCommit {
+}
\ No newline at end of file
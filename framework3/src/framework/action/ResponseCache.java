@@ -0,0 +1,440 @@
+package framework.action;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import javax.servlet.http.HttpSession;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import framework.cache.Cache;
+import framework.util.CryptUtil;
+
+/**
+ * @CacheFor 가 적용된 액션의 응답을 캐시하는 클래스
+ * 캐시가 없을 때 같은 키의 요청이 동시에 들어오면 하나의 요청만 액션을 실행하고 나머지는 그 결과를 기다린다.
+ * 본문과 함께 Content-Type, 문자셋, 응답헤더를 저장하여 캐시된 응답을 출력할 때 다시 설정한다.
+ */
+final class ResponseCache {
+	private static final Log logger = LogFactory.getLog(ResponseCache.class);
+	private static final ConcurrentMap<String, CountDownLatch> LOCKS = new ConcurrentHashMap<String, CountDownLatch>();
+	private static final String KEY_PREFIX = "framework.response.";
+	private static final long LOCK_WAIT_MILLIS = 5000;
+	private static final int MAX_BODY_SIZE = 1024 * 1024;
+	private final String path;
+	private final int ttl;
+	private final String[] params;
+	private final String[] headers;
+	private final boolean perUser;
+
+	/**
+	 * 응답 캐시 생성자
+	 * @param path 요청 경로
+	 * @param cacheFor 액션 메소드의 캐시 설정
+	 */
+	ResponseCache(String path, CacheFor cacheFor) {
+		this.path = path;
+		this.ttl = cacheFor.ttl();
+		this.params = cacheFor.params();
+		this.headers = cacheFor.headers();
+		this.perUser = cacheFor.perUser();
+	}
+
+	/**
+	 * 캐시된 응답이 있으면 출력하고, 없으면 액션을 실행하여 응답을 캐시한다.
+	 * 컨트롤러의 @Before 필터가 끝난 뒤에 호출되므로 로그인, 권한 검사 등은 캐시 여부와 관계없이 항상 실행된다.
+	 * @param request HTTP 클라이언트 요청객체
+	 * @param response HTTP 클라이언트 응답객체
+	 * @param action 캐시가 없을 때 실행할 액션
+	 * @throws Throwable 액션 실행중 발생한 예외
+	 */
+	void execute(HttpServletRequest request, HttpServletResponse response, Action action) throws Throwable {
+		String key = getKey(request);
+		if (key == null) {
+			action.run(response);
+			return;
+		}
+		if (writeCachedResponse(key, response)) {
+			return;
+		}
+		CountDownLatch latch = new CountDownLatch(1);
+		CountDownLatch running = LOCKS.putIfAbsent(key, latch);
+		if (running != null) {
+			running.await(LOCK_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+			if (!writeCachedResponse(key, response)) {
+				action.run(response);
+			}
+			return;
+		}
+		try {
+			CaptureResponseWrapper wrapper = new CaptureResponseWrapper(response);
+			action.run(wrapper);
+			wrapper.finish();
+			if (wrapper.isCacheable()) {
+				try {
+					Cache.set(key, new CachedResponse(wrapper.getContentType(), wrapper.getCharacterEncoding(), wrapper.getHeaders(), wrapper.toByteArray()), ttl);
+				} catch (Throwable e) {
+					logger.error("응답을 캐시에 저장할 수 없습니다. (" + path + ")", e);
+				}
+			}
+		} finally {
+			LOCKS.remove(key, latch);
+			latch.countDown();
+		}
+	}
+
+	/**
+	 * 캐시가 없을 때 실행되는 액션, 넘겨받은 응답객체로 출력해야 캐시된다.
+	 */
+	interface Action {
+		void run(HttpServletResponse response) throws Throwable;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	/*
+	 * 요청 경로, 요청파라미터, 헤더, 사용자로 캐시키를 생성, 캐시할 수 없는 요청이면 null
+	 */
+	@SuppressWarnings("unchecked")
+	private String getKey(HttpServletRequest request) {
+		if (!"GET".equalsIgnoreCase(request.getMethod())) {
+			return null;
+		}
+		StringBuilder buf = new StringBuilder(path);
+		if (perUser) {
+			String user = request.getRemoteUser();
+			if (user == null) {
+				HttpSession session = request.getSession(false);
+				if (session == null) {
+					return null;
+				}
+				user = session.getId();
+			}
+			buf.append("\u0000u=").append(user);
+		}
+		if (params.length == 0) {
+			Map<String, String[]> paramMap = new TreeMap<String, String[]>(request.getParameterMap());
+			for (Map.Entry<String, String[]> entry : paramMap.entrySet()) {
+				appendValues(buf, "p", entry.getKey(), entry.getValue());
+			}
+		} else {
+			for (String name : params) {
+				appendValues(buf, "p", name, request.getParameterValues(name));
+			}
+		}
+		for (String name : headers) {
+			appendValues(buf, "h", name, new String[] { request.getHeader(name) });
+		}
+		return KEY_PREFIX + CryptUtil.hashSHA256HexString(buf.toString());
+	}
+
+	private void appendValues(StringBuilder buf, String type, String name, String[] values) {
+		buf.append("\u0000").append(type).append(":").append(name).append("=");
+		if (values != null) {
+			for (String value : values) {
+				buf.append(value).append("\u0001");
+			}
+		}
+	}
+
+	/*
+	 * 캐시된 응답이 있으면 출력, 캐시를 사용할 수 없는 경우에는 캐시가 없는 것으로 처리
+	 */
+	private boolean writeCachedResponse(String key, HttpServletResponse response) throws IOException {
+		Object value = null;
+		try {
+			value = Cache.get(key);
+		} catch (Throwable e) {
+			logger.error("캐시에서 응답을 읽을 수 없습니다. (" + path + ")", e);
+		}
+		if (!(value instanceof CachedResponse)) {
+			return false;
+		}
+		CachedResponse cached = (CachedResponse) value;
+		if (cached.characterEncoding != null) {
+			response.setCharacterEncoding(cached.characterEncoding);
+		}
+		if (cached.contentType != null) {
+			response.setContentType(cached.contentType);
+		}
+		for (Map.Entry<String, List<String>> entry : cached.headers.entrySet()) {
+			boolean first = true;
+			for (String headerValue : entry.getValue()) {
+				if (first) {
+					response.setHeader(entry.getKey(), headerValue);
+					first = false;
+				} else {
+					response.addHeader(entry.getKey(), headerValue);
+				}
+			}
+		}
+		response.setContentLength(cached.body.length);
+		ServletOutputStream os = response.getOutputStream();
+		os.write(cached.body);
+		os.flush();
+		return true;
+	}
+
+	/**
+	 * 캐시에 저장되는 응답
+	 */
+	private static final class CachedResponse implements Serializable {
+		private static final long serialVersionUID = -2315894472718206934L;
+		private final String contentType;
+		private final String characterEncoding;
+		private final LinkedHashMap<String, List<String>> headers;
+		private final byte[] body;
+
+		private CachedResponse(String contentType, String characterEncoding, LinkedHashMap<String, List<String>> headers, byte[] body) {
+			this.contentType = contentType;
+			this.characterEncoding = characterEncoding;
+			this.headers = headers;
+			this.body = body;
+		}
+	}
+
+	/**
+	 * 클라이언트로 출력되는 내용을 복사해 두는 응답 래퍼
+	 */
+	private static final class CaptureResponseWrapper extends HttpServletResponseWrapper {
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		private final LinkedHashMap<String, List<String>> headers = new LinkedHashMap<String, List<String>>();
+		private ServletOutputStream outputStream = null;
+		private PrintWriter writer = null;
+		private boolean cacheable = true;
+
+		private CaptureResponseWrapper(HttpServletResponse response) {
+			super(response);
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			if (writer != null) {
+				throw new IllegalStateException("getWriter() has already been called");
+			}
+			if (outputStream == null) {
+				outputStream = new CaptureOutputStream(super.getOutputStream());
+			}
+			return outputStream;
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			if (outputStream != null) {
+				throw new IllegalStateException("getOutputStream() has already been called");
+			}
+			if (writer == null) {
+				writer = new PrintWriter(new OutputStreamWriter(new CaptureOutputStream(super.getOutputStream()), getCharacterEncoding()));
+			}
+			return writer;
+		}
+
+		@Override
+		public void flushBuffer() throws IOException {
+			if (writer != null) {
+				writer.flush();
+			}
+			super.flushBuffer();
+		}
+
+		@Override
+		public void setStatus(int sc) {
+			if (sc != SC_OK) {
+				cacheable = false;
+			}
+			super.setStatus(sc);
+		}
+
+		@Override
+		@SuppressWarnings("deprecation")
+		public void setStatus(int sc, String sm) {
+			if (sc != SC_OK) {
+				cacheable = false;
+			}
+			super.setStatus(sc, sm);
+		}
+
+		@Override
+		public void sendError(int sc) throws IOException {
+			cacheable = false;
+			super.sendError(sc);
+		}
+
+		@Override
+		public void sendError(int sc, String msg) throws IOException {
+			cacheable = false;
+			super.sendError(sc, msg);
+		}
+
+		@Override
+		public void sendRedirect(String location) throws IOException {
+			cacheable = false;
+			super.sendRedirect(location);
+		}
+
+		@Override
+		public void addCookie(Cookie cookie) {
+			cacheable = false;
+			super.addCookie(cookie);
+		}
+
+		@Override
+		public void setHeader(String name, String value) {
+			captureHeader(name, value, false);
+			super.setHeader(name, value);
+		}
+
+		@Override
+		public void addHeader(String name, String value) {
+			captureHeader(name, value, true);
+			super.addHeader(name, value);
+		}
+
+		@Override
+		public void setIntHeader(String name, int value) {
+			captureHeader(name, String.valueOf(value), false);
+			super.setIntHeader(name, value);
+		}
+
+		@Override
+		public void addIntHeader(String name, int value) {
+			captureHeader(name, String.valueOf(value), true);
+			super.addIntHeader(name, value);
+		}
+
+		@Override
+		public void setDateHeader(String name, long date) {
+			captureHeader(name, formatDate(date), false);
+			super.setDateHeader(name, date);
+		}
+
+		@Override
+		public void addDateHeader(String name, long date) {
+			captureHeader(name, formatDate(date), true);
+			super.addDateHeader(name, date);
+		}
+
+		private void finish() {
+			if (writer != null) {
+				writer.flush();
+			}
+		}
+
+		private boolean isCacheable() {
+			return cacheable && (writer != null || outputStream != null);
+		}
+
+		private byte[] toByteArray() {
+			return buffer.toByteArray();
+		}
+
+		private LinkedHashMap<String, List<String>> getHeaders() {
+			return headers;
+		}
+
+		/*
+		 * 캐시된 응답에서 다시 설정할 헤더를 기록, 쿠키를 설정하는 응답은 캐시하지 않고 Content-Length 는 출력할 때 다시 계산한다.
+		 */
+		private void captureHeader(String name, String value, boolean add) {
+			if (name == null || "Content-Length".equalsIgnoreCase(name)) {
+				return;
+			}
+			if ("Set-Cookie".equalsIgnoreCase(name) || "Set-Cookie2".equalsIgnoreCase(name)) {
+				cacheable = false;
+				return;
+			}
+			List<String> values = null;
+			for (Iterator<Map.Entry<String, List<String>>> it = headers.entrySet().iterator(); it.hasNext();) {
+				Map.Entry<String, List<String>> entry = it.next();
+				if (entry.getKey().equalsIgnoreCase(name)) {
+					if (add) {
+						values = entry.getValue();
+					} else {
+						it.remove();
+					}
+					break;
+				}
+			}
+			if (values == null) {
+				values = new ArrayList<String>(1);
+				headers.put(name, values);
+			}
+			values.add(value);
+		}
+
+		private String formatDate(long date) {
+			SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+			format.setTimeZone(TimeZone.getTimeZone("GMT"));
+			return format.format(new Date(date));
+		}
+
+		/**
+		 * 원래의 출력스트림에 쓰면서 최대 크기까지 내용을 복사하는 출력스트림
+		 */
+		private final class CaptureOutputStream extends ServletOutputStream {
+			private final ServletOutputStream os;
+
+			private CaptureOutputStream(ServletOutputStream os) {
+				this.os = os;
+			}
+
+			@Override
+			public void write(int b) throws IOException {
+				os.write(b);
+				capture(1);
+				if (cacheable) {
+					buffer.write(b);
+				}
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				os.write(b, off, len);
+				capture(len);
+				if (cacheable) {
+					buffer.write(b, off, len);
+				}
+			}
+
+			@Override
+			public void flush() throws IOException {
+				os.flush();
+			}
+
+			@Override
+			public void close() throws IOException {
+				os.close();
+			}
+
+			private void capture(int len) {
+				if (cacheable && buffer.size() + len > MAX_BODY_SIZE) {
+					cacheable = false;
+					buffer.reset();
+				}
+			}
+		}
+	}
+}
\ No newline at end of file
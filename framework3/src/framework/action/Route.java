@@ -0,0 +1,105 @@
+package framework.action;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+import framework.config.Config;
+import framework.metrics.Metrics;
+import framework.metrics.RequestMetric;
+
+/**
+ * routes.properties 의 한 항목을 서블릿 초기화 시점에 미리 해석해 놓은 라우트 클래스
+ * 요청마다 Class.forName, getMethod 등의 리플렉션을 반복하지 않도록 컨트롤러 생성자와 액션 메소드를 보관한다.
+ */
+final class Route {
+	private final String path;
+	private final Class<? extends Controller> controllerClass;
+	private final Constructor<? extends Controller> constructor;
+	private final Method action;
+	private final boolean async;
+	private final long asyncTimeout;
+	private final RequestMetric metric;
+	private final ResponseCache responseCache;
+	private final Bulkhead bulkhead;
+	private final long uploadSizeMax;
+
+	/**
+	 * 라우트 생성자
+	 * @param path 정규화된 요청 경로
+	 * @param controllerClass 컨트롤러 클래스
+	 * @param action 액션 메소드
+	 * @param bulkhead 동시실행 제한기, 제한하지 않으면 null
+	 * @throws NoSuchMethodException 기본 생성자가 없는 경우
+	 */
+	Route(String path, Class<? extends Controller> controllerClass, Method action, Bulkhead bulkhead) throws NoSuchMethodException {
+		this.path = path;
+		this.controllerClass = controllerClass;
+		this.constructor = controllerClass.getDeclaredConstructor();
+		this.constructor.setAccessible(true);
+		this.action = action;
+		this.action.setAccessible(true);
+		Async asyncAnnotation = action.getAnnotation(Async.class);
+		this.async = (asyncAnnotation != null);
+		this.asyncTimeout = (asyncAnnotation != null) ? asyncAnnotation.timeout() : 0;
+		this.metric = Metrics.getRouteMetric(path);
+		CacheFor cacheFor = action.getAnnotation(CacheFor.class);
+		this.responseCache = (cacheFor != null) ? new ResponseCache(path, cacheFor) : null;
+		this.bulkhead = bulkhead;
+		Upload upload = action.getAnnotation(Upload.class);
+		if (upload != null && upload.sizeMax() > 0) {
+			this.uploadSizeMax = upload.sizeMax();
+		} else {
+			this.uploadSizeMax = Config.getInstance().getLong("fileupload.sizeMax", Long.valueOf(-1)).longValue();
+		}
+	}
+
+	/**
+	 * 요청을 처리할 새로운 컨트롤러 객체를 생성한다.
+	 * @return 컨트롤러 객체
+	 * @throws Exception 객체 생성에 실패한 경우
+	 */
+	Controller newController() throws Exception {
+		return constructor.newInstance();
+	}
+
+	String getPath() {
+		return path;
+	}
+
+	Class<? extends Controller> getControllerClass() {
+		return controllerClass;
+	}
+
+	Method getAction() {
+		return action;
+	}
+
+	boolean isAsync() {
+		return async;
+	}
+
+	long getAsyncTimeout() {
+		return asyncTimeout;
+	}
+
+	RequestMetric getMetric() {
+		return metric;
+	}
+
+	ResponseCache getResponseCache() {
+		return responseCache;
+	}
+
+	Bulkhead getBulkhead() {
+		return bulkhead;
+	}
+
+	long getUploadSizeMax() {
+		return uploadSizeMax;
+	}
+
+	@Override
+	public String toString() {
+		return path + "=" + controllerClass.getName() + "." + action.getName();
+	}
+}
\ No newline at end of file
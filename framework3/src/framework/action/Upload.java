@@ -0,0 +1,35 @@
+package framework.action;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Multipart 파일업로드를 받는 액션메소드에 적용
+ * 요청 크기 제한을 라우트별로 지정하며, Content-Length 가 제한을 넘는 요청은 액션을 실행하지 않고 413 응답을 보낸다.
+ * streaming 이 true 이면 파일을 디스크에 저장하지 않고 params.getMultipartStream() 으로 파일의 InputStream 을 순서대로 읽는다.
+ * <br>
+ * ex) 100MB 까지 스트리밍으로 업로드 : @Upload(sizeMax = 104857600, streaming = true)
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Upload {
+	/**
+	 * 요청 전체의 최대 크기(바이트), 0 이하이면 application.properties의 fileupload.sizeMax 값을 사용한다.
+	 * @return 최대 크기
+	 */
+	long sizeMax() default -1;
+
+	/**
+	 * 파일 하나의 최대 크기(바이트), 0 이하이면 제한하지 않는다.
+	 * @return 최대 크기
+	 */
+	long fileSizeMax() default -1;
+
+	/**
+	 * 스트리밍 업로드 여부
+	 * @return 스트리밍 업로드 여부
+	 */
+	boolean streaming() default false;
+}
\ No newline at end of file
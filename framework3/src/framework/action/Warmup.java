@@ -0,0 +1,190 @@
+package framework.action;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.servlet.ServletConfig;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import framework.db.DB;
+import framework.db.MybatisDB;
+import framework.util.HttpUtil;
+import framework.util.StringUtil;
+
+/**
+ * 서버 기동시 컨트롤러, MyBatis, 데이터소스를 미리 초기화하고 워밍업 요청을 재생하는 클래스
+ * 워밍업이 끝나기 전까지 준비상태 확인 경로(readiness-path)는 503을 응답한다.
+ * <br>
+ * web.xml 초기화 파라미터
+ * <br>
+ * warmup : true 이면 워밍업을 수행한다.
+ * <br>
+ * warmup-mybatis : true 이면 MyBatis SqlSessionFactory 를 미리 생성한다.
+ * <br>
+ * warmup-db : 미리 연결할 DB 서비스명 목록(쉼표로 구분)
+ * <br>
+ * warmup-url : 워밍업 요청을 보낼 서버 주소(ex. http://127.0.0.1:8080/context)
+ * <br>
+ * warmup-requests : 워밍업 요청 경로 목록(쉼표로 구분, ex. /main.do,/board/list.do?page=1)
+ * <br>
+ * warmup-iterations : 워밍업 요청 경로별 반복 횟수(기본값 1)
+ */
+final class Warmup {
+	private static final Log logger = LogFactory.getLog(Warmup.class);
+	private static final int REQUEST_TIMEOUT = 10000;
+	private static final int CONNECT_RETRY_COUNT = 60;
+	private static final long CONNECT_RETRY_INTERVAL = 1000;
+	private final ServletConfig config;
+	private volatile boolean done = false;
+
+	/**
+	 * 워밍업 생성자
+	 * @param config ServletConfig 객체
+	 */
+	Warmup(ServletConfig config) {
+		this.config = config;
+	}
+
+	/**
+	 * 워밍업을 시작한다. 컨트롤러, MyBatis, 데이터소스는 호출한 스레드에서 초기화하고, 워밍업 요청은 컨테이너가 요청을 받을 수 있도록 별도의 스레드에서 재생한다.
+	 * @param routes 라우트 목록
+	 */
+	void start(Collection<Route> routes) {
+		long startTime = System.currentTimeMillis();
+		warmupControllers(routes);
+		if ("true".equalsIgnoreCase(config.getInitParameter("warmup-mybatis"))) {
+			warmupMybatis();
+		}
+		for (String serviceName : split(config.getInitParameter("warmup-db"))) {
+			warmupDB(serviceName);
+		}
+		logger.info("워밍업 초기화 완료 | duration : " + (System.currentTimeMillis() - startTime) + " ms");
+		final String baseUrl = StringUtil.nullToBlankString(config.getInitParameter("warmup-url")).trim();
+		final List<String> requests = split(config.getInitParameter("warmup-requests"));
+		if ("".equals(baseUrl) || requests.isEmpty()) {
+			done = true;
+			return;
+		}
+		final int iterations = Math.max(1, Integer.parseInt(StringUtil.null2Str(config.getInitParameter("warmup-iterations"), "1").trim()));
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					replay(baseUrl, requests, iterations);
+				} finally {
+					done = true;
+				}
+			}
+		}, "framework-warmup");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * 워밍업이 끝났는지 여부를 리턴한다.
+	 * @return 완료여부
+	 */
+	boolean isDone() {
+		return done;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	/*
+	 * 컨트롤러 클래스를 초기화하고, 객체를 한번씩 생성하며, 필터 실행계획을 미리 만든다.
+	 */
+	private void warmupControllers(Collection<Route> routes) {
+		int count = 0;
+		for (Route route : routes) {
+			try {
+				Class.forName(route.getControllerClass().getName(), true, route.getControllerClass().getClassLoader());
+				route.newController();
+				InterceptorPlan.forClass(route.getControllerClass()).getAction(route.getAction());
+				count++;
+			} catch (Throwable e) {
+				logger.error("컨트롤러를 초기화할 수 없습니다. (" + route + ")", e);
+			}
+		}
+		logger.info("워밍업 : 라우트 " + count + "건의 컨트롤러를 초기화하였습니다.");
+	}
+
+	private void warmupMybatis() {
+		try {
+			MybatisDB.init();
+			logger.info("워밍업 : MyBatis SqlSessionFactory 를 생성하였습니다.");
+		} catch (Throwable e) {
+			logger.error("MyBatis SqlSessionFactory 를 생성할 수 없습니다.", e);
+		}
+	}
+
+	private void warmupDB(String serviceName) {
+		DB db = null;
+		try {
+			db = new DB(serviceName, this);
+			db.getConnection();
+			logger.info("워밍업 : DB(" + serviceName + ")에 연결하였습니다.");
+		} catch (Throwable e) {
+			logger.error("DB(" + serviceName + ")에 연결할 수 없습니다.", e);
+		} finally {
+			if (db != null) {
+				db.release();
+			}
+		}
+	}
+
+	/*
+	 * 컨테이너가 요청을 받을 수 있을 때까지 기다린 후 워밍업 요청을 재생한다.
+	 */
+	private void replay(String baseUrl, List<String> requests, int iterations) {
+		long startTime = System.currentTimeMillis();
+		if (!waitForServer(baseUrl + requests.get(0))) {
+			logger.error("워밍업 요청을 보낼 수 없습니다. (" + baseUrl + ")");
+			return;
+		}
+		int count = 0;
+		for (int i = 0; i < iterations; i++) {
+			for (String request : requests) {
+				try {
+					HttpUtil.Result result = HttpUtil.get(baseUrl + request, REQUEST_TIMEOUT);
+					if (logger.isDebugEnabled()) {
+						logger.debug("워밍업 요청 : " + request + " (" + result.getStatusCode() + ")");
+					}
+					count++;
+				} catch (Throwable e) {
+					logger.error("워밍업 요청에 실패하였습니다. (" + request + ")", e);
+				}
+			}
+		}
+		logger.info("워밍업 : 요청 " + count + "건을 재생하였습니다. | duration : " + (System.currentTimeMillis() - startTime) + " ms");
+	}
+
+	private boolean waitForServer(String url) {
+		for (int i = 0; i < CONNECT_RETRY_COUNT; i++) {
+			try {
+				HttpUtil.get(url, REQUEST_TIMEOUT);
+				return true;
+			} catch (Throwable e) {
+				try {
+					Thread.sleep(CONNECT_RETRY_INTERVAL);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+		}
+		return false;
+	}
+
+	private List<String> split(String value) {
+		List<String> list = new ArrayList<String>();
+		for (String item : StringUtil.nullToBlankString(value).split(",")) {
+			if (!"".equals(item.trim())) {
+				list.add(item.trim());
+			}
+		}
+		return list;
+	}
+}
\ No newline at end of file
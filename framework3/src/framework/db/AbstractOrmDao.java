@@ -1,5 +1,7 @@
 package framework.db;
 
+import java.util.List;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -78,27 +80,31 @@ public abstract class AbstractOrmDao {
 		return result;
 	}
 
+	/*
+	 * 유형의 VO 들을 하나의 BatchPreparedStatement 로 실행한다. 배치 크기(db.서비스명.batchSize)마다 나누어 실행되므로
+	 * 행 수가 많아도 데이터베이스 왕복은 배치 크기 단위로만 일어난다.
+	 */
 	private int executeArray(ValueObjectArray vo, String type, int[] result, int cnt) {
-		ValueObject[] values = vo.get(type);
-		if (values == null || values.length == 0) {
+		List<ValueObject> values = vo.getBucket(type);
+		if (values.isEmpty()) {
 			return 0;
 		}
+		String[] keys = vo.getUserKeys();
+		String[] fields = vo.getUserFields();
 		BatchPreparedStatement pstmt = null;
 		try {
-			pstmt = this.db.createBatchPrepareStatement(getSaveSql(type, vo.getUserKeys(), vo.getUserFields()));
-			for (int i = 0; i < values.length; i++) {
-				pstmt.addBatch(getSaveValue(values[i], type, vo.getUserKeys(), vo.getUserFields()));
+			pstmt = this.db.createBatchPrepareStatement(getSaveSql(type, keys, fields));
+			for (ValueObject value : values) {
+				pstmt.addBatch(getSaveValue(value, type, keys, fields));
 			}
 			int[] upCnts = pstmt.executeBatch();
-			for (int i = 0; i < upCnts.length; i++) {
-				result[cnt++] = upCnts[i];
-			}
+			System.arraycopy(upCnts, 0, result, cnt, Math.min(upCnts.length, values.size()));
 		} finally {
 			if (pstmt != null) {
 				pstmt.close();
 			}
 		}
-		return values.length;
+		return values.size();
 	}
 
 	private String getSaveSql(String type, String[] keys, String[] fields) {
@@ -2,22 +2,49 @@ package framework.db;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.math.BigDecimal;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.StringTokenizer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import framework.config.Config;
 
 /**
  * PreparedStatement의 Batch 처리를 이용하기 위한 클래스
+ * addBatch 로 추가된 행이 배치 크기(application.properties 의 db.서비스명.batchSize, 기본값 1000)에 이르면 자동으로 실행하여 메모리에 쌓아두지 않는다.
+ * executeBatch 는 남은 행을 실행하고 그동안 실행된 모든 행의 결과를 리턴한다.
+ * 다중행 INSERT 변환(db.서비스명.batchRewrite=true 또는 setRewriteInsert)을 사용하면 INSERT ... VALUES (...) 문장을 배치 크기만큼의 VALUES 를 가진 하나의 문장으로 바꾸어 실행한다. (MySQL, PostgreSQL)
  */
 public final class BatchPreparedStatement extends AbstractStatement {
-	private final List<List<Object>> paramList = new ArrayList<List<Object>>();
+	private static final Pattern VALUES_PATTERN = Pattern.compile("^\\s*insert\\s.*?\\bvalues\\s*(\\()", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+	private static final int MAX_REWRITE_PARAMS = 65535;
+	private static final int BIND_STRING = 1;
+	private static final int BIND_INT = 2;
+	private static final int BIND_LONG = 3;
+	private static final int BIND_DOUBLE = 4;
+	private static final int BIND_DECIMAL = 5;
+	private static final int BIND_DATE = 6;
+	private static final int BIND_BYTES = 7;
+	private static final int BIND_OBJECT = 8;
+	private final List<Object[]> paramList = new ArrayList<Object[]>();
 	private String sql = null;
 	private DB db = null;
 	private PreparedStatement pstmt = null;
 	private Object caller = null;
+	private int batchSize;
+	private int commitInterval = 0;
+	private boolean rewriteInsert;
+	private int chunkCount = 0;
+	private int[] upCnts = new int[0];
+	private int upCntSize = 0;
+	private Class<?>[] paramClasses = new Class<?>[0];
+	private int[] binders = new int[0];
 
 	public static BatchPreparedStatement create(String sql, DB db, Object caller) {
 		return new BatchPreparedStatement(sql, db, caller);
@@ -27,17 +54,48 @@ public final class BatchPreparedStatement extends AbstractStatement {
 		this.sql = sql;
 		this.db = db;
 		this.caller = caller;
+		Config config = Config.getInstance();
+		this.batchSize = config.getInt("db." + db.getServiceName() + ".batchSize", Integer.valueOf(1000)).intValue();
+		this.rewriteInsert = config.getBoolean("db." + db.getServiceName() + ".batchRewrite", Boolean.FALSE).booleanValue();
 	}
 
+	/**
+	 * 배치에 행을 추가한다. 추가된 행이 배치 크기에 이르면 실행한다.
+	 * @param where 바인드 변수 값
+	 */
 	public void addBatch(Object[] where) {
 		if (where == null) {
 			return;
 		}
-		List<Object> param = new ArrayList<Object>();
-		for (Object obj : where) {
-			param.add(obj);
+		paramList.add(Arrays.copyOf(where, where.length));
+		if (batchSize > 0 && paramList.size() >= batchSize) {
+			flush();
 		}
-		paramList.add(param);
+	}
+
+	/**
+	 * 자동으로 실행할 배치 크기를 설정한다.
+	 * @param batchSize 배치 크기, 0 이하이면 executeBatch 를 호출할 때 한번에 실행한다.
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * 배치를 몇번 실행할 때마다 커밋할지 설정한다. 자동커밋 상태이면 무시된다.
+	 * @param commitInterval 커밋 간격(배치 실행 횟수), 0 이하이면 커밋하지 않는다.
+	 */
+	public void setCommitInterval(int commitInterval) {
+		this.commitInterval = commitInterval;
+	}
+
+	/**
+	 * 다중행 INSERT 변환 사용여부를 설정한다. INSERT ... VALUES (...) 형태가 아닌 문장은 변환하지 않는다.
+	 * 변환하여 실행한 행의 결과는 java.sql.Statement.SUCCESS_NO_INFO 이다.
+	 * @param rewriteInsert 사용여부
+	 */
+	public void setRewriteInsert(boolean rewriteInsert) {
+		this.rewriteInsert = rewriteInsert;
 	}
 
 	protected PreparedStatement getPrepareStatment() {
@@ -48,6 +106,7 @@ public final class BatchPreparedStatement extends AbstractStatement {
 		try {
 			if (pstmt == null) {
 				pstmt = db.getConnection().prepareStatement(getSQL(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				db.opened(this);
 				pstmt.setFetchSize(100);
 			}
 		} catch (SQLException e) {
@@ -63,8 +122,11 @@ public final class BatchPreparedStatement extends AbstractStatement {
 			if (pstmt != null) {
 				pstmt.close();
 				pstmt = null;
+				db.closed(this);
 			}
 			clearParamList();
+			upCntSize = 0;
+			chunkCount = 0;
 		} catch (SQLException e) {
 			logger.error("", e);
 			throw new RuntimeException(e);
@@ -75,53 +137,21 @@ public final class BatchPreparedStatement extends AbstractStatement {
 		paramList.clear();
 	}
 
+	/**
+	 * 남은 행을 실행하고, 마지막 executeBatch 호출 이후 실행된 모든 행의 결과를 리턴한다.
+	 * @return 행별 처리 건수
+	 */
 	public int[] executeBatch() {
 		if (getSQL() == null) {
 			logger.error("Query is Null");
 			return new int[] { 0 };
 		}
-		int[] upCnts = null;
-		try {
-			PreparedStatement pstmt = getPrepareStatment();
-			if (logger.isDebugEnabled()) {
-				StringBuilder log = new StringBuilder();
-				log.append("@Sql Start (BATCH P_STATEMENT) FetchSize : " + pstmt.getFetchSize() + " Caller : " + caller.getClass().getName() + "\n");
-				log.append("@Sql Command : \n" + getQueryString());
-				logger.debug(log.toString());
-			}
-			for (List<Object> params : paramList) {
-				for (int i = 1, length = params.size(); i <= length; i++) {
-					Object param = params.get(i - 1);
-					if (param == null || "".equals(param)) {
-						pstmt.setNull(i, java.sql.Types.VARCHAR);
-					} else if (param instanceof CharSequence) {
-						pstmt.setString(i, param.toString());
-					} else if (param instanceof byte[]) {
-						int size = ((byte[]) param).length;
-						if (size > 0) {
-							InputStream is = new ByteArrayInputStream((byte[]) param);
-							pstmt.setBinaryStream(i, is, size);
-						} else {
-							pstmt.setBinaryStream(i, null, 0);
-						}
-					} else if (param instanceof java.util.Date) {
-						java.util.Date d = (java.util.Date) param;
-						pstmt.setObject(i, new java.sql.Timestamp(d.getTime()));
-					} else {
-						pstmt.setObject(i, param);
-					}
-				}
-				pstmt.addBatch();
-			}
-			upCnts = pstmt.executeBatch();
-			if (logger.isDebugEnabled()) {
-				logger.debug("@Sql End (BATCH P_STATEMENT)");
-			}
-		} catch (SQLException e) {
-			logger.error("", e);
-			throw new RuntimeException(e.getMessage() + "\nSQL : " + getQueryString(), e);
+		if (paramList.size() > 0 || upCntSize == 0) {
+			flush();
 		}
-		return upCnts;
+		int[] result = Arrays.copyOf(upCnts, upCntSize);
+		upCntSize = 0;
+		return result;
 	}
 
 	public void setSQL(String newSql) {
@@ -140,15 +170,15 @@ public final class BatchPreparedStatement extends AbstractStatement {
 
 	public String getQueryString() {
 		StringBuilder buf = new StringBuilder();
-		for (List<Object> param : paramList) {
+		for (Object[] param : paramList) {
 			Object value = null;
 			int qMarkCount = 0;
 			StringTokenizer token = new StringTokenizer(getSQL(), "?");
 			while (token.hasMoreTokens()) {
 				String oneChunk = token.nextToken();
 				buf.append(oneChunk);
-				if (param.size() > qMarkCount) {
-					value = param.get(qMarkCount++);
+				if (param.length > qMarkCount) {
+					value = param[qMarkCount++];
 					if (value == null || "".equals(value)) {
 						value = "NULL";
 					} else if (value instanceof CharSequence) {
@@ -170,4 +200,191 @@ public final class BatchPreparedStatement extends AbstractStatement {
 		}
 		return buf.toString().trim();
 	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	/*
+	 * 쌓인 행을 실행하고 결과를 누적한다. 커밋 간격에 이르면 커밋한다.
+	 */
+	private void flush() {
+		long startTime = System.nanoTime();
+		try {
+			int[] counts = null;
+			Matcher matcher = rewriteInsert ? VALUES_PATTERN.matcher(getSQL()) : null;
+			if (matcher != null && paramList.size() > 1 && matcher.find()) {
+				counts = executeRewrite(matcher.start(1));
+			}
+			if (counts == null) {
+				PreparedStatement pstmt = getPrepareStatment();
+				if (logger.isDebugEnabled()) {
+					StringBuilder log = new StringBuilder();
+					log.append("@Sql Start (BATCH P_STATEMENT) FetchSize : " + pstmt.getFetchSize() + " Caller : " + caller.getClass().getName() + "\n");
+					log.append("@Sql Command : \n" + getQueryString());
+					logger.debug(log.toString());
+				}
+				for (Object[] params : paramList) {
+					for (int i = 0; i < params.length; i++) {
+						bind(pstmt, i + 1, i, params[i]);
+					}
+					pstmt.addBatch();
+				}
+				counts = pstmt.executeBatch();
+				if (logger.isDebugEnabled()) {
+					logger.debug("@Sql End (BATCH P_STATEMENT)");
+				}
+			}
+			List<Object> firstParams = paramList.isEmpty() ? null : Arrays.asList(paramList.get(0));
+			paramList.clear();
+			addUpdateCounts(counts);
+			db.written(getSQL());
+			SqlStats.record(db, caller, getSQL(), firstParams, startTime, 0, SqlStats.sum(counts));
+			chunkCount++;
+			if (commitInterval > 0 && chunkCount % commitInterval == 0 && !db.getConnection().getAutoCommit()) {
+				db.commitInternal();
+			}
+		} catch (SQLException e) {
+			SqlStats.error(getSQL());
+			logger.error("", e);
+			throw new RuntimeException(e.getMessage() + "\nSQL : " + getQueryString(), e);
+		}
+	}
+
+	/*
+	 * INSERT 문장의 VALUES 절을 행 수만큼 반복한 문장으로 실행한다. 변환할 수 없는 문장이면 null 을 리턴한다.
+	 */
+	private int[] executeRewrite(int valuesStart) throws SQLException {
+		String sql = getSQL();
+		int valuesEnd = -1;
+		int depth = 0;
+		int paramCount = 0;
+		for (int i = valuesStart; i < sql.length() && valuesEnd < 0; i++) {
+			char c = sql.charAt(i);
+			if (c == '(') {
+				depth++;
+			} else if (c == ')' && --depth == 0) {
+				valuesEnd = i + 1;
+			} else if (c == '?') {
+				paramCount++;
+			}
+		}
+		if (valuesEnd < 0 || paramCount == 0 || sql.indexOf('?', valuesEnd) >= 0) {
+			return null;
+		}
+		String values = sql.substring(valuesStart, valuesEnd);
+		int rowsPerStatement = Math.max(1, MAX_REWRITE_PARAMS / paramCount);
+		int[] counts = new int[paramList.size()];
+		Arrays.fill(counts, java.sql.Statement.SUCCESS_NO_INFO);
+		for (int from = 0; from < paramList.size(); from += rowsPerStatement) {
+			int to = Math.min(paramList.size(), from + rowsPerStatement);
+			StringBuilder buf = new StringBuilder(sql.length() + (values.length() + 1) * (to - from));
+			buf.append(sql, 0, valuesEnd);
+			for (int r = from + 1; r < to; r++) {
+				buf.append(',').append(values);
+			}
+			buf.append(sql, valuesEnd, sql.length());
+			if (logger.isDebugEnabled()) {
+				logger.debug("@Sql Start (BATCH P_STATEMENT REWRITE) Rows : " + (to - from) + " Caller : " + caller.getClass().getName() + "\n@Sql Command : \n" + sql);
+			}
+			PreparedStatement stmt = db.getConnection().prepareStatement(buf.toString());
+			try {
+				int index = 1;
+				for (int r = from; r < to; r++) {
+					Object[] params = paramList.get(r);
+					if (params.length != paramCount) {
+						throw new SQLException("바인드 변수의 수가 다릅니다. (" + params.length + " != " + paramCount + ")");
+					}
+					for (int i = 0; i < params.length; i++) {
+						bind(stmt, index++, i, params[i]);
+					}
+				}
+				stmt.executeUpdate();
+			} finally {
+				stmt.close();
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("@Sql End (BATCH P_STATEMENT REWRITE)");
+			}
+		}
+		return counts;
+	}
+
+	/*
+	 * 값을 바인드한다. 컬럼별로 직전 값과 같은 클래스이면 이전에 정한 방법으로 바로 바인드한다.
+	 */
+	private void bind(PreparedStatement stmt, int index, int column, Object param) throws SQLException {
+		if (param == null || "".equals(param)) {
+			stmt.setNull(index, java.sql.Types.VARCHAR);
+			return;
+		}
+		if (column >= binders.length) {
+			paramClasses = Arrays.copyOf(paramClasses, column + 1);
+			binders = Arrays.copyOf(binders, column + 1);
+		}
+		if (paramClasses[column] != param.getClass()) {
+			paramClasses[column] = param.getClass();
+			binders[column] = getBinder(param);
+		}
+		switch (binders[column]) {
+		case BIND_STRING:
+			stmt.setString(index, param.toString());
+			break;
+		case BIND_INT:
+			stmt.setInt(index, ((Integer) param).intValue());
+			break;
+		case BIND_LONG:
+			stmt.setLong(index, ((Long) param).longValue());
+			break;
+		case BIND_DOUBLE:
+			stmt.setDouble(index, ((Double) param).doubleValue());
+			break;
+		case BIND_DECIMAL:
+			stmt.setBigDecimal(index, (BigDecimal) param);
+			break;
+		case BIND_DATE:
+			stmt.setObject(index, new java.sql.Timestamp(((java.util.Date) param).getTime()));
+			break;
+		case BIND_BYTES:
+			int size = ((byte[]) param).length;
+			if (size > 0) {
+				InputStream is = new ByteArrayInputStream((byte[]) param);
+				stmt.setBinaryStream(index, is, size);
+			} else {
+				stmt.setBinaryStream(index, null, 0);
+			}
+			break;
+		default:
+			stmt.setObject(index, param);
+			break;
+		}
+	}
+
+	private int getBinder(Object param) {
+		if (param instanceof CharSequence) {
+			return BIND_STRING;
+		} else if (param instanceof Integer) {
+			return BIND_INT;
+		} else if (param instanceof Long) {
+			return BIND_LONG;
+		} else if (param instanceof Double) {
+			return BIND_DOUBLE;
+		} else if (param instanceof BigDecimal) {
+			return BIND_DECIMAL;
+		} else if (param instanceof java.util.Date) {
+			return BIND_DATE;
+		} else if (param instanceof byte[]) {
+			return BIND_BYTES;
+		}
+		return BIND_OBJECT;
+	}
+
+	private void addUpdateCounts(int[] counts) {
+		if (counts == null) {
+			return;
+		}
+		if (upCntSize + counts.length > upCnts.length) {
+			upCnts = Arrays.copyOf(upCnts, Math.max(upCntSize + counts.length, upCnts.length + (upCnts.length >> 1)));
+		}
+		System.arraycopy(counts, 0, upCnts, upCntSize, counts.length);
+		upCntSize += counts.length;
+	}
 }
\ No newline at end of file
@@ -32,6 +32,7 @@ public final class BatchStatement extends AbstractStatement {
 		try {
 			if (stmt == null) {
 				stmt = db.getConnection().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				db.opened(this);
 				stmt.setFetchSize(100);
 			}
 		} catch (SQLException e) {
@@ -46,6 +47,8 @@ public final class BatchStatement extends AbstractStatement {
 		if (stmt != null) {
 			try {
 				stmt.close();
+				stmt = null;
+				db.closed(this);
 				sqlList.clear();
 			} catch (SQLException e) {
 				logger.error("", e);
@@ -60,6 +63,7 @@ public final class BatchStatement extends AbstractStatement {
 			return new int[] { 0 };
 		}
 		int[] upCnts = null;
+		long startTime = System.nanoTime();
 		try {
 			Statement stmt = getStatement();
 			if (logger.isDebugEnabled()) {
@@ -72,10 +76,15 @@ public final class BatchStatement extends AbstractStatement {
 				stmt.addBatch(sqlList.get(i));
 			}
 			upCnts = stmt.executeBatch();
+			for (int i = 0, size = sqlList.size(); i < size; i++) {
+				db.written(sqlList.get(i));
+			}
+			SqlStats.record(db, caller, sqlList.get(0), null, startTime, 0, SqlStats.sum(upCnts));
 			if (logger.isDebugEnabled()) {
 				logger.debug("@Sql End (BATCH STATEMENT)");
 			}
 		} catch (SQLException e) {
+			SqlStats.error(sqlList.get(0));
 			if (logger.isDebugEnabled()) {
 				logger.error("", e);
 			}
@@ -0,0 +1,695 @@
+package framework.db;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import framework.metrics.LoadMetric;
+import framework.metrics.Metrics;
+import framework.util.CsvUtil;
+import framework.util.ExcelUtil;
+
+/**
+ * 파일의 행을 읽기, 변환, 쓰기의 세 단계로 나누어 병렬로 데이터베이스에 적재하는 클래스
+ * 읽기는 호출한 스레드에서, 변환(검증)은 여러 스레드에서, 쓰기는 각자 커넥션을 가진 여러 스레드에서 배치로 실행하며,
+ * 단계 사이는 크기가 제한된 대기열로 연결되어 뒤 단계가 느리면 앞 단계가 기다린다.
+ * 체크포인트 파일을 지정하면 앞에서부터 연속으로 처리가 끝난 행 번호를 기록하여, 중단된 후 다시 실행하면 그 다음 행부터 적재한다.
+ * 쓰기 스레드는 서로 다른 순서로 커밋하므로 체크포인트 이후의 행 일부는 이미 적재되어 있을 수 있으며, 다시 실행할 때 중복 오류로 격리되거나 MERGE 문장 등으로 처리해야 한다.
+ * 변환이나 쓰기에 실패한 행은 격리 파일(또는 로그)에 기록하고 나머지 행은 계속 적재한다.
+ * <br>
+ * ex) CSV 파일을 적재하는 경우
+ * <br>
+ * BulkLoader loader = new BulkLoader("default", "INSERT INTO T (A, B) VALUES (?, ?)");
+ * <br>
+ * loader.setCheckpointFile(new File("/data/t.ckpt"));
+ * <br>
+ * loader.setQuarantineFile(new File("/data/t.err"));
+ * <br>
+ * BulkLoader.Result result = loader.loadCsv(new File("/data/t.csv"), ",");
+ */
+public final class BulkLoader {
+	private static final Log logger = LogFactory.getLog(BulkLoader.class);
+	private static final Item END = new Item(0, null);
+	private static final long CHECKPOINT_INTERVAL = 1000;
+	private static final AtomicInteger threadSeq = new AtomicInteger();
+	private final String serviceName;
+	private final String sql;
+	private String name;
+	private int threads = 4;
+	private int writers = 2;
+	private int queueSize = 10000;
+	private int batchSize = 1000;
+	private Transformer transformer = null;
+	private File checkpointFile = null;
+	private File quarantineFile = null;
+
+	/**
+	 * 읽은 행을 검증하고 바인드 변수 값으로 변환하는 인터페이스, 여러 스레드에서 동시에 호출된다.
+	 */
+	public interface Transformer {
+		/**
+		 * 행을 바인드 변수 값으로 변환한다. 예외를 던지면 그 행은 격리된다.
+		 * @param rowNum 행 번호, 첫번째 행은 1
+		 * @param row 읽은 행
+		 * @return 바인드 변수 값, null 이면 적재하지 않는다.
+		 * @throws Exception 검증에 실패한 경우
+		 */
+		Object[] transform(long rowNum, RecordMap row) throws Exception;
+	}
+
+	/**
+	 * 적재 결과
+	 */
+	public static final class Result {
+		private final long resumed;
+		private final long read;
+		private final long written;
+		private final long skipped;
+		private final long quarantined;
+		private final long elapsed;
+
+		private Result(long resumed, long read, long written, long skipped, long quarantined, long elapsed) {
+			this.resumed = resumed;
+			this.read = read;
+			this.written = written;
+			this.skipped = skipped;
+			this.quarantined = quarantined;
+			this.elapsed = elapsed;
+		}
+
+		/**
+		 * 체크포인트에 의해 건너뛴 앞쪽 행 수를 리턴한다.
+		 * @return 행 수
+		 */
+		public long getResumed() {
+			return resumed;
+		}
+
+		/**
+		 * 이번에 읽은 행 수를 리턴한다.
+		 * @return 행 수
+		 */
+		public long getRead() {
+			return read;
+		}
+
+		/**
+		 * 데이터베이스에 쓴 행 수를 리턴한다.
+		 * @return 행 수
+		 */
+		public long getWritten() {
+			return written;
+		}
+
+		/**
+		 * 변환 결과가 null 이어서 적재하지 않은 행 수를 리턴한다.
+		 * @return 행 수
+		 */
+		public long getSkipped() {
+			return skipped;
+		}
+
+		/**
+		 * 오류로 격리된 행 수를 리턴한다.
+		 * @return 행 수
+		 */
+		public long getQuarantined() {
+			return quarantined;
+		}
+
+		/**
+		 * 걸린 시간을 리턴한다.
+		 * @return 걸린 시간(밀리초)
+		 */
+		public long getElapsed() {
+			return elapsed;
+		}
+
+		@Override
+		public String toString() {
+			return "resumed=" + resumed + ", read=" + read + ", written=" + written + ", skipped=" + skipped + ", quarantined=" + quarantined + ", elapsed=" + elapsed + "ms";
+		}
+	}
+
+	/**
+	 * 적재기 생성자
+	 * @param serviceName 적재할 데이터베이스의 서비스명
+	 * @param sql 한 행을 적재하는 INSERT(또는 UPDATE, MERGE) 문장
+	 */
+	public BulkLoader(String serviceName, String sql) {
+		this.serviceName = serviceName;
+		this.sql = sql;
+		this.name = serviceName;
+	}
+
+	/**
+	 * 지표(Metrics)에 등록할 이름을 설정한다. 기본값은 서비스명이다.
+	 * @param name 이름
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * 변환 단계의 스레드 수를 설정한다. 기본값은 4 이다.
+	 * @param threads 스레드 수
+	 */
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * 쓰기 단계의 스레드(커넥션) 수를 설정한다. 기본값은 2 이며, 커넥션풀의 최대 커넥션 수보다 작아야 한다.
+	 * @param writers 스레드 수
+	 */
+	public void setWriters(int writers) {
+		this.writers = Math.max(1, writers);
+	}
+
+	/**
+	 * 단계 사이 대기열의 크기를 설정한다. 기본값은 10000 이다.
+	 * @param queueSize 대기열의 크기
+	 */
+	public void setQueueSize(int queueSize) {
+		this.queueSize = Math.max(1, queueSize);
+	}
+
+	/**
+	 * 한번에 실행하고 커밋할 행 수를 설정한다. 기본값은 1000 이다.
+	 * @param batchSize 배치 크기
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * 변환기를 설정한다. 설정하지 않으면 행의 값을 순서대로 바인드한다.
+	 * @param transformer 변환기
+	 */
+	public void setTransformer(Transformer transformer) {
+		this.transformer = transformer;
+	}
+
+	/**
+	 * 체크포인트 파일을 설정한다. 적재가 모두 끝나면 삭제된다.
+	 * @param checkpointFile 체크포인트 파일
+	 */
+	public void setCheckpointFile(File checkpointFile) {
+		this.checkpointFile = checkpointFile;
+	}
+
+	/**
+	 * 오류 행을 기록할 격리 파일을 설정한다. 각 줄은 행 번호, 오류 메시지, 행의 값을 탭으로 구분한다. 설정하지 않으면 로그에 기록한다.
+	 * @param quarantineFile 격리 파일
+	 */
+	public void setQuarantineFile(File quarantineFile) {
+		this.quarantineFile = quarantineFile;
+	}
+
+	/**
+	 * 구분자(CSV, TSV 등) 파일을 한 행씩 읽어 적재한다.
+	 * @param file 파일
+	 * @param sep 열 구분자로 쓰일 문자열
+	 * @return 적재 결과
+	 */
+	public Result loadCsv(File file, String sep) {
+		InputStream is = null;
+		try {
+			is = new FileInputStream(file);
+			return load(CsvUtil.iterate(is, sep));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			if (is != null) {
+				try {
+					is.close();
+				} catch (IOException e) {
+					logger.error("", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 엑셀 파일을 적재한다. 엑셀 파일은 ExcelUtil.parse 로 모두 읽은 후 적재한다.
+	 * @param file 파일
+	 * @return 적재 결과
+	 */
+	public Result loadExcel(File file) {
+		return load(ExcelUtil.parse(file).iterator());
+	}
+
+	/**
+	 * 행을 적재한다. 모든 행이 적재(또는 격리)될 때까지 기다린다.
+	 * @param source 읽을 행
+	 * @return 적재 결과
+	 */
+	public Result load(Iterator<RecordMap> source) {
+		long start = System.currentTimeMillis();
+		long resumed = readCheckpoint();
+		final BlockingQueue<Item> readQueue = new ArrayBlockingQueue<Item>(queueSize);
+		final BlockingQueue<Item> writeQueue = new ArrayBlockingQueue<Item>(queueSize);
+		LoadMetric metric = Metrics.registerLoadMetric(name, new LoadMetric.Status() {
+			@Override
+			public int getReadQueueSize() {
+				return readQueue.size();
+			}
+
+			@Override
+			public int getWriteQueueSize() {
+				return writeQueue.size();
+			}
+		});
+		Run run = new Run(readQueue, writeQueue, metric, resumed);
+		ExecutorService executor = Executors.newFixedThreadPool(threads + writers, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "framework-load-" + threadSeq.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			for (int i = 0; i < threads; i++) {
+				executor.execute(run.new TransformTask());
+			}
+			for (int i = 0; i < writers; i++) {
+				executor.execute(run.new WriteTask());
+			}
+			long rowNum = 0;
+			try {
+				while (run.failure.get() == null && source.hasNext()) {
+					RecordMap row = source.next();
+					if (++rowNum <= resumed) {
+						continue;
+					}
+					metric.read(1);
+					if (!run.put(readQueue, new Item(rowNum, row))) {
+						break;
+					}
+				}
+			} catch (Throwable e) {
+				run.fail(e);
+			}
+			for (int i = 0; i < threads; i++) {
+				if (!run.put(readQueue, END)) {
+					break;
+				}
+			}
+			executor.shutdown();
+			while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("BulkLoader(" + name + ") read=" + metric.getRead() + ", written=" + metric.getWritten() + ", quarantined=" + metric.getQuarantined());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			run.fail(e);
+		} finally {
+			executor.shutdownNow();
+			metric.finished();
+			run.close();
+		}
+		Throwable failure = run.failure.get();
+		if (failure != null) {
+			throw new RuntimeException("적재가 중단되었습니다. 체크포인트 : " + run.progress.watermark, failure);
+		}
+		if (checkpointFile != null && checkpointFile.exists() && !checkpointFile.delete()) {
+			logger.error("체크포인트 파일을 삭제할 수 없습니다. (" + checkpointFile + ")");
+		}
+		Result result = new Result(resumed, metric.getRead(), metric.getWritten(), run.skipped.get(), metric.getQuarantined(), System.currentTimeMillis() - start);
+		if (logger.isDebugEnabled()) {
+			logger.debug("BulkLoader(" + name + ") " + result);
+		}
+		return result;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	private long readCheckpoint() {
+		if (checkpointFile == null || !checkpointFile.exists()) {
+			return 0;
+		}
+		InputStream is = null;
+		try {
+			is = new FileInputStream(checkpointFile);
+			byte[] buf = new byte[32];
+			int len = is.read(buf);
+			return (len <= 0) ? 0 : Long.parseLong(new String(buf, 0, len, "UTF-8").trim());
+		} catch (Exception e) {
+			throw new RuntimeException("체크포인트 파일을 읽을 수 없습니다. (" + checkpointFile + ")", e);
+		} finally {
+			if (is != null) {
+				try {
+					is.close();
+				} catch (IOException e) {
+					logger.error("", e);
+				}
+			}
+		}
+	}
+
+	private void writeCheckpoint(long watermark) {
+		File tmp = new File(checkpointFile.getPath() + ".tmp");
+		try {
+			FileOutputStream fos = new FileOutputStream(tmp);
+			try {
+				fos.write(String.valueOf(watermark).getBytes("UTF-8"));
+			} finally {
+				fos.close();
+			}
+			if (!tmp.renameTo(checkpointFile)) {
+				checkpointFile.delete();
+				if (!tmp.renameTo(checkpointFile)) {
+					throw new IOException("rename failed : " + tmp);
+				}
+			}
+		} catch (IOException e) {
+			logger.error("체크포인트 파일을 기록할 수 없습니다. (" + checkpointFile + ")", e);
+		}
+	}
+
+	/**
+	 * 대기열에 담기는 행
+	 */
+	private static final class Item {
+		private final long rowNum;
+		private final RecordMap row;
+		private Object[] params = null;
+
+		private Item(long rowNum, RecordMap row) {
+			this.rowNum = rowNum;
+			this.row = row;
+		}
+	}
+
+	/**
+	 * 앞에서부터 연속으로 처리가 끝난 행 번호(watermark)를 관리하고 체크포인트 파일에 기록하는 클래스
+	 */
+	private final class Progress {
+		private long watermark;
+		private BitSet done = new BitSet();
+		private long lastWrite = 0;
+
+		private Progress(long watermark) {
+			this.watermark = watermark;
+		}
+
+		private synchronized void done(List<Item> items) {
+			for (Item item : items) {
+				done.set((int) (item.rowNum - watermark - 1));
+			}
+			int advance = done.nextClearBit(0);
+			if (advance > 0) {
+				watermark += advance;
+				done = done.get(advance, Math.max(advance, done.length()));
+				if (checkpointFile != null && System.currentTimeMillis() - lastWrite >= CHECKPOINT_INTERVAL) {
+					writeCheckpoint(watermark);
+					lastWrite = System.currentTimeMillis();
+				}
+			}
+		}
+
+		private synchronized void save() {
+			if (checkpointFile != null && watermark > 0) {
+				writeCheckpoint(watermark);
+			}
+		}
+	}
+
+	/**
+	 * 한번의 적재 실행에서 단계들이 공유하는 상태
+	 */
+	private final class Run {
+		private final BlockingQueue<Item> readQueue;
+		private final BlockingQueue<Item> writeQueue;
+		private final LoadMetric metric;
+		private final Progress progress;
+		private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		private final AtomicLong skipped = new AtomicLong();
+		private final CountDownLatch transformers = new CountDownLatch(threads);
+		private Writer quarantine = null;
+
+		private Run(BlockingQueue<Item> readQueue, BlockingQueue<Item> writeQueue, LoadMetric metric, long resumed) {
+			this.readQueue = readQueue;
+			this.writeQueue = writeQueue;
+			this.metric = metric;
+			this.progress = new Progress(resumed);
+			if (quarantineFile != null) {
+				try {
+					quarantine = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(quarantineFile, resumed > 0), "UTF-8"));
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		}
+
+		/*
+		 * 대기열에 담는다. 다른 단계가 실패하여 중단되면 false 를 리턴한다.
+		 */
+		private boolean put(BlockingQueue<Item> queue, Item item) {
+			try {
+				while (failure.get() == null) {
+					if (queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+						return true;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				fail(e);
+			}
+			return false;
+		}
+
+		/*
+		 * 대기열에서 꺼낸다. 다른 단계가 실패하여 중단되면 null 을 리턴한다.
+		 */
+		private Item take(BlockingQueue<Item> queue) {
+			try {
+				while (failure.get() == null) {
+					Item item = queue.poll(100, TimeUnit.MILLISECONDS);
+					if (item != null) {
+						return item;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				fail(e);
+			}
+			return null;
+		}
+
+		private void fail(Throwable e) {
+			if (failure.compareAndSet(null, e)) {
+				logger.error("BulkLoader(" + name + ") 적재를 중단합니다.", e);
+			}
+		}
+
+		private void quarantine(Item item, Throwable e) {
+			metric.quarantined(1);
+			String message = String.valueOf(e.getMessage()).replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+			if (quarantine == null) {
+				logger.error("BulkLoader(" + name + ") 격리된 행 " + item.rowNum + " : " + item.row, e);
+				return;
+			}
+			StringBuilder buf = new StringBuilder();
+			buf.append(item.rowNum).append('\t').append(message);
+			for (Object value : item.row.values()) {
+				buf.append('\t').append(value == null ? "" : value.toString());
+			}
+			buf.append("\n");
+			synchronized (this) {
+				try {
+					quarantine.write(buf.toString());
+				} catch (IOException ex) {
+					fail(ex);
+				}
+			}
+		}
+
+		private void close() {
+			progress.save();
+			if (quarantine != null) {
+				synchronized (this) {
+					try {
+						quarantine.close();
+					} catch (IOException e) {
+						logger.error("", e);
+					}
+				}
+			}
+		}
+
+		/**
+		 * 읽은 행을 검증하고 바인드 변수 값으로 변환하는 단계
+		 */
+		private final class TransformTask implements Runnable {
+			@Override
+			public void run() {
+				try {
+					Item item;
+					while ((item = take(readQueue)) != null && item != END) {
+						try {
+							item.params = (transformer == null) ? item.row.values().toArray() : transformer.transform(item.rowNum, item.row);
+						} catch (Throwable e) {
+							quarantine(item, e);
+							progress.done(Collections.singletonList(item));
+							continue;
+						}
+						metric.transformed(1);
+						if (item.params == null) {
+							skipped.incrementAndGet();
+							progress.done(Collections.singletonList(item));
+						} else if (!put(writeQueue, item)) {
+							break;
+						}
+					}
+				} catch (Throwable e) {
+					fail(e);
+				} finally {
+					transformers.countDown();
+					if (transformers.getCount() == 0) {
+						for (int i = 0; i < writers; i++) {
+							if (!put(writeQueue, END)) {
+								break;
+							}
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * 변환된 행을 배치로 실행하고 커밋하는 단계, 스레드마다 커넥션을 하나씩 사용한다.
+		 */
+		private final class WriteTask implements Runnable {
+			@Override
+			public void run() {
+				DB db = new DB(serviceName, BulkLoader.this);
+				BatchPreparedStatement pstmt = null;
+				try {
+					db.setAutoCommit(false);
+					pstmt = db.createBatchPrepareStatement(sql);
+					pstmt.setBatchSize(0);
+					List<Item> chunk = new ArrayList<Item>(batchSize);
+					boolean end = false;
+					while (!end) {
+						Item item = take(writeQueue);
+						if (item == null) {
+							return;
+						}
+						if (item == END) {
+							end = true;
+						} else {
+							chunk.add(item);
+						}
+						if (chunk.size() >= batchSize || (end && !chunk.isEmpty())) {
+							write(db, pstmt, chunk);
+							chunk.clear();
+						}
+					}
+				} catch (Throwable e) {
+					fail(e);
+				} finally {
+					if (pstmt != null) {
+						pstmt.close();
+					}
+					db.release();
+				}
+			}
+
+			/*
+			 * 배치로 실행하고 커밋한다. 실패하면 롤백 후 한 행씩 다시 실행하여 오류 행만 격리한다.
+			 * 컨넥션이 끊겼거나, 모든 행이 실패했는데 그 중 행 단위 오류(중복키, 데이터 오류)가 하나도 없으면 문장의 오류로 보고 적재를 중단한다.
+			 * 다시 실행할 때 이미 적재된 행만으로 이루어진 묶음은 모두 중복키 오류로 격리되고 체크포인트는 계속 전진한다.
+			 */
+			private void write(DB db, BatchPreparedStatement pstmt, List<Item> chunk) {
+				try {
+					for (Item item : chunk) {
+						pstmt.addBatch(item.params);
+					}
+					pstmt.executeBatch();
+					db.commit();
+					metric.written(chunk.size());
+				} catch (RuntimeException e) {
+					db.rollback();
+					pstmt.close();
+					List<Item> failed = new ArrayList<Item>();
+					List<RuntimeException> errors = new ArrayList<RuntimeException>();
+					for (Item item : chunk) {
+						try {
+							pstmt.addBatch(item.params);
+							pstmt.executeBatch();
+							db.commit();
+							metric.written(1);
+						} catch (RuntimeException ex) {
+							db.rollback();
+							pstmt.close();
+							if (!isValid(db)) {
+								throw ex;
+							}
+							failed.add(item);
+							errors.add(ex);
+						}
+					}
+					if (chunk.size() > 1 && failed.size() == chunk.size() && !hasRowError(errors)) {
+						throw e;
+					}
+					for (int i = 0; i < failed.size(); i++) {
+						quarantine(failed.get(i), errors.get(i));
+					}
+				}
+				progress.done(chunk);
+			}
+
+			/*
+			 * SQLState 클래스가 22(데이터 오류) 또는 23(무결성 제약조건 위반)인 오류가 있으면 행 단위 오류
+			 */
+			private boolean hasRowError(List<RuntimeException> errors) {
+				for (RuntimeException error : errors) {
+					for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+						if (cause instanceof SQLException) {
+							String state = ((SQLException) cause).getSQLState();
+							if (state != null && (state.startsWith("22") || state.startsWith("23"))) {
+								return true;
+							}
+						}
+					}
+				}
+				return false;
+			}
+
+			private boolean isValid(DB db) {
+				try {
+					return db.getConnection().isValid(5);
+				} catch (SQLException e) {
+					return false;
+				}
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,194 @@
+package framework.db;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 쿼리 결과의 컬럼 정보(이름, 타입, 크기)를 담는 클래스
+ * 같은 SQL 을 다시 실행할 때 ResultSetMetaData 의 컬럼별 조회를 반복하지 않도록 서비스명과 SQL 별로 캐시한다.
+ * 캐시를 사용할 때는 컬럼 수만 확인하고, 타입에 맞춰 값을 읽다가 실패하면(테이블 구조 변경 등) 그 값은 getObject 로 다시 읽고 다음 실행에서 컬럼 정보를 새로 읽는다.
+ * 캐시가 가득 차면 새 SQL 은 캐시하지 않는다.
+ * 컬럼 타입별로 값을 읽는 방법(getLong, getBigDecimal, getString 등)을 미리 정해 두어 행마다 getObject 와 getString 을 이중으로 호출하지 않는다.
+ */
+final class ColumnMetaData {
+	private static final int CACHE_SIZE = 1000;
+	private static final ConcurrentMap<String, ColumnMetaData> cache = new ConcurrentHashMap<String, ColumnMetaData>();
+	private static final int READ_OBJECT = 0;
+	private static final int READ_STRING = 1;
+	private static final int READ_INT = 2;
+	private static final int READ_LONG = 3;
+	private static final int READ_DECIMAL = 4;
+	private static final int READ_DOUBLE = 5;
+	private static final int READ_FLOAT = 6;
+	final String[] names;
+	final int[] types;
+	final int[] sizes;
+	final int[] precisions;
+	final int[] scales;
+	final String[] typeNames;
+	final RecordSchema schema;
+	private final int[] readers;
+	private volatile boolean stale = false;
+
+	private ColumnMetaData(ResultSetMetaData rsmd, int count) throws SQLException {
+		names = new String[count];
+		types = new int[count];
+		sizes = new int[count];
+		precisions = new int[count];
+		scales = new int[count];
+		typeNames = new String[count];
+		readers = new int[count];
+		for (int i = 1; i <= count; i++) {
+			//Table의 Field 가 대문자 인것은 소문자로 변경처리
+			names[i - 1] = rsmd.getColumnName(i).toLowerCase();
+			types[i - 1] = rsmd.getColumnType(i);
+			sizes[i - 1] = rsmd.getColumnDisplaySize(i);
+			precisions[i - 1] = rsmd.getPrecision(i);
+			scales[i - 1] = rsmd.getScale(i);
+			typeNames[i - 1] = rsmd.getColumnTypeName(i);
+			readers[i - 1] = getReader(types[i - 1], precisions[i - 1]);
+		}
+		schema = new RecordSchema(names);
+	}
+
+	/**
+	 * ResultSet 의 현재 행에서 컬럼 값을 읽는다. 숫자는 타입에 맞는 숫자 객체로, 문자와 날짜는 문자열로 리턴한다.
+	 * @param rs 쿼리 실행결과
+	 * @param column 컬럼 위치, 첫번째 컬럼은 1
+	 * @return 컬럼 값, null 이면 null
+	 * @throws SQLException 값을 읽을 수 없는 경우
+	 */
+	Object read(ResultSet rs, int column) throws SQLException {
+		int reader = readers[column - 1];
+		if (reader == READ_OBJECT) {
+			return readObject(rs, column);
+		}
+		try {
+			return read(rs, column, reader);
+		} catch (SQLException e) {
+			stale = true;
+		} catch (ClassCastException e) {
+			stale = true;
+		}
+		return readObject(rs, column);
+	}
+
+	/**
+	 * 컬럼 정보를 리턴한다. key 가 null 이 아니면 캐시된 정보를 사용하고, 없으면 읽어서 캐시한다.
+	 * @param rsmd ResultSetMetaData 객체
+	 * @param key 캐시 키(서비스명과 SQL), null 이면 캐시하지 않는다.
+	 * @return 컬럼 정보
+	 * @throws SQLException 메타데이터를 읽을 수 없는 경우
+	 */
+	static ColumnMetaData get(ResultSetMetaData rsmd, String key) throws SQLException {
+		return get(rsmd, key, 0);
+	}
+
+	/**
+	 * 끝의 컬럼 일부를 제외한 컬럼 정보를 리턴한다. 페이징을 위해 추가된 컬럼을 제외할 때 사용한다.
+	 * @param rsmd ResultSetMetaData 객체
+	 * @param key 캐시 키(서비스명과 SQL), null 이면 캐시하지 않는다.
+	 * @param extraColumnCount 제외할 끝의 컬럼 수
+	 * @return 컬럼 정보
+	 * @throws SQLException 메타데이터를 읽을 수 없는 경우
+	 */
+	static ColumnMetaData get(ResultSetMetaData rsmd, String key, int extraColumnCount) throws SQLException {
+		int count = rsmd.getColumnCount() - extraColumnCount;
+		ColumnMetaData cached = (key == null) ? null : cache.get(key);
+		if (cached != null && !cached.stale && cached.names.length == count) {
+			return cached;
+		}
+		ColumnMetaData meta = new ColumnMetaData(rsmd, count);
+		if (key != null && (cached != null || cache.size() < CACHE_SIZE)) {
+			cache.put(key, meta);
+		}
+		return meta;
+	}
+
+	/**
+	 * 캐시를 비운다.
+	 */
+	static void clear() {
+		cache.clear();
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	/*
+	 * 컬럼 타입에 맞는 방법으로 값을 읽는다.
+	 */
+	private static Object read(ResultSet rs, int column, int reader) throws SQLException {
+		switch (reader) {
+		case READ_STRING:
+			return rs.getString(column);
+		case READ_INT:
+			long l = rs.getLong(column);
+			if (rs.wasNull()) {
+				return null;
+			}
+			return (l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE) ? (Object) Integer.valueOf((int) l) : (Object) Long.valueOf(l);
+		case READ_LONG:
+			long value = rs.getLong(column);
+			return rs.wasNull() ? null : Long.valueOf(value);
+		case READ_DECIMAL:
+			return rs.getBigDecimal(column);
+		case READ_DOUBLE:
+			double d = rs.getDouble(column);
+			return rs.wasNull() ? null : Double.valueOf(d);
+		case READ_FLOAT:
+			float f = rs.getFloat(column);
+			return rs.wasNull() ? null : Float.valueOf(f);
+		default:
+			return readObject(rs, column);
+		}
+	}
+
+	/*
+	 * 타입을 알 수 없는 컬럼 값을 getObject 로 읽어 숫자가 아니면 문자열로 다시 읽는다.
+	 */
+	private static Object readObject(ResultSet rs, int column) throws SQLException {
+		Object obj = rs.getObject(column);
+		return (obj == null || obj instanceof Number) ? obj : rs.getString(column);
+	}
+
+	/*
+	 * 컬럼 타입으로 값을 읽는 방법을 정한다.
+	 * 날짜는 출력 유틸이 문자열로 출력하던 형식을 유지하기 위해 문자열로 읽고, 알 수 없는 타입은 getObject 로 읽어 숫자가 아니면 문자열로 다시 읽는다.
+	 */
+	private static int getReader(int type, int precision) {
+		switch (type) {
+		case Types.CHAR:
+		case Types.VARCHAR:
+		case Types.LONGVARCHAR:
+		case Types.NCHAR:
+		case Types.NVARCHAR:
+		case Types.LONGNVARCHAR:
+		case Types.CLOB:
+		case Types.NCLOB:
+		case Types.DATE:
+		case Types.TIME:
+		case Types.TIMESTAMP:
+			return READ_STRING;
+		case Types.TINYINT:
+		case Types.SMALLINT:
+		case Types.INTEGER:
+			return READ_INT;
+		case Types.BIGINT:
+			return (precision > 19) ? READ_OBJECT : READ_LONG;
+		case Types.NUMERIC:
+		case Types.DECIMAL:
+			return READ_DECIMAL;
+		case Types.FLOAT:
+		case Types.DOUBLE:
+			return READ_DOUBLE;
+		case Types.REAL:
+			return READ_FLOAT;
+		default:
+			return READ_OBJECT;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,310 @@
+package framework.db;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * RecordSet 의 행을 컬럼 단위로 보관하는 리스트
+ * 정수는 long[], 실수는 double[], 소수(BigDecimal)는 long[] 과 byte[] 에 나누어 담고, 문자열은 사전(dictionary)의 번호로 담으며, null 은 비트맵으로 표시한다.
+ * 행마다 RecordMap 과 박싱된 숫자를 만들지 않으므로 행이 많을수록 메모리를 적게 사용한다.
+ * 한 컬럼에 서로 다른 타입의 값이 섞이면 그 컬럼만 Object[] 로 바꾸어 담는다.
+ * 리스트의 원소(RecordMap)는 조회할 때마다 새로 만들어지므로 변경해도 원본에 반영되지 않는다.
+ */
+final class ColumnarRows extends AbstractList<RecordMap> implements RandomAccess, Serializable {
+	private static final long serialVersionUID = -2958046781270415245L;
+	private final RecordSchema schema;
+	private final Column[] columns;
+	private int size = 0;
+	private transient RecordMap view = null;
+	private transient int viewRow = -1;
+
+	ColumnarRows(RecordSchema schema) {
+		this.schema = schema;
+		this.columns = new Column[schema.getColumnCount()];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = new Column();
+		}
+	}
+
+	/**
+	 * ResultSet 의 현재 행을 추가한다. 숫자는 그대로, 나머지는 문자열로 담는다.
+	 * @param rs 쿼리 실행결과
+	 * @param meta 컬럼 정보
+	 * @throws SQLException 행을 읽을 수 없는 경우
+	 */
+	void addRow(ResultSet rs, ColumnMetaData meta) throws SQLException {
+		for (int i = 1; i <= columns.length; i++) {
+			columns[i - 1].set(size, meta.read(rs, i));
+		}
+		size++;
+	}
+
+	/**
+	 * 행 추가가 끝나면 배열을 행 수에 맞게 줄이고 사전 색인을 버린다.
+	 */
+	void trim() {
+		for (Column column : columns) {
+			column.trim(size);
+		}
+	}
+
+	/**
+	 * 값을 리턴한다.
+	 * @param row 행 위치, 첫번째 행은 0
+	 * @param colName 컬럼 이름
+	 * @return 값, 컬럼이 없으면 null
+	 */
+	Object getValue(int row, String colName) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Index: " + row + ", Size: " + size);
+		}
+		int column = schema.columnOf(colName);
+		return (column < 0) ? null : columns[column].get(row);
+	}
+
+	/**
+	 * 행을 읽기 위한 RecordMap 을 리턴한다. 같은 객체를 재사용하므로 RecordSet 내부의 값 변환에만 사용한다.
+	 * @param row 행 위치, 첫번째 행은 0
+	 * @return 행 데이터
+	 */
+	RecordMap getView(int row) {
+		if (view == null || viewRow != row) {
+			if (view == null) {
+				view = new RecordMap(columns.length);
+			}
+			fill(row, view);
+			viewRow = row;
+		}
+		return view;
+	}
+
+	@Override
+	public RecordMap get(int row) {
+		return fill(row, new RecordMap(columns.length));
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	private RecordMap fill(int row, RecordMap map) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Index: " + row + ", Size: " + size);
+		}
+		map.clear();
+		for (int i = 0; i < columns.length; i++) {
+			map.put(schema.getName(schema.getSlot(i)), columns[i].get(row));
+		}
+		return map;
+	}
+
+	/**
+	 * 컬럼 하나의 값을 담는 클래스
+	 */
+	private static final class Column implements Serializable {
+		private static final long serialVersionUID = 6419012836620719582L;
+		private static final int EMPTY = 0;
+		private static final int STRING = 1;
+		private static final int LONG = 2;
+		private static final int DOUBLE = 3;
+		private static final int DECIMAL = 4;
+		private static final int OBJECT = 5;
+		private int type = EMPTY;
+		private Class<?> numberClass = null;
+		private long[] nulls = new long[1];
+		private int[] codes = null;
+		private long[] longs = null;
+		private double[] doubles = null;
+		private byte[] scales = null;
+		private Object[] objects = null;
+		private ArrayList<String> dictionary = null;
+		private transient Map<String, Integer> dictionaryIndex = null;
+		private int capacity = 0;
+
+		private void set(int row, Object value) {
+			ensureCapacity(row + 1);
+			if (value == null) {
+				nulls[row >> 6] |= 1L << row;
+				return;
+			}
+			if (type == EMPTY) {
+				init(value);
+			}
+			if (!store(row, value)) {
+				toObjects(row);
+				objects[row] = value;
+			}
+		}
+
+		private Object get(int row) {
+			if ((nulls[row >> 6] & (1L << row)) != 0) {
+				return null;
+			}
+			switch (type) {
+			case STRING:
+				return dictionary.get(codes[row]);
+			case LONG:
+				long l = longs[row];
+				if (numberClass == Integer.class) {
+					return Integer.valueOf((int) l);
+				} else if (numberClass == Short.class) {
+					return Short.valueOf((short) l);
+				} else if (numberClass == Byte.class) {
+					return Byte.valueOf((byte) l);
+				}
+				return Long.valueOf(l);
+			case DOUBLE:
+				return (numberClass == Float.class) ? (Object) Float.valueOf((float) doubles[row]) : (Object) Double.valueOf(doubles[row]);
+			case DECIMAL:
+				return BigDecimal.valueOf(longs[row], scales[row]);
+			case OBJECT:
+				return objects[row];
+			default:
+				return null;
+			}
+		}
+
+		/*
+		 * 처음 나온 값으로 컬럼의 저장 방식을 정한다.
+		 */
+		private void init(Object value) {
+			if (value instanceof String) {
+				type = STRING;
+				codes = new int[capacity];
+				dictionary = new ArrayList<String>();
+				dictionaryIndex = new HashMap<String, Integer>();
+			} else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+				type = LONG;
+				numberClass = value.getClass();
+				longs = new long[capacity];
+			} else if (value instanceof Double || value instanceof Float) {
+				type = DOUBLE;
+				numberClass = value.getClass();
+				doubles = new double[capacity];
+			} else if (value instanceof BigDecimal) {
+				type = DECIMAL;
+				longs = new long[capacity];
+				scales = new byte[capacity];
+			} else {
+				type = OBJECT;
+				objects = new Object[capacity];
+			}
+		}
+
+		/*
+		 * 컬럼의 저장 방식으로 값을 담는다. 담을 수 없으면 false 를 리턴한다.
+		 */
+		private boolean store(int row, Object value) {
+			switch (type) {
+			case STRING:
+				if (!(value instanceof String) || dictionaryIndex == null) {
+					return false;
+				}
+				Integer code = dictionaryIndex.get(value);
+				if (code == null) {
+					code = Integer.valueOf(dictionary.size());
+					dictionary.add((String) value);
+					dictionaryIndex.put((String) value, code);
+				}
+				codes[row] = code.intValue();
+				return true;
+			case LONG:
+				if (value.getClass() != numberClass) {
+					return false;
+				}
+				longs[row] = ((Number) value).longValue();
+				return true;
+			case DOUBLE:
+				if (value.getClass() != numberClass) {
+					return false;
+				}
+				doubles[row] = ((Number) value).doubleValue();
+				return true;
+			case DECIMAL:
+				if (!(value instanceof BigDecimal)) {
+					return false;
+				}
+				BigDecimal decimal = (BigDecimal) value;
+				if (decimal.scale() < Byte.MIN_VALUE || decimal.scale() > Byte.MAX_VALUE || decimal.unscaledValue().bitLength() > 63) {
+					return false;
+				}
+				longs[row] = decimal.unscaledValue().longValue();
+				scales[row] = (byte) decimal.scale();
+				return true;
+			case OBJECT:
+				objects[row] = value;
+				return true;
+			default:
+				return false;
+			}
+		}
+
+		/*
+		 * 타입이 섞인 컬럼을 Object[] 로 바꾼다.
+		 */
+		private void toObjects(int rowCount) {
+			Object[] values = new Object[capacity];
+			for (int i = 0; i < rowCount; i++) {
+				values[i] = get(i);
+			}
+			type = OBJECT;
+			objects = values;
+			numberClass = null;
+			codes = null;
+			longs = null;
+			doubles = null;
+			scales = null;
+			dictionary = null;
+			dictionaryIndex = null;
+		}
+
+		private void ensureCapacity(int required) {
+			if (required <= capacity) {
+				return;
+			}
+			int newCapacity = Math.max(16, Math.max(required, capacity + (capacity >> 1)));
+			resize(newCapacity);
+		}
+
+		private void resize(int newCapacity) {
+			capacity = newCapacity;
+			nulls = Arrays.copyOf(nulls, (newCapacity + 63) >> 6);
+			if (codes != null) {
+				codes = Arrays.copyOf(codes, newCapacity);
+			}
+			if (longs != null) {
+				longs = Arrays.copyOf(longs, newCapacity);
+			}
+			if (doubles != null) {
+				doubles = Arrays.copyOf(doubles, newCapacity);
+			}
+			if (scales != null) {
+				scales = Arrays.copyOf(scales, newCapacity);
+			}
+			if (objects != null) {
+				objects = Arrays.copyOf(objects, newCapacity);
+			}
+		}
+
+		private void trim(int size) {
+			if (size < capacity) {
+				resize(size);
+			}
+			if (dictionary != null) {
+				dictionary.trimToSize();
+			}
+			dictionaryIndex = null;
+		}
+	}
+}
\ No newline at end of file
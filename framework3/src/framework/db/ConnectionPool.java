@@ -0,0 +1,409 @@
+package framework.db;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.commons.pool.BasePoolableObjectFactory;
+import org.apache.commons.pool.impl.GenericObjectPool;
+
+import framework.config.Config;
+import framework.metrics.Metrics;
+import framework.metrics.PoolMetric;
+
+/**
+ * JNDI DataSource 가 설정되지 않은 서비스에 사용하는 커넥션풀 클래스
+ * 커넥션을 얻을 때 유효성을 검사하며, 오래 사용하지 않은 커넥션과 최대 사용시간이 지난 커넥션은 폐기한다.
+ * 얻어간 커넥션의 close() 는 물리적 커넥션을 닫지 않고 풀에 반납한다.
+ * 커넥션별로 PreparedStatement 를 SQL 별로 캐시하여, 같은 SQL 을 다시 준비할 때 데이터베이스 왕복을 줄인다.
+ * <br>
+ * application.properties 설정 (서비스명이 default 인 경우)
+ * <br>
+ * db.default.pool.maxActive : 최대 커넥션 수(기본값 20)
+ * <br>
+ * db.default.pool.maxIdle : 최대 유휴 커넥션 수(기본값 maxActive)
+ * <br>
+ * db.default.pool.minIdle : 최소 유휴 커넥션 수(기본값 0)
+ * <br>
+ * db.default.pool.maxWait : 커넥션을 얻기 위해 기다리는 최대 시간(밀리초, 기본값 10000)
+ * <br>
+ * db.default.pool.testOnBorrow : 커넥션을 얻을 때 유효성 검사 여부(기본값 true)
+ * <br>
+ * db.default.pool.validationQuery : 유효성 검사 쿼리(기본값 없음, 없으면 Connection.isValid 사용)
+ * <br>
+ * db.default.pool.validationTimeout : 유효성 검사 제한시간(초, 기본값 3)
+ * <br>
+ * db.default.pool.idleTimeout : 유휴 커넥션을 폐기하기까지의 시간(밀리초, 기본값 600000)
+ * <br>
+ * db.default.pool.evictionInterval : 유휴 커넥션 검사 주기(밀리초, 기본값 30000)
+ * <br>
+ * db.default.pool.maxLifetime : 커넥션의 최대 사용시간(밀리초, 기본값 1800000, 0 이하이면 제한하지 않음)
+ * <br>
+ * db.default.pool.leakDetectionThreshold : 반납되지 않은 커넥션을 누수로 의심하는 시간(밀리초, 기본값 0 이면 검사하지 않음)
+ * <br>
+ * db.default.pool.statementCacheSize : 커넥션별로 보관할 PreparedStatement 수(기본값 50, 0 이하이면 캐시하지 않음)
+ */
+public final class ConnectionPool implements DataSource, PoolMetric.Status {
+	private static final Log logger = LogFactory.getLog(ConnectionPool.class);
+	private final String name;
+	private final Driver driver;
+	private final String url;
+	private final Properties info = new Properties();
+	private final String validationQuery;
+	private final int validationTimeout;
+	private final long maxWait;
+	private final long maxLifetime;
+	private final long leakDetectionThreshold;
+	private final int statementCacheSize;
+	private final GenericObjectPool<PooledConnection> pool;
+	private final ConcurrentMap<ConnectionHandle, Boolean> borrowed = new ConcurrentHashMap<ConnectionHandle, Boolean>();
+	private final PoolMetric metric;
+	private Timer leakTimer = null;
+	private PrintWriter logWriter = null;
+	private int loginTimeout = 0;
+
+	/**
+	 * application.properties 의 db.서비스명.* 설정으로 커넥션풀을 생성한다.
+	 * @param serviceName 서비스명
+	 * @throws SQLException 드라이버를 로드할 수 없는 경우
+	 */
+	public ConnectionPool(String serviceName) throws SQLException {
+		Config config = Config.getInstance();
+		String prefix = "db." + serviceName + ".";
+		this.name = serviceName;
+		try {
+			this.driver = (Driver) Class.forName(config.getString(prefix + "driver")).getDeclaredConstructor().newInstance();
+		} catch (Throwable e) {
+			throw new SQLException("JDBC 드라이버를 로드할 수 없습니다. (" + serviceName + ")", e);
+		}
+		this.url = config.getString(prefix + "url");
+		this.info.setProperty("user", config.getString(prefix + "username", ""));
+		this.info.setProperty("password", config.getString(prefix + "password", ""));
+		this.validationQuery = config.getString(prefix + "pool.validationQuery", "");
+		this.validationTimeout = config.getInt(prefix + "pool.validationTimeout", Integer.valueOf(3)).intValue();
+		this.maxWait = config.getLong(prefix + "pool.maxWait", Long.valueOf(10000)).longValue();
+		this.maxLifetime = config.getLong(prefix + "pool.maxLifetime", Long.valueOf(1800000)).longValue();
+		this.leakDetectionThreshold = config.getLong(prefix + "pool.leakDetectionThreshold", Long.valueOf(0)).longValue();
+		this.statementCacheSize = config.getInt(prefix + "pool.statementCacheSize", Integer.valueOf(50)).intValue();
+		int maxActive = config.getInt(prefix + "pool.maxActive", Integer.valueOf(20)).intValue();
+		this.pool = new GenericObjectPool<PooledConnection>(new PooledConnectionFactory());
+		this.pool.setMaxActive(maxActive);
+		this.pool.setMaxIdle(config.getInt(prefix + "pool.maxIdle", Integer.valueOf(maxActive)).intValue());
+		this.pool.setMinIdle(config.getInt(prefix + "pool.minIdle", Integer.valueOf(0)).intValue());
+		this.pool.setMaxWait(maxWait);
+		this.pool.setWhenExhaustedAction(GenericObjectPool.WHEN_EXHAUSTED_BLOCK);
+		this.pool.setTestOnBorrow(config.getBoolean(prefix + "pool.testOnBorrow", Boolean.TRUE).booleanValue());
+		this.pool.setTestWhileIdle(true);
+		this.pool.setMinEvictableIdleTimeMillis(config.getLong(prefix + "pool.idleTimeout", Long.valueOf(600000)).longValue());
+		this.pool.setTimeBetweenEvictionRunsMillis(config.getLong(prefix + "pool.evictionInterval", Long.valueOf(30000)).longValue());
+		this.pool.setNumTestsPerEvictionRun(-1);
+		this.pool.setLifo(true);
+		this.metric = Metrics.registerPoolMetric(serviceName, this);
+		if (leakDetectionThreshold > 0) {
+			leakTimer = new Timer("framework-pool-leak-" + serviceName, true);
+			leakTimer.schedule(new LeakDetectionTask(), leakDetectionThreshold, leakDetectionThreshold);
+		}
+		logger.info("커넥션풀을 생성하였습니다. (" + serviceName + ", maxActive=" + maxActive + ")");
+	}
+
+	/**
+	 * 풀에서 커넥션을 얻는다. 최대 커넥션 수에 도달하면 maxWait 동안 기다린다.
+	 * @return 커넥션 객체, close() 하면 풀에 반납된다.
+	 * @throws SQLException 커넥션을 얻지 못한 경우
+	 */
+	@Override
+	public Connection getConnection() throws SQLException {
+		long startTime = System.nanoTime();
+		PooledConnection pooled = null;
+		try {
+			while (true) {
+				pooled = pool.borrowObject();
+				if (!pooled.isExpired()) {
+					break;
+				}
+				pool.invalidateObject(pooled);
+			}
+		} catch (NoSuchElementException e) {
+			metric.timedOut();
+			throw new SQLException("커넥션풀에서 커넥션을 얻지 못했습니다. (" + name + ", maxWait=" + maxWait + "ms, active=" + pool.getNumActive() + ")", e);
+		} catch (SQLException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new SQLException(e);
+		}
+		metric.recordWaitTime(System.nanoTime() - startTime);
+		ConnectionHandle handle = new ConnectionHandle(pooled);
+		if (leakDetectionThreshold > 0) {
+			borrowed.put(handle, Boolean.TRUE);
+		}
+		return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[] { Connection.class }, handle);
+	}
+
+	/**
+	 * 사용자를 지정하여 커넥션을 얻는 기능은 지원하지 않는다.
+	 */
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		throw new SQLFeatureNotSupportedException("ConnectionPool 은 설정된 사용자로만 커넥션을 생성합니다.");
+	}
+
+	/**
+	 * 커넥션풀을 닫는다. 유휴 커넥션은 즉시 닫히고, 사용중인 커넥션은 반납될 때 닫힌다.
+	 */
+	public void close() {
+		if (leakTimer != null) {
+			leakTimer.cancel();
+		}
+		try {
+			pool.close();
+		} catch (Exception e) {
+			logger.error("", e);
+		}
+		logger.info("커넥션풀을 닫았습니다. (" + name + ")");
+	}
+
+	@Override
+	public int getNumActive() {
+		return pool.getNumActive();
+	}
+
+	@Override
+	public int getNumIdle() {
+		return pool.getNumIdle();
+	}
+
+	@Override
+	public int getMaxActive() {
+		return pool.getMaxActive();
+	}
+
+	@Override
+	public PrintWriter getLogWriter() throws SQLException {
+		return logWriter;
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) throws SQLException {
+		this.logWriter = out;
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) throws SQLException {
+		this.loginTimeout = seconds;
+	}
+
+	@Override
+	public int getLoginTimeout() throws SQLException {
+		return loginTimeout;
+	}
+
+	public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		throw new SQLException(getClass().getName() + " is not a wrapper for " + iface.getName());
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this);
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectionPool[" + name + ", active=" + pool.getNumActive() + ", idle=" + pool.getNumIdle() + "]";
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	/*
+	 * 반납된 커넥션을 풀에 돌려준다. 최대 사용시간이 지났으면 폐기한다.
+	 */
+	private void release(PooledConnection pooled) {
+		try {
+			if (pooled.isExpired()) {
+				pool.invalidateObject(pooled);
+			} else {
+				pool.returnObject(pooled);
+			}
+		} catch (Exception e) {
+			logger.error("커넥션을 반납할 수 없습니다. (" + name + ")", e);
+		}
+	}
+
+	/**
+	 * 풀에 보관되는 물리적 커넥션
+	 */
+	private final class PooledConnection {
+		private final Connection connection;
+		private final StatementCache statementCache;
+		private final long createdTime = System.currentTimeMillis();
+
+		private PooledConnection(Connection connection) {
+			this.connection = connection;
+			this.statementCache = (statementCacheSize > 0) ? new StatementCache(connection, statementCacheSize) : null;
+		}
+
+		private boolean isExpired() {
+			return maxLifetime > 0 && System.currentTimeMillis() - createdTime > maxLifetime;
+		}
+
+		private boolean isValid() {
+			try {
+				if ("".equals(validationQuery)) {
+					return connection.isValid(validationTimeout);
+				}
+				java.sql.Statement stmt = connection.createStatement();
+				try {
+					stmt.setQueryTimeout(validationTimeout);
+					stmt.execute(validationQuery);
+				} finally {
+					stmt.close();
+				}
+				return true;
+			} catch (Throwable e) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("유효하지 않은 커넥션을 폐기합니다. (" + name + ")", e);
+				}
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * 커넥션을 생성, 검사, 폐기하는 팩토리
+	 */
+	private final class PooledConnectionFactory extends BasePoolableObjectFactory<PooledConnection> {
+		@Override
+		public PooledConnection makeObject() throws Exception {
+			Connection connection = driver.connect(url, info);
+			if (connection == null) {
+				throw new SQLException("드라이버가 URL을 처리할 수 없습니다. (" + url + ")");
+			}
+			return new PooledConnection(connection);
+		}
+
+		@Override
+		public void destroyObject(PooledConnection pooled) throws Exception {
+			if (pooled.statementCache != null) {
+				pooled.statementCache.close();
+			}
+			pooled.connection.close();
+		}
+
+		@Override
+		public boolean validateObject(PooledConnection pooled) {
+			return !pooled.isExpired() && pooled.isValid();
+		}
+
+		@Override
+		public void passivateObject(PooledConnection pooled) throws Exception {
+			if (!pooled.connection.getAutoCommit()) {
+				pooled.connection.rollback();
+				pooled.connection.setAutoCommit(true);
+			}
+			pooled.connection.clearWarnings();
+		}
+	}
+
+	/**
+	 * 얻어간 커넥션 하나를 나타내는 프록시 핸들러, close() 를 호출하면 풀에 반납하고 이후의 호출은 예외를 발생시킨다.
+	 */
+	private final class ConnectionHandle implements InvocationHandler {
+		private final PooledConnection pooled;
+		private final long borrowTime = System.currentTimeMillis();
+		private final Throwable borrowStack;
+		private volatile boolean closed = false;
+		private volatile boolean leakReported = false;
+
+		private ConnectionHandle(PooledConnection pooled) {
+			this.pooled = pooled;
+			this.borrowStack = (leakDetectionThreshold > 0) ? new Throwable("커넥션을 얻은 위치") : null;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String methodName = method.getName();
+			if ("close".equals(methodName)) {
+				close();
+				return null;
+			} else if ("isClosed".equals(methodName)) {
+				return Boolean.valueOf(closed || pooled.connection.isClosed());
+			} else if ("equals".equals(methodName)) {
+				return Boolean.valueOf(proxy == args[0]);
+			} else if ("hashCode".equals(methodName)) {
+				return Integer.valueOf(System.identityHashCode(proxy));
+			} else if ("toString".equals(methodName)) {
+				return "PooledConnection[" + name + ", " + pooled.connection + "]";
+			}
+			if (closed) {
+				throw new SQLException("이미 반납된 커넥션입니다. (" + name + ")");
+			}
+			if ("prepareStatement".equals(methodName) && pooled.statementCache != null) {
+				if (args.length == 1) {
+					return pooled.statementCache.prepare((Connection) proxy, (String) args[0], ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				} else if (args.length == 3 && args[1] instanceof Integer && args[2] instanceof Integer) {
+					return pooled.statementCache.prepare((Connection) proxy, (String) args[0], ((Integer) args[1]).intValue(), ((Integer) args[2]).intValue());
+				}
+			}
+			try {
+				return method.invoke(pooled.connection, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+
+		private synchronized void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			if (pooled.statementCache != null) {
+				pooled.statementCache.reclaim();
+			}
+			if (borrowed.remove(this) != null && leakReported) {
+				logger.warn("누수로 의심되었던 커넥션이 반납되었습니다. (" + name + ", " + (System.currentTimeMillis() - borrowTime) + "ms)");
+			}
+			release(pooled);
+		}
+	}
+
+	/**
+	 * 기준시간이 지나도록 반납되지 않은 커넥션을 찾아 얻은 위치를 로그로 남기는 작업
+	 */
+	private final class LeakDetectionTask extends TimerTask {
+		@Override
+		public void run() {
+			long now = System.currentTimeMillis();
+			for (ConnectionHandle handle : borrowed.keySet()) {
+				if (!handle.leakReported && now - handle.borrowTime > leakDetectionThreshold) {
+					handle.leakReported = true;
+					metric.leakDetected();
+					logger.warn("커넥션이 " + (now - handle.borrowTime) + "ms 동안 반납되지 않았습니다. DB.release() 가 호출되는지 확인하세요. (" + name + ")", handle.borrowStack);
+				}
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -1,13 +1,13 @@
 package framework.db;
 
 import java.sql.Connection;
-import java.sql.Driver;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.naming.InitialContext;
 import javax.sql.DataSource;
@@ -19,88 +19,231 @@ import framework.config.Config;
 
 /**
  * DB 컨넥션을 관리하는 클래스
+ * db.서비스명.jndiName 이 설정되어 있으면 JNDI DataSource 를, 없거나 찾을 수 없으면 내장 커넥션풀(ConnectionPool)을 사용한다.
+ * 컨넥션은 처음 문장을 실행할 때 얻으며, release() 후에 다시 사용하면 새 컨넥션을 얻는다.
+ * db.서비스명.replicas 가 설정되어 있으면 조회는 리플리카(ReplicaRouter)에서 실행하며,
+ * 주 데이터베이스의 컨넥션을 한번이라도 얻은 후(처음 변경 문장을 실행한 후)에는 release() 후에도 변경 내용을 바로 읽을 수 있도록 조회도 주 데이터베이스에서 실행한다.
+ * 자동커밋 상태가 아니면(트랜잭션 중이면) 조회 후 변경하는 트랜잭션이 이전 데이터를 읽지 않도록 모든 조회를 주 데이터베이스에서 실행하며,
+ * setReadOnly(true)(컨트롤러에서는 @ReadOnly 액션)로 조회 전용임을 지정하면 트랜잭션 중에도 리플리카에서 조회한다.
  */
 public class DB {
 	private static final Log logger = LogFactory.getLog(DB.class);
-	private static final Map<String, DataSource> dsMap = new HashMap<String, DataSource>();
+	private static final ConcurrentMap<String, DataSource> dsMap = new ConcurrentHashMap<String, DataSource>();
 	private final List<AbstractStatement> stmtList = new ArrayList<AbstractStatement>();
+	private final List<ParallelQuery> parallelList = new ArrayList<ParallelQuery>();
 	private String serviceName = null;
 	private Object caller = null;
 	private Connection connection = null;
+	private Connection readConnection = null;
+	private boolean useReplica = true;
+	private boolean primaryUsed = false;
+	private boolean readOnly = false;
+	private boolean autoCommit = true;
+	private boolean releaseOnCommit = false;
+	private int openCursors = 0;
+	private boolean columnar = false;
+	private Set<String> uncommittedTables = null;
+	private String actionName = null;
 	// Mybatis
 	private MybatisDB mybatisDB = null;
+	private MybatisDB readMybatisDB = null;
 
 	public DB(String serviceName, Object caller) {
 		this.serviceName = serviceName;
 		this.caller = caller;
-		Config config = Config.getInstance();
-		try {
-			String jndiName = config.getString("db." + serviceName + ".jndiName");
-			if (!dsMap.containsKey(jndiName)) {
-				InitialContext ctx = new InitialContext();
-				DataSource ds = (DataSource) ctx.lookup(jndiName);
-				dsMap.put(jndiName, ds);
-			}
-			setConnection(dsMap.get(jndiName).getConnection());
-		} catch (Throwable e) {
-			String driver = config.getString("db." + serviceName + ".driver");
-			String url = config.getString("db." + serviceName + ".url");
-			String username = config.getString("db." + serviceName + ".username");
-			String password = config.getString("db." + serviceName + ".password");
-			try {
-				DriverManager.registerDriver((Driver) Class.forName(driver).newInstance());
-				setConnection(DriverManager.getConnection(url, username, password));
-			} catch (Throwable e2) {
-				throw new RuntimeException(e2);
+	}
+
+	/**
+	 * 서비스의 DataSource 를 리턴한다. 처음 요청된 서비스이면 JNDI DataSource 를 찾거나 커넥션풀을 생성하여 등록한다.
+	 * @param serviceName 서비스명
+	 * @return DataSource 객체
+	 * @throws SQLException 커넥션풀을 생성할 수 없는 경우
+	 */
+	public static DataSource getDataSource(String serviceName) throws SQLException {
+		DataSource ds = dsMap.get(serviceName);
+		if (ds == null) {
+			synchronized (dsMap) {
+				ds = dsMap.get(serviceName);
+				if (ds == null) {
+					ds = createDataSource(serviceName);
+					dsMap.put(serviceName, ds);
+				}
 			}
 		}
-		if (logger.isDebugEnabled()) {
-			logger.debug("DB연결 성공! : " + serviceName);
+		return ds;
+	}
+
+	/**
+	 * 내장 커넥션풀을 모두 닫고 등록된 DataSource 를 비운다. JNDI DataSource 는 컨테이너가 관리하므로 닫지 않는다.
+	 */
+	public static void closeDataSources() {
+		synchronized (dsMap) {
+			for (DataSource ds : dsMap.values()) {
+				if (ds instanceof ConnectionPool) {
+					((ConnectionPool) ds).close();
+				}
+			}
+			dsMap.clear();
 		}
+		ReplicaRouter.closeAll();
+		ColumnMetaData.clear();
+		ParallelQuery.shutdown();
 	}
 
 	public PreparedStatement createPrepareStatement(String sql) {
-		PreparedStatement pstmt = PreparedStatement.create(sql, this, caller);
-		stmtList.add(pstmt);
-		return pstmt;
+		return PreparedStatement.create(sql, this, caller);
 	}
 
 	public BatchPreparedStatement createBatchPrepareStatement(String sql) {
-		BatchPreparedStatement pstmt = BatchPreparedStatement.create(sql, this, caller);
-		stmtList.add(pstmt);
-		return pstmt;
+		return BatchPreparedStatement.create(sql, this, caller);
 	}
 
 	public Statement createStatement(String sql) {
-		Statement stmt = Statement.create(sql, this, caller);
-		stmtList.add(stmt);
-		return stmt;
+		return Statement.create(sql, this, caller);
 	}
 
 	public BatchStatement createBatchStatement() {
-		BatchStatement bstmt = BatchStatement.create(this, caller);
-		stmtList.add(bstmt);
-		return bstmt;
+		return BatchStatement.create(this, caller);
+	}
+
+	/**
+	 * 여러 조회를 각자의 컨넥션으로 동시에 실행하는 객체를 생성한다. release() 할 때 끝나지 않은 조회는 취소된다.
+	 * @return ParallelQuery 객체
+	 */
+	public ParallelQuery createParallelQuery() {
+		ParallelQuery query = new ParallelQuery(this, caller);
+		parallelList.add(query);
+		return query;
 	}
 
 	public void setConnection(Connection conn) {
 		connection = conn;
+		if (conn != null) {
+			primaryUsed = true;
+		}
 	}
 
+	/**
+	 * 컨넥션을 리턴한다. 아직 컨넥션을 얻지 않았으면 DataSource 에서 얻어 autoCommit 속성을 적용한다.
+	 * @return Connection 객체
+	 */
 	public Connection getConnection() {
+		if (connection == null) {
+			Connection conn = null;
+			try {
+				conn = getDataSource(serviceName).getConnection();
+				conn.setAutoCommit(autoCommit);
+			} catch (SQLException e) {
+				if (conn != null) {
+					try {
+						conn.close();
+					} catch (Throwable te) {
+						logger.error("", te);
+					}
+				}
+				throw new RuntimeException(e);
+			}
+			connection = conn;
+			primaryUsed = true;
+			if (logger.isDebugEnabled()) {
+				logger.debug("DB연결 성공! : " + serviceName);
+			}
+		}
 		return connection;
 	}
 
+	/**
+	 * 조회에 사용할 컨넥션을 리턴한다. 리플리카가 설정되어 있고 자동커밋 상태이며 아직 주 데이터베이스의 컨넥션을 얻은 적이 없으면 리플리카의 컨넥션을 리턴하며,
+	 * 잠금을 거는 조회이거나 정상인 리플리카가 없으면 주 데이터베이스의 컨넥션을 리턴한다.
+	 * @param sql 실행할 쿼리
+	 * @return Connection 객체
+	 */
+	Connection getReadConnection(String sql) {
+		if (!isReadFromReplica() || !ReplicaRouter.isReadOnly(sql)) {
+			return getConnection();
+		}
+		if (readConnection == null) {
+			ReplicaRouter router = ReplicaRouter.get(serviceName);
+			Connection conn = (router == null) ? null : router.getConnection();
+			if (conn == null) {
+				return getConnection();
+			}
+			readConnection = conn;
+			if (logger.isDebugEnabled()) {
+				logger.debug("리플리카 연결 성공! : " + serviceName);
+			}
+		}
+		return readConnection;
+	}
+
+	/**
+	 * 조회를 리플리카에서 실행할지 여부를 설정한다. 기본값은 true 이며, 리플리카가 설정되지 않은 서비스에서는 무시된다.
+	 * @param useReplica 리플리카 사용여부
+	 */
+	public void setUseReplica(boolean useReplica) {
+		this.useReplica = useReplica;
+	}
+
+	/**
+	 * 이후의 조회를 리플리카에서 실행할 수 있는지 여부를 리턴한다.
+	 * 조회 전용으로 지정하지 않은 채 자동커밋 상태가 아니거나, 주 데이터베이스의 컨넥션을 한번이라도 얻은 후에는(release() 후에도) false 이다.
+	 * @return 리플리카에서 조회하면 true
+	 */
+	public boolean isReadFromReplica() {
+		return useReplica && (autoCommit || readOnly) && !primaryUsed;
+	}
+
+	/**
+	 * 조회 전용 여부를 설정한다. true 이면 자동커밋 상태가 아니어도 조회를 리플리카에서 실행한다.
+	 * 변경 문장이나 잠금을 거는 조회를 실행하여 주 데이터베이스의 컨넥션을 얻은 후에는 조회도 주 데이터베이스에서 실행한다.
+	 * @param readOnly 조회 전용 여부
+	 */
+	public void setReadOnly(boolean readOnly) {
+		this.readOnly = readOnly;
+	}
+
+	/**
+	 * 컨넥션을 얻었는지 여부를 리턴한다.
+	 * @return 컨넥션을 얻었으면 true
+	 */
+	public boolean isConnected() {
+		return connection != null;
+	}
+
+	/**
+	 * 문장과 컨넥션을 닫아 컨넥션을 풀에 반환한다. 커밋하지 않은 작업은 롤백된다.
+	 * 이후에 다시 문장을 실행하면 새 컨넥션을 얻는다.
+	 */
 	public void release() {
-		for (AbstractStatement stmt : stmtList) {
+		for (ParallelQuery query : parallelList) {
+			query.cancel();
+		}
+		parallelList.clear();
+		for (AbstractStatement stmt : new ArrayList<AbstractStatement>(stmtList)) {
 			try {
 				stmt.close();
 			} catch (Throwable e) {
 				logger.error("", e);
 			}
 		}
+		stmtList.clear();
+		openCursors = 0;
+		uncommittedTables = null;
 		if (mybatisDB != null) {
 			mybatisDB.clearCache();
+			mybatisDB = null;
+		}
+		if (readMybatisDB != null) {
+			readMybatisDB.clearCache();
+			readMybatisDB = null;
+		}
+		if (readConnection != null) {
+			try {
+				readConnection.close();
+			} catch (Throwable e) {
+				logger.error("", e);
+			}
+			readConnection = null;
 		}
 		if (connection != null) {
 			try {
@@ -113,6 +256,7 @@ public class DB {
 			} catch (Throwable e) {
 				logger.error("", e);
 			}
+			connection = null;
 			if (logger.isDebugEnabled()) {
 				logger.debug("DB연결 종료! : " + serviceName);
 			}
@@ -123,15 +267,48 @@ public class DB {
 		}
 	}
 
+	/**
+	 * 커밋한다. 컨넥션을 얻지 않았으면 아무것도 하지 않으며, releaseOnCommit 이 true 이면 커밋 후 컨넥션을 반환한다.
+	 * 열려있는 RecordCursor 가 있으면 컨넥션을 반환하지 않는다.
+	 */
 	public void commit() {
+		if (connection == null) {
+			return;
+		}
 		try {
-			connection.commit();
+			commitInternal();
 		} catch (SQLException e) {
 			throw new RuntimeException(e);
 		}
+		if (releaseOnCommit && openCursors == 0) {
+			release();
+		}
+	}
+
+	/**
+	 * 컨넥션을 반환하지 않고 커밋한다. 커밋하지 않은 변경의 쿼리 결과 캐시 항목을 다시 무효화한다.
+	 * 문장을 실행하는 도중에 중간 커밋할 때 사용하며, releaseOnCommit 설정과 관계없이 컨넥션을 유지한다.
+	 * @throws SQLException 커밋할 수 없는 경우
+	 */
+	void commitInternal() throws SQLException {
+		if (connection == null) {
+			return;
+		}
+		connection.commit();
+		if (uncommittedTables != null) {
+			QueryCache.invalidate(serviceName, uncommittedTables.toArray(new String[uncommittedTables.size()]));
+			uncommittedTables = null;
+		}
 	}
 
+	/**
+	 * 롤백한다. 컨넥션을 얻지 않았으면 아무것도 하지 않는다.
+	 */
 	public void rollback() {
+		uncommittedTables = null;
+		if (connection == null) {
+			return;
+		}
 		try {
 			connection.rollback();
 		} catch (SQLException e) {
@@ -139,7 +316,15 @@ public class DB {
 		}
 	}
 
+	/**
+	 * autoCommit 속성을 설정한다. 컨넥션을 얻지 않았으면 컨넥션을 얻을 때 적용한다.
+	 * @param isAuto autoCommit 여부
+	 */
 	public void setAutoCommit(boolean isAuto) {
+		autoCommit = isAuto;
+		if (connection == null) {
+			return;
+		}
 		try {
 			connection.setAutoCommit(isAuto);
 		} catch (SQLException e) {
@@ -147,14 +332,146 @@ public class DB {
 		}
 	}
 
+	/**
+	 * 커밋 후 컨넥션을 바로 반환할지 여부를 설정한다.
+	 * 반환한 후에 다시 문장을 실행하면 새 컨넥션을 얻으므로, 이전에 얻은 MybatisDB 객체는 다시 얻어서 사용하여야 한다.
+	 * @param releaseOnCommit 커밋 후 반환여부
+	 */
+	public void setReleaseOnCommit(boolean releaseOnCommit) {
+		this.releaseOnCommit = releaseOnCommit;
+	}
+
+	/**
+	 * 이 DB 객체로 만드는 문장의 조회결과를 컬럼 단위로 담을지 여부를 설정한다.
+	 * @param columnar 컬럼 단위 저장 여부
+	 */
+	public void setColumnar(boolean columnar) {
+		this.columnar = columnar;
+	}
+
+	public boolean isColumnar() {
+		return columnar;
+	}
+
 	public String getServiceName() {
 		return serviceName;
 	}
 
+	/**
+	 * 이 DB 객체를 사용하는 액션 이름을 설정한다. 느린 쿼리 로그에 기록된다.
+	 * @param actionName 액션 이름(패키지 + 클래스 + 메소드명)
+	 */
+	public void setActionName(String actionName) {
+		this.actionName = actionName;
+	}
+
+	public String getActionName() {
+		return actionName;
+	}
+
 	public MybatisDB getMybatisDB() {
 		if (mybatisDB == null) {
-			mybatisDB = new MybatisDB(connection);
+			mybatisDB = new MybatisDB(getConnection());
 		}
 		return mybatisDB;
 	}
+
+	/**
+	 * 조회에 사용할 MybatisDB 객체를 리턴한다. 리플리카에서 조회할 수 없으면 getMybatisDB() 와 같다.
+	 * @return MybatisDB 객체
+	 */
+	public MybatisDB getReadMybatisDB() {
+		if (!isReadFromReplica()) {
+			return getMybatisDB();
+		}
+		if (readMybatisDB == null) {
+			Connection conn = getReadConnection(null);
+			if (conn == connection) {
+				return getMybatisDB();
+			}
+			readMybatisDB = new MybatisDB(conn);
+		}
+		return readMybatisDB;
+	}
+
+	/**
+	 * 테이블에 의존하는 쿼리 결과 캐시 항목을 무효화한다. 프로시저 호출이나 MyBatis 처럼 변경 대상 테이블을 알 수 없는 변경 후에 호출한다.
+	 * 쿼리 결과 캐시를 사용하지 않는 서비스이면 아무것도 하지 않는다.
+	 * @param tables 변경된 테이블
+	 */
+	public void invalidateQueryCache(String... tables) {
+		if (!QueryCache.isEnabled(serviceName)) {
+			return;
+		}
+		QueryCache.invalidate(serviceName, tables);
+		if (!autoCommit) {
+			if (uncommittedTables == null) {
+				uncommittedTables = new LinkedHashSet<String>();
+			}
+			for (String table : tables) {
+				uncommittedTables.add(table);
+			}
+		}
+	}
+
+	/**
+	 * 변경 문장이 실행되었음을 등록한다. 쿼리 결과 캐시를 사용하면 대상 테이블의 캐시 항목을 무효화하며,
+	 * 자동커밋 상태가 아니면 커밋할 때 다시 무효화하여 커밋 전에 다른 서버가 보관한 이전 결과도 무효화한다.
+	 * @param sql 변경 문장
+	 */
+	void written(String sql) {
+		if (sql != null && QueryCache.isEnabled(serviceName)) {
+			invalidateQueryCache(QueryCache.getWriteTables(sql));
+		}
+	}
+
+	/**
+	 * 커밋하지 않은 변경이 있는지 여부를 리턴한다. 커밋하지 않은 결과가 다른 요청에 보이지 않도록 이 동안은 쿼리 결과 캐시를 사용하지 않는다.
+	 * @return 커밋하지 않은 변경이 있으면 true
+	 */
+	boolean hasUncommittedWrites() {
+		return uncommittedTables != null;
+	}
+
+	/**
+	 * 문장이 JDBC 문장을 열었음을 등록한다. release() 할 때 열린 문장만 닫는다.
+	 * @param stmt 문장 객체
+	 */
+	void opened(AbstractStatement stmt) {
+		stmtList.add(stmt);
+	}
+
+	/**
+	 * 문장이 JDBC 문장을 닫았음을 등록한다.
+	 * @param stmt 문장 객체
+	 */
+	void closed(AbstractStatement stmt) {
+		stmtList.remove(stmt);
+	}
+
+	void cursorOpened() {
+		openCursors++;
+	}
+
+	void cursorClosed() {
+		openCursors--;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	/*
+	 * jndiName 이 설정되어 있으면 JNDI DataSource 를 찾고, 없거나 찾을 수 없으면 커넥션풀을 생성
+	 */
+	private static DataSource createDataSource(String serviceName) throws SQLException {
+		String jndiName = Config.getInstance().getString("db." + serviceName + ".jndiName", "");
+		if (!"".equals(jndiName)) {
+			try {
+				InitialContext ctx = new InitialContext();
+				return (DataSource) ctx.lookup(jndiName);
+			} catch (Throwable e) {
+				logger.error("JNDI DataSource 를 찾을 수 없어 커넥션풀을 사용합니다. (" + serviceName + " : " + jndiName + ")", e);
+			}
+		}
+		return new ConnectionPool(serviceName);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,246 @@
+package framework.db;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import framework.config.Config;
+
+/**
+ * 데이터베이스별로 페이징 쿼리와 건수 쿼리를 만드는 클래스
+ * application.properties 의 db.서비스명.dialect (oracle, oracle12, mysql, mssql, postgresql, none) 로 지정하며,
+ * 지정하지 않으면 컨넥션의 DatabaseMetaData 로 판별한다. none 이거나 판별할 수 없으면 null 을 리턴하고, 이 경우 기존처럼 클라이언트에서 페이징한다.
+ * 페이징 쿼리의 범위값은 SQL 끝에 추가되는 두개의 바인드 변수(?)로 전달하여 페이지가 달라도 같은 SQL 을 사용한다.
+ */
+abstract class Dialect {
+	private static final Log logger = LogFactory.getLog(Dialect.class);
+	private static final ConcurrentMap<String, Dialect> dialectMap = new ConcurrentHashMap<String, Dialect>();
+	private static final Dialect NONE = new NoneDialect();
+	private static final Pattern ORDER_BY_PATTERN = Pattern.compile("\\border\\s+by\\b", Pattern.CASE_INSENSITIVE);
+
+	/**
+	 * 서비스의 Dialect 를 리턴한다.
+	 * @param serviceName 서비스명
+	 * @param connection 판별에 사용할 컨넥션
+	 * @return Dialect 객체, 데이터베이스 페이징을 사용하지 않으면 null
+	 */
+	static Dialect get(String serviceName, Connection connection) {
+		Dialect dialect = dialectMap.get(serviceName);
+		if (dialect == null) {
+			dialect = create(serviceName, connection);
+			Dialect old = dialectMap.putIfAbsent(serviceName, dialect);
+			if (old != null) {
+				dialect = old;
+			}
+		}
+		return (dialect == NONE) ? null : dialect;
+	}
+
+	/**
+	 * 결과 범위를 지정하는 페이징 쿼리를 리턴한다.
+	 * @param sql 원본 쿼리
+	 * @return 끝에 두개의 바인드 변수가 추가된 페이징 쿼리
+	 */
+	abstract String getPageSql(String sql);
+
+	/**
+	 * 페이징 쿼리에 추가된 바인드 변수의 값을 순서대로 리턴한다.
+	 * @param offset 건너뛸 행의 수
+	 * @param limit 가져올 행의 수
+	 * @return 바인드 변수 값
+	 */
+	abstract int[] getPageParams(int offset, int limit);
+
+	/**
+	 * 범위값을 바인드 변수 대신 문자열로 넣은 페이징 쿼리를 리턴한다. Statement 에서 사용한다.
+	 * @param sql 원본 쿼리
+	 * @param offset 건너뛸 행의 수
+	 * @param limit 가져올 행의 수
+	 * @return 페이징 쿼리
+	 */
+	String getPageSql(String sql, int offset, int limit) {
+		StringBuilder buf = new StringBuilder(getPageSql(sql));
+		int[] params = getPageParams(offset, limit);
+		int index = buf.length();
+		for (int i = params.length - 1; i >= 0; i--) {
+			index = buf.lastIndexOf("?", index - 1);
+			buf.replace(index, index + 1, String.valueOf(params[i]));
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * 페이징 쿼리 결과의 끝에 추가되는 컬럼 수를 리턴한다. 이 컬럼은 RecordSet 에 담지 않는다.
+	 * @return 추가되는 컬럼 수
+	 */
+	int getExtraColumnCount() {
+		return 0;
+	}
+
+	/**
+	 * 전체 건수를 구하는 쿼리를 리턴한다. 원본 쿼리의 마지막 ORDER BY 절은 제거한다.
+	 * @param sql 원본 쿼리
+	 * @return 건수 쿼리
+	 */
+	static String getCountSql(String sql) {
+		return "SELECT COUNT(*) FROM (" + removeOrderBy(sql) + ") CNT_";
+	}
+
+	/**
+	 * 쿼리의 마지막 ORDER BY 절이 괄호 밖에 있으면 그 위치를 리턴한다.
+	 * @param sql 쿼리
+	 * @return ORDER BY 의 위치, 없으면 -1
+	 */
+	static int indexOfOrderBy(String sql) {
+		Matcher matcher = ORDER_BY_PATTERN.matcher(sql);
+		int index = -1;
+		while (matcher.find()) {
+			index = matcher.start();
+		}
+		if (index < 0) {
+			return -1;
+		}
+		int depth = 0;
+		for (int i = index; i < sql.length(); i++) {
+			char c = sql.charAt(i);
+			if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				if (--depth < 0) {
+					return -1;
+				}
+			}
+		}
+		return index;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	private static String removeOrderBy(String sql) {
+		int index = indexOfOrderBy(sql);
+		return (index < 0) ? sql : sql.substring(0, index);
+	}
+
+	/*
+	 * 설정값이나 DatabaseMetaData 로 Dialect 를 생성
+	 */
+	private static Dialect create(String serviceName, Connection connection) {
+		String name = Config.getInstance().getString("db." + serviceName + ".dialect", "").trim().toLowerCase();
+		if ("".equals(name)) {
+			try {
+				DatabaseMetaData meta = connection.getMetaData();
+				String product = meta.getDatabaseProductName().toLowerCase();
+				int version = meta.getDatabaseMajorVersion();
+				if (product.contains("oracle")) {
+					name = (version >= 12) ? "oracle12" : "oracle";
+				} else if (product.contains("mysql") || product.contains("mariadb")) {
+					name = "mysql";
+				} else if (product.contains("microsoft") && version >= 11) {
+					name = "mssql";
+				} else if (product.contains("postgresql") || product.contains("h2") || product.contains("hsql")) {
+					name = "postgresql";
+				} else {
+					name = "none";
+				}
+			} catch (SQLException e) {
+				logger.error("데이터베이스 종류를 판별할 수 없습니다. (" + serviceName + ")", e);
+				name = "none";
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Dialect : " + serviceName + " = " + name);
+		}
+		if ("oracle".equals(name)) {
+			return new OracleDialect();
+		} else if ("oracle12".equals(name)) {
+			return new OffsetFetchDialect(false);
+		} else if ("mssql".equals(name)) {
+			return new OffsetFetchDialect(true);
+		} else if ("mysql".equals(name) || "postgresql".equals(name)) {
+			return new LimitOffsetDialect();
+		}
+		return NONE;
+	}
+
+	/**
+	 * ROWNUM 을 이용하는 Oracle 11g 이하의 페이징
+	 */
+	private static final class OracleDialect extends Dialect {
+		@Override
+		String getPageSql(String sql) {
+			return "SELECT * FROM (SELECT ROW_.*, ROWNUM ROWNUM_ FROM (" + sql + ") ROW_ WHERE ROWNUM <= ?) WHERE ROWNUM_ > ?";
+		}
+
+		@Override
+		int[] getPageParams(int offset, int limit) {
+			return new int[] { offset + limit, offset };
+		}
+
+		@Override
+		int getExtraColumnCount() {
+			return 1;
+		}
+	}
+
+	/**
+	 * OFFSET ... FETCH 를 이용하는 Oracle 12c 이상, SQL Server 2012 이상의 페이징
+	 * SQL Server 는 ORDER BY 가 반드시 있어야 하므로 없으면 ORDER BY (SELECT NULL) 을 추가한다.
+	 */
+	private static final class OffsetFetchDialect extends Dialect {
+		private final boolean requireOrderBy;
+
+		private OffsetFetchDialect(boolean requireOrderBy) {
+			this.requireOrderBy = requireOrderBy;
+		}
+
+		@Override
+		String getPageSql(String sql) {
+			if (requireOrderBy && indexOfOrderBy(sql) < 0) {
+				sql = sql + " ORDER BY (SELECT NULL)";
+			}
+			return sql + " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY";
+		}
+
+		@Override
+		int[] getPageParams(int offset, int limit) {
+			return new int[] { offset, limit };
+		}
+	}
+
+	/**
+	 * LIMIT ... OFFSET 을 이용하는 MySQL, PostgreSQL 의 페이징
+	 */
+	private static final class LimitOffsetDialect extends Dialect {
+		@Override
+		String getPageSql(String sql) {
+			return sql + " LIMIT ? OFFSET ?";
+		}
+
+		@Override
+		int[] getPageParams(int offset, int limit) {
+			return new int[] { limit, offset };
+		}
+	}
+
+	/**
+	 * 데이터베이스 페이징을 사용하지 않음을 나타내는 Dialect
+	 */
+	private static final class NoneDialect extends Dialect {
+		@Override
+		String getPageSql(String sql) {
+			return sql;
+		}
+
+		@Override
+		int[] getPageParams(int offset, int limit) {
+			return new int[0];
+		}
+	}
+}
\ No newline at end of file
@@ -22,6 +22,14 @@ public class JdbcDaoSupport {
 		this.db.rollback();
 	}
 
+	/**
+	 * 여러 조회를 각자의 컨넥션으로 동시에 실행하는 객체를 생성한다.
+	 * @return ParallelQuery 객체
+	 */
+	protected ParallelQuery createParallelQuery() {
+		return this.db.createParallelQuery();
+	}
+
 	protected RecordSet select(String query) {
 		return select(query, null, 0, 0);
 	}
@@ -42,6 +50,79 @@ public class JdbcDaoSupport {
 		}
 	}
 
+	protected RecordSet selectWithCount(String query, int currPage, int pageSize) {
+		return selectWithCount(query, null, currPage, pageSize);
+	}
+
+	/**
+	 * 페이징 조회를 하고 전체 건수를 함께 구한다. 전체 건수는 RecordSet 의 getTotalCount() 로 얻는다.
+	 * @param query 쿼리
+	 * @param where 파라미터, null 이면 Statement 로 실행한다.
+	 * @param currPage 현재 페이지, 첫번째 페이지는 1
+	 * @param pageSize 한 페이지에 표시할 데이터 갯수
+	 * @return RecordSet 객체
+	 */
+	protected RecordSet selectWithCount(String query, Object[] where, int currPage, int pageSize) {
+		if (where == null) {
+			Statement stmt = null;
+			try {
+				stmt = this.db.createStatement(query);
+				return stmt.executeQueryWithCount(currPage, pageSize);
+			} finally {
+				if (stmt != null) {
+					stmt.close();
+				}
+			}
+		} else {
+			PreparedStatement pstmt = null;
+			try {
+				pstmt = this.db.createPrepareStatement(query);
+				pstmt.set(where);
+				return pstmt.executeQueryWithCount(currPage, pageSize);
+			} finally {
+				if (pstmt != null) {
+					pstmt.close();
+				}
+			}
+		}
+	}
+
+	protected RecordCursor selectCursor(String query) {
+		return selectCursor(query, null, 100);
+	}
+
+	protected RecordCursor selectCursor(String query, Object[] where) {
+		return selectCursor(query, where, 100);
+	}
+
+	/**
+	 * 쿼리 결과를 한 행씩 읽는 커서를 리턴한다. 다 읽었거나 사용이 끝나면 커서를 닫아야 한다.
+	 * @param query 쿼리
+	 * @param where 파라미터, null 이면 Statement 로 실행한다.
+	 * @param fetchSize 데이터베이스에서 한번에 가져올 행의 수
+	 * @return RecordCursor 객체
+	 */
+	protected RecordCursor selectCursor(String query, Object[] where, int fetchSize) {
+		if (where == null) {
+			Statement stmt = this.db.createStatement(query);
+			try {
+				return stmt.executeCursor(fetchSize);
+			} catch (RuntimeException e) {
+				stmt.close();
+				throw e;
+			}
+		} else {
+			PreparedStatement pstmt = this.db.createPrepareStatement(query);
+			try {
+				pstmt.set(where);
+				return pstmt.executeCursor(fetchSize);
+			} catch (RuntimeException e) {
+				pstmt.close();
+				throw e;
+			}
+		}
+	}
+
 	protected int update(String query) {
 		return update(query, null);
 	}
@@ -4,6 +4,10 @@ import java.io.IOException;
 import java.io.Reader;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -48,7 +52,37 @@ public class MybatisDB {
 		sqlSession.clearCache();
 	}
 
-	private synchronized SqlSessionFactory getSqlSessionFactory() {
+	/**
+	 * mybatis-config.xml 을 읽어 SqlSessionFactory 를 미리 생성한다. 이미 생성되어 있으면 아무것도 하지 않는다.
+	 */
+	public static void init() {
+		getSqlSessionFactory();
+	}
+
+	/**
+	 * 매핑된 문장에 파라미터를 적용한 SQL 을 리턴한다.
+	 * @param statement 매핑된 문장의 아이디
+	 * @param parameter 파라미터
+	 * @return SQL 문자열
+	 */
+	static String getSql(String statement, Object parameter) {
+		Object param = parameter;
+		if (parameter instanceof Collection) {
+			Map<String, Object> map = new HashMap<String, Object>();
+			map.put("collection", parameter);
+			if (parameter instanceof List) {
+				map.put("list", parameter);
+			}
+			param = map;
+		} else if (parameter != null && parameter.getClass().isArray()) {
+			Map<String, Object> map = new HashMap<String, Object>();
+			map.put("array", parameter);
+			param = map;
+		}
+		return getSqlSessionFactory().getConfiguration().getMappedStatement(statement).getBoundSql(param).getSql();
+	}
+
+	private static synchronized SqlSessionFactory getSqlSessionFactory() {
 		if (sqlSessionFactory == null) {
 			Reader reader = null;
 			try {
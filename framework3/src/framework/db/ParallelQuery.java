@@ -0,0 +1,213 @@
+package framework.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import framework.config.Config;
+
+/**
+ * 서로 관계없는 여러 조회를 각자의 컨넥션으로 동시에 실행하고 결과를 모으는 클래스
+ * 조회는 크기가 제한된 공용 실행기(application.properties 의 db.parallel.threads, db.parallel.queueSize)에서 실행되며,
+ * 실행기가 가득 차면 호출한 스레드에서 바로 실행한다. 각 조회의 컨넥션은 조회가 끝나면 바로 풀에 반환된다.
+ * join 에서 조회가 실패하거나 시간이 초과되면 남은 조회를 취소하고 예외를 발생시킨다.
+ * 생성한 DB 의 release() 가 호출되면(Controller 의 처리가 끝나면) 끝나지 않은 조회를 취소한다.
+ * 이미 실행중인 조회의 컨넥션은 데이터베이스에서 조회가 끝나는 즉시 반환된다.
+ * <br>
+ * ex) 대시보드의 조회를 동시에 실행하는 경우
+ * <br>
+ * ParallelQuery query = getDB().createParallelQuery();
+ * <br>
+ * query.select("SELECT ... FROM A");
+ * <br>
+ * query.select("SELECT ... FROM B WHERE ID = ?", new Object[] { id });
+ * <br>
+ * List&lt;RecordSet&gt; list = query.join(5000);
+ */
+public final class ParallelQuery {
+	private static final Log logger = LogFactory.getLog(ParallelQuery.class);
+	private static volatile ExecutorService executor = null;
+	private final DB db;
+	private final Object caller;
+	private final List<Future<RecordSet>> futures = new ArrayList<Future<RecordSet>>();
+
+	ParallelQuery(DB db, Object caller) {
+		this.db = db;
+		this.caller = caller;
+	}
+
+	/**
+	 * 조회를 실행기에 제출한다.
+	 * @param sql 쿼리
+	 * @return 조회결과를 얻을 수 있는 Future 객체
+	 */
+	public Future<RecordSet> select(String sql) {
+		return select(sql, null, 0, 0);
+	}
+
+	/**
+	 * 조회를 실행기에 제출한다.
+	 * @param sql 쿼리
+	 * @param where 파라미터, null 이면 Statement 로 실행한다.
+	 * @return 조회결과를 얻을 수 있는 Future 객체
+	 */
+	public Future<RecordSet> select(String sql, Object[] where) {
+		return select(sql, where, 0, 0);
+	}
+
+	/**
+	 * 페이징 조회를 실행기에 제출한다.
+	 * @param sql 쿼리
+	 * @param where 파라미터, null 이면 Statement 로 실행한다.
+	 * @param currPage 현재 페이지, 첫번째 페이지는 1
+	 * @param pageSize 한 페이지에 표시할 데이터 갯수
+	 * @return 조회결과를 얻을 수 있는 Future 객체
+	 */
+	public Future<RecordSet> select(final String sql, final Object[] where, final int currPage, final int pageSize) {
+		final String serviceName = db.getServiceName();
+		final boolean columnar = db.isColumnar();
+		final boolean useReplica = db.isReadFromReplica();
+		final String actionName = db.getActionName();
+		Future<RecordSet> future = getExecutor().submit(new Callable<RecordSet>() {
+			@Override
+			public RecordSet call() throws Exception {
+				DB child = new DB(serviceName, caller);
+				child.setColumnar(columnar);
+				child.setUseReplica(useReplica);
+				child.setActionName(actionName);
+				try {
+					if (where == null) {
+						Statement stmt = child.createStatement(sql);
+						try {
+							return stmt.executeQuery(currPage, pageSize);
+						} finally {
+							stmt.close();
+						}
+					} else {
+						PreparedStatement pstmt = child.createPrepareStatement(sql);
+						try {
+							pstmt.set(where);
+							return pstmt.executeQuery(currPage, pageSize);
+						} finally {
+							pstmt.close();
+						}
+					}
+				} finally {
+					child.release();
+				}
+			}
+		});
+		synchronized (futures) {
+			futures.add(future);
+		}
+		return future;
+	}
+
+	/**
+	 * 제출한 모든 조회가 끝날 때까지 기다린다.
+	 * @return 제출한 순서대로의 조회결과
+	 */
+	public List<RecordSet> join() {
+		return join(0);
+	}
+
+	/**
+	 * 제출한 모든 조회가 끝날 때까지 기다린다. 하나라도 실패하거나 시간이 초과되면 남은 조회를 취소하고 예외를 발생시킨다.
+	 * @param timeout 전체 대기시간(밀리초), 0 이하이면 제한하지 않는다.
+	 * @return 제출한 순서대로의 조회결과
+	 */
+	public List<RecordSet> join(long timeout) {
+		List<Future<RecordSet>> list;
+		synchronized (futures) {
+			list = new ArrayList<Future<RecordSet>>(futures);
+		}
+		List<RecordSet> result = new ArrayList<RecordSet>(list.size());
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		try {
+			for (Future<RecordSet> future : list) {
+				if (timeout > 0) {
+					result.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+				} else {
+					result.add(future.get());
+				}
+			}
+		} catch (TimeoutException e) {
+			cancel();
+			throw new RuntimeException("병렬 조회 시간이 초과되었습니다. (" + timeout + "ms)", e);
+		} catch (ExecutionException e) {
+			cancel();
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new RuntimeException(cause);
+		} catch (InterruptedException e) {
+			cancel();
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		return result;
+	}
+
+	/**
+	 * 끝나지 않은 조회를 취소한다.
+	 */
+	public void cancel() {
+		synchronized (futures) {
+			for (Future<RecordSet> future : futures) {
+				future.cancel(true);
+			}
+			futures.clear();
+		}
+	}
+
+	/**
+	 * 공용 실행기를 종료한다. 애플리케이션이 종료될 때 호출된다.
+	 */
+	static void shutdown() {
+		synchronized (ParallelQuery.class) {
+			if (executor != null) {
+				executor.shutdownNow();
+				executor = null;
+			}
+		}
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	private static ExecutorService getExecutor() {
+		if (executor == null) {
+			synchronized (ParallelQuery.class) {
+				if (executor == null) {
+					Config config = Config.getInstance();
+					int threads = config.getInt("db.parallel.threads", Integer.valueOf(16)).intValue();
+					int queueSize = config.getInt("db.parallel.queueSize", Integer.valueOf(100)).intValue();
+					logger.info("병렬 조회 실행기 : fixed thread pool (threads=" + threads + ", queueSize=" + queueSize + ")");
+					executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+						private final AtomicInteger seq = new AtomicInteger();
+
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread thread = new Thread(r, "framework-query-" + seq.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					}, new ThreadPoolExecutor.CallerRunsPolicy());
+				}
+			}
+		}
+		return executor;
+	}
+}
\ No newline at end of file
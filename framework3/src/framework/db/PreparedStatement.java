@@ -2,6 +2,7 @@ package framework.db;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -16,9 +17,13 @@ public final class PreparedStatement extends AbstractStatement {
 	private String sql = null;
 	private DB db = null;
 	private java.sql.PreparedStatement pstmt = null;
+	private Connection pstmtConnection = null;
 	private RecordSet rs = null;
 	private int upCnt = 0;
 	private Object caller = null;
+	private boolean columnar = false;
+	private int cacheSeconds = 0;
+	private String[] cacheTables = null;
 
 	public static PreparedStatement create(String sql, DB db, Object caller) {
 		return new PreparedStatement(sql, db, caller);
@@ -28,6 +33,7 @@ public final class PreparedStatement extends AbstractStatement {
 		this.sql = sql;
 		this.db = db;
 		this.caller = caller;
+		this.columnar = db.isColumnar();
 	}
 
 	@Override
@@ -36,6 +42,8 @@ public final class PreparedStatement extends AbstractStatement {
 			if (pstmt != null) {
 				pstmt.close();
 				pstmt = null;
+				pstmtConnection = null;
+				db.closed(this);
 			}
 			clearParam();
 		} catch (SQLException e) {
@@ -48,55 +56,160 @@ public final class PreparedStatement extends AbstractStatement {
 		param.clear();
 	}
 
+	/**
+	 * 조회결과를 컬럼 단위로 담을지 여부를 설정한다. 기본값은 DB 의 설정을 따른다.
+	 * 행이 많은 조회결과의 메모리 사용량을 줄이며, RecordSet 의 사용법은 같다.
+	 * @param columnar 컬럼 단위 저장 여부
+	 */
+	public void setColumnar(boolean columnar) {
+		this.columnar = columnar;
+	}
+
+	/**
+	 * 조회결과를 쿼리 결과 캐시에 보관하도록 설정한다. application.properties 의 db.서비스명.queryCache 가 true 인 서비스에서만 사용된다.
+	 * 같은 쿼리와 파라미터의 조회는 보관시간 동안 캐시에서 읽으며, 의존하는 테이블이 변경되면 다시 조회한다.
+	 * @param seconds 보관시간(초), 0 이하이면 캐시하지 않는다.
+	 * @param tables 조회결과가 의존하는 테이블, 없으면 쿼리의 FROM, JOIN 절에서 찾는다. 복잡한 쿼리는 직접 지정하는 것이 안전하다.
+	 */
+	public void setCache(int seconds, String... tables) {
+		this.cacheSeconds = seconds;
+		this.cacheTables = tables;
+	}
+
 	public RecordSet executeQuery() {
 		return executeQuery(0, 0);
 	}
 
+	/**
+	 * 쿼리를 실행한다. currPage 와 pageSize 가 0 보다 크면 데이터베이스에 맞는 페이징 쿼리로 해당 페이지만 조회하며,
+	 * 데이터베이스 페이징을 사용할 수 없으면 결과를 읽으면서 페이징한다.
+	 * @param currPage 현재 페이지, 첫번째 페이지는 1
+	 * @param pageSize 한 페이지에 표시할 데이터 갯수
+	 * @return RecordSet 객체
+	 */
 	public RecordSet executeQuery(int currPage, int pageSize) {
 		if (getSQL() == null) {
 			logger.error("Query is Null");
 			return null;
 		}
+		if (cacheSeconds > 0 && QueryCache.isEnabled(db.getServiceName()) && !db.hasUncommittedWrites()) {
+			QueryCache.Lookup lookup = QueryCache.lookup(db.getServiceName(), getSQL(), param, currPage, pageSize, cacheTables);
+			if (lookup.getResult() != null) {
+				rs = lookup.getResult();
+				return rs;
+			}
+			lookup.store(executeQueryDirect(currPage, pageSize), cacheSeconds);
+			return rs;
+		}
+		return executeQueryDirect(currPage, pageSize);
+	}
+
+	public RecordSet executeQuery(String sql) {
+		setSQL(sql);
+		return executeQuery(0, 0);
+	}
+
+	public RecordSet executeQuery(String sql, int currPage, int pageSize) {
+		setSQL(sql);
+		return executeQuery(currPage, pageSize);
+	}
+
+	/**
+	 * 페이징 조회를 하고 전체 건수를 함께 구한다. 전체 건수는 RecordSet 의 getTotalCount() 로 얻는다.
+	 * @param currPage 현재 페이지, 첫번째 페이지는 1
+	 * @param pageSize 한 페이지에 표시할 데이터 갯수
+	 * @return RecordSet 객체
+	 */
+	public RecordSet executeQueryWithCount(int currPage, int pageSize) {
+		int totalCount = executeCount();
+		RecordSet result = executeQuery(currPage, pageSize);
+		if (result != null) {
+			result.setTotalCount(totalCount);
+		}
+		return result;
+	}
+
+	/**
+	 * 같은 파라미터로 SELECT COUNT(*) FROM (쿼리) 를 실행하여 전체 건수를 구한다.
+	 * @return 전체 건수
+	 */
+	public int executeCount() {
+		if (getSQL() == null) {
+			logger.error("Query is Null");
+			return 0;
+		}
+		String countSql = Dialect.getCountSql(getSQL());
+		java.sql.PreparedStatement countPstmt = null;
+		long startTime = System.nanoTime();
 		try {
-			java.sql.PreparedStatement pstmt = getPrepareStatment();
-			if (getParamSize() > 0) {
-				for (int i = 1; i <= getParamSize(); i++) {
-					Object param = getObject(i - 1);
-					if (param == null || "".equals(param)) {
-						pstmt.setNull(i, java.sql.Types.VARCHAR);
-					} else if (param instanceof java.util.Date) {
-						java.util.Date d = (java.util.Date) param;
-						pstmt.setObject(i, new java.sql.Timestamp(d.getTime()));
-					} else {
-						pstmt.setObject(i, param);
-					}
-				}
+			countPstmt = db.getReadConnection(countSql).prepareStatement(countSql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			setQueryParams(countPstmt);
+			if (logger.isDebugEnabled()) {
+				logger.debug("@Sql Start (P_STATEMENT COUNT) Caller : " + caller.getClass().getName() + "\n@Sql Command : \n" + countSql);
+			}
+			ResultSet resultSet = countPstmt.executeQuery();
+			try {
+				int count = resultSet.next() ? resultSet.getInt(1) : 0;
+				SqlStats.record(db, caller, countSql, param, startTime, 1, 0);
+				return count;
+			} finally {
+				resultSet.close();
 			}
+		} catch (SQLException e) {
+			SqlStats.error(countSql);
+			logger.error("", e);
+			throw new RuntimeException(e.getMessage() + "\nSQL : " + countSql, e);
+		} finally {
+			closeQuietly(countPstmt);
+		}
+	}
+
+	public RecordCursor executeCursor() {
+		return executeCursor(100);
+	}
+
+	/**
+	 * 쿼리를 실행하고 결과를 한 행씩 읽는 커서를 리턴한다. 커서를 닫으면 이 문장도 닫힌다.
+	 * @param fetchSize 데이터베이스에서 한번에 가져올 행의 수(MySQL 은 Integer.MIN_VALUE 이어야 스트리밍된다)
+	 * @return RecordCursor 객체
+	 */
+	public RecordCursor executeCursor(int fetchSize) {
+		if (getSQL() == null) {
+			logger.error("Query is Null");
+			return null;
+		}
+		ResultSet resultSet = null;
+		long startTime = System.nanoTime();
+		try {
+			java.sql.PreparedStatement pstmt = getPrepareStatment(db.getReadConnection(getSQL()));
+			setQueryParams(pstmt);
+			pstmt.setFetchSize(fetchSize);
 			if (logger.isDebugEnabled()) {
 				StringBuilder log = new StringBuilder();
-				log.append("@Sql Start (P_STATEMENT) FetchSize : " + pstmt.getFetchSize() + " Caller : " + caller.getClass().getName() + "\n");
+				log.append("@Sql Start (P_STATEMENT CURSOR) FetchSize : " + pstmt.getFetchSize() + " Caller : " + caller.getClass().getName() + "\n");
 				log.append("@Sql Command : \n" + getQueryString());
 				logger.debug(log.toString());
 			}
-			rs = new RecordSet(pstmt.executeQuery(), currPage, pageSize);
-			if (logger.isDebugEnabled()) {
-				logger.debug("@Sql End (P_STATEMENT)");
-			}
+			resultSet = pstmt.executeQuery();
+			SqlStats.record(db, caller, getSQL(), param, startTime, 0, 0);
+			return new RecordCursor(resultSet, ColumnMetaData.get(resultSet.getMetaData(), db.getServiceName() + "\n" + getSQL()), this, db);
 		} catch (SQLException e) {
+			SqlStats.error(getSQL());
 			logger.error("", e);
+			if (resultSet != null) {
+				try {
+					resultSet.close();
+				} catch (SQLException se) {
+					logger.error("", se);
+				}
+			}
 			throw new RuntimeException(e.getMessage() + "\nSQL : " + getQueryString(), e);
 		}
-		return rs;
 	}
 
-	public RecordSet executeQuery(String sql) {
+	public RecordCursor executeCursor(String sql, int fetchSize) {
 		setSQL(sql);
-		return executeQuery(0, 0);
-	}
-
-	public RecordSet executeQuery(String sql, int currPage, int pageSize) {
-		setSQL(sql);
-		return executeQuery(currPage, pageSize);
+		return executeCursor(fetchSize);
 	}
 
 	public int executeUpdate() {
@@ -104,6 +217,7 @@ public final class PreparedStatement extends AbstractStatement {
 			logger.error("Query is Null");
 			return 0;
 		}
+		long startTime = System.nanoTime();
 		try {
 			java.sql.PreparedStatement pstmt = getPrepareStatment();
 			if (getParamSize() > 0) {
@@ -136,10 +250,13 @@ public final class PreparedStatement extends AbstractStatement {
 				logger.debug(log.toString());
 			}
 			upCnt = pstmt.executeUpdate();
+			db.written(getSQL());
+			SqlStats.record(db, caller, getSQL(), param, startTime, 0, upCnt);
 			if (logger.isDebugEnabled()) {
 				logger.debug("@Sql End (P_STATEMENT)");
 			}
 		} catch (SQLException e) {
+			SqlStats.error(getSQL());
 			logger.error("", e);
 			throw new RuntimeException(e.getMessage() + "\nSQL : " + getQueryString(), e);
 		}
@@ -166,20 +283,7 @@ public final class PreparedStatement extends AbstractStatement {
 	}
 
 	protected java.sql.PreparedStatement getPrepareStatment() {
-		if (getSQL() == null) {
-			logger.error("Query is Null");
-			return null;
-		}
-		try {
-			if (pstmt == null) {
-				pstmt = db.getConnection().prepareStatement(getSQL(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-				pstmt.setFetchSize(100);
-			}
-		} catch (SQLException e) {
-			logger.error("", e);
-			throw new RuntimeException(e);
-		}
-		return pstmt;
+		return getPrepareStatment(db.getConnection());
 	}
 
 	public RecordSet getRecordSet() {
@@ -267,4 +371,131 @@ public final class PreparedStatement extends AbstractStatement {
 		}
 		return buf.toString().trim();
 	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	/*
+	 * 캐시를 사용하지 않고 쿼리를 실행한다.
+	 */
+	private RecordSet executeQueryDirect(int currPage, int pageSize) {
+		if (currPage > 0 && pageSize > 0) {
+			Dialect dialect = Dialect.get(db.getServiceName(), db.getReadConnection(getSQL()));
+			if (dialect != null) {
+				return executePageQuery(dialect, currPage, pageSize);
+			}
+		}
+		long startTime = System.nanoTime();
+		try {
+			java.sql.PreparedStatement pstmt = getPrepareStatment(db.getReadConnection(getSQL()));
+			setQueryParams(pstmt);
+			if (logger.isDebugEnabled()) {
+				StringBuilder log = new StringBuilder();
+				log.append("@Sql Start (P_STATEMENT) FetchSize : " + pstmt.getFetchSize() + " Caller : " + caller.getClass().getName() + "\n");
+				log.append("@Sql Command : \n" + getQueryString());
+				logger.debug(log.toString());
+			}
+			rs = new RecordSet(pstmt.executeQuery(), currPage, pageSize, db.getServiceName() + "\n" + getSQL(), 0, columnar);
+			SqlStats.record(db, caller, getSQL(), param, startTime, rs.getRowCount(), 0);
+			if (logger.isDebugEnabled()) {
+				logger.debug("@Sql End (P_STATEMENT)");
+			}
+		} catch (SQLException e) {
+			SqlStats.error(getSQL());
+			logger.error("", e);
+			throw new RuntimeException(e.getMessage() + "\nSQL : " + getQueryString(), e);
+		}
+		return rs;
+	}
+
+	/*
+	 * 컨넥션의 PreparedStatement 를 리턴한다. 이전에 다른 컨넥션(리플리카)에서 준비한 문장은 닫고 새로 준비한다.
+	 */
+	private java.sql.PreparedStatement getPrepareStatment(Connection conn) {
+		if (getSQL() == null) {
+			logger.error("Query is Null");
+			return null;
+		}
+		if (pstmt != null && pstmtConnection != conn) {
+			java.sql.PreparedStatement old = pstmt;
+			pstmt = null;
+			pstmtConnection = null;
+			db.closed(this);
+			closeQuietly(old);
+		}
+		try {
+			if (pstmt == null) {
+				pstmt = conn.prepareStatement(getSQL(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				pstmtConnection = conn;
+				db.opened(this);
+				pstmt.setFetchSize(100);
+			}
+		} catch (SQLException e) {
+			logger.error("", e);
+			throw new RuntimeException(e);
+		}
+		return pstmt;
+	}
+
+	/*
+	 * 페이징 쿼리를 별도의 문장으로 실행한다. 원본 쿼리의 파라미터 뒤에 범위값을 바인딩한다.
+	 */
+	private RecordSet executePageQuery(Dialect dialect, int currPage, int pageSize) {
+		String pageSql = dialect.getPageSql(getSQL());
+		int[] pageParams = dialect.getPageParams((currPage - 1) * pageSize, pageSize);
+		java.sql.PreparedStatement pagePstmt = null;
+		long startTime = System.nanoTime();
+		try {
+			pagePstmt = db.getReadConnection(pageSql).prepareStatement(pageSql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			pagePstmt.setFetchSize(pageSize);
+			setQueryParams(pagePstmt);
+			for (int i = 0; i < pageParams.length; i++) {
+				pagePstmt.setInt(getParamSize() + i + 1, pageParams[i]);
+			}
+			if (logger.isDebugEnabled()) {
+				StringBuilder log = new StringBuilder();
+				log.append("@Sql Start (P_STATEMENT PAGE) Page : " + currPage + " PageSize : " + pageSize + " Caller : " + caller.getClass().getName() + "\n");
+				log.append("@Sql Command : \n" + pageSql);
+				logger.debug(log.toString());
+			}
+			rs = new RecordSet(pagePstmt.executeQuery(), 0, 0, db.getServiceName() + "\n" + pageSql, dialect.getExtraColumnCount(), columnar);
+			SqlStats.record(db, caller, getSQL(), param, startTime, rs.getRowCount(), 0);
+			if (logger.isDebugEnabled()) {
+				logger.debug("@Sql End (P_STATEMENT PAGE)");
+			}
+		} catch (SQLException e) {
+			SqlStats.error(getSQL());
+			logger.error("", e);
+			throw new RuntimeException(e.getMessage() + "\nSQL : " + getQueryString(), e);
+		} finally {
+			closeQuietly(pagePstmt);
+		}
+		return rs;
+	}
+
+	private void closeQuietly(java.sql.Statement stmt) {
+		if (stmt != null) {
+			try {
+				stmt.close();
+			} catch (SQLException e) {
+				logger.error("", e);
+			}
+		}
+	}
+
+	/*
+	 * 조회 쿼리의 파라미터를 설정한다.
+	 */
+	private void setQueryParams(java.sql.PreparedStatement pstmt) throws SQLException {
+		for (int i = 1; i <= getParamSize(); i++) {
+			Object param = getObject(i - 1);
+			if (param == null || "".equals(param)) {
+				pstmt.setNull(i, java.sql.Types.VARCHAR);
+			} else if (param instanceof java.util.Date) {
+				java.util.Date d = (java.util.Date) param;
+				pstmt.setObject(i, new java.sql.Timestamp(d.getTime()));
+			} else {
+				pstmt.setObject(i, param);
+			}
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,288 @@
+package framework.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import framework.cache.Cache;
+import framework.config.Config;
+import framework.metrics.Metrics;
+import framework.metrics.QueryCacheMetric;
+import framework.util.CryptUtil;
+
+/**
+ * PreparedStatement 의 조회결과를 캐시(framework.cache.Cache)에 보관하는 클래스
+ * 캐시 항목은 조회결과가 의존하는 테이블마다 테이블 버전(무작위 토큰)을 함께 기록하며, 변경 문장이 실행되면 대상 테이블의 버전을 바꾸어
+ * 그 테이블에 의존하는 항목을 모두 무효화한다. 버전은 캐시에 보관되므로 Memcached, Redis 를 사용하면 모든 서버에서 무효화된다.
+ * 무효화된 항목은 삭제하지 않고 보관시간이 지나면 사라진다.
+ * <br>
+ * application.properties 설정 (서비스명이 default 인 경우)
+ * <br>
+ * db.default.queryCache : 쿼리 결과 캐시 사용여부(기본값 false), 같은 서비스를 사용하는 모든 서버에서 같아야 한다.
+ */
+final class QueryCache {
+	private static final Log logger = LogFactory.getLog(QueryCache.class);
+	private static final String KEY_PREFIX = "framework.querycache.";
+	private static final String TABLE_PREFIX = "framework.querycache.table.";
+	private static final ConcurrentMap<String, Boolean> enabledMap = new ConcurrentHashMap<String, Boolean>();
+	private static final Pattern TOKEN_PATTERN = Pattern.compile("[\\w.$#\"`\\[\\]]+|\\S");
+	private static final Pattern WRITE_PATTERN = Pattern.compile("^\\s*(?:insert\\s+(?:ignore\\s+)?into|replace\\s+into|merge\\s+into|update|delete\\s+from|delete|truncate\\s+table)\\s+([\\w.$#\"`\\[\\]]+)", Pattern.CASE_INSENSITIVE);
+	private static final Pattern SPACE_PATTERN = Pattern.compile("\\s+");
+	private static final Set<String> KEYWORDS = new HashSet<String>(Arrays.asList("WHERE", "GROUP", "ORDER", "HAVING", "UNION", "MINUS", "EXCEPT", "INTERSECT", "JOIN", "INNER", "LEFT", "RIGHT", "FULL", "OUTER", "CROSS", "NATURAL", "STRAIGHT_JOIN", "ON", "USING", "LIMIT", "OFFSET", "FETCH", "FOR", "CONNECT", "START", "WINDOW", "PIVOT", "UNPIVOT", "LATERAL", "WITH", "SET", "VALUES", "SELECT"));
+
+	/**
+	 * 생성자, 외부에서 객체를 인스턴스화 할 수 없도록 설정
+	 */
+	private QueryCache() {
+	}
+
+	/**
+	 * 서비스의 쿼리 결과 캐시 사용여부를 리턴한다. 처음 사용할 때 캐시를 초기화한다.
+	 * @param serviceName 서비스명
+	 * @return 사용하면 true
+	 */
+	static boolean isEnabled(String serviceName) {
+		Boolean enabled = enabledMap.get(serviceName);
+		if (enabled == null) {
+			enabled = Config.getInstance().getBoolean("db." + serviceName + ".queryCache", Boolean.FALSE);
+			if (enabled.booleanValue()) {
+				try {
+					Cache.init();
+				} catch (Throwable e) {
+					logger.error("캐시를 초기화할 수 없어 쿼리 결과 캐시를 사용하지 않습니다. (" + serviceName + ")", e);
+					enabled = Boolean.FALSE;
+				}
+			}
+			enabledMap.put(serviceName, enabled);
+		}
+		return enabled.booleanValue();
+	}
+
+	/**
+	 * 캐시에서 조회결과를 찾는다. 캐시 항목과 테이블 버전은 한번에 읽는다.
+	 * @param serviceName 서비스명
+	 * @param sql 쿼리
+	 * @param params 바인드 변수 값
+	 * @param currPage 현재 페이지
+	 * @param pageSize 한 페이지에 표시할 데이터 갯수
+	 * @param tables 조회결과가 의존하는 테이블, null 이면 쿼리에서 찾는다.
+	 * @return 조회 객체, 결과를 찾았으면 getResult() 가 null 이 아니다.
+	 */
+	static Lookup lookup(String serviceName, String sql, List<Object> params, int currPage, int pageSize, String[] tables) {
+		Lookup lookup = new Lookup(serviceName, sql, params, currPage, pageSize, (tables == null || tables.length == 0) ? getReadTables(sql) : tables);
+		try {
+			String[] keys = new String[lookup.tableKeys.length + 1];
+			keys[0] = lookup.key;
+			System.arraycopy(lookup.tableKeys, 0, keys, 1, lookup.tableKeys.length);
+			Map<String, Object> values = Cache.get(keys);
+			for (int i = 0; i < lookup.tableKeys.length; i++) {
+				Object version = values.get(lookup.tableKeys[i]);
+				lookup.versions[i] = (version == null) ? null : version.toString();
+			}
+			Object value = values.get(lookup.key);
+			if (value instanceof Entry && Arrays.equals(((Entry) value).versions, lookup.versions)) {
+				lookup.result = ((Entry) value).toRecordSet();
+			}
+		} catch (Throwable e) {
+			logger.error("쿼리 결과 캐시를 읽을 수 없습니다.", e);
+			lookup.skipStore = true;
+		}
+		if (lookup.result != null) {
+			lookup.metric.hit();
+		} else {
+			lookup.metric.miss();
+		}
+		return lookup;
+	}
+
+	/**
+	 * 테이블의 버전을 바꾸어 그 테이블에 의존하는 캐시 항목을 무효화한다.
+	 * @param serviceName 서비스명
+	 * @param tables 테이블
+	 */
+	static void invalidate(String serviceName, String[] tables) {
+		for (String table : tables) {
+			String key = getTableKey(serviceName, normalize(table));
+			try {
+				Cache.set(key, UUID.randomUUID().toString());
+			} catch (Throwable e) {
+				logger.error("쿼리 결과 캐시를 무효화할 수 없습니다. (" + key + ")", e);
+			}
+		}
+	}
+
+	/**
+	 * 변경 문장(INSERT, UPDATE, DELETE, MERGE, REPLACE, TRUNCATE)의 대상 테이블을 리턴한다.
+	 * @param sql 변경 문장
+	 * @return 대상 테이블, 찾을 수 없으면 빈 배열
+	 */
+	static String[] getWriteTables(String sql) {
+		Matcher matcher = WRITE_PATTERN.matcher(sql);
+		if (!matcher.find()) {
+			return new String[0];
+		}
+		return new String[] { normalize(matcher.group(1)) };
+	}
+
+	/**
+	 * 조회 쿼리의 FROM, JOIN 절에서 테이블을 찾는다. 함수 인자 등이 섞여 실제보다 많이 찾을 수 있으나, 더 많이 무효화될 뿐 결과는 정확하다.
+	 * @param sql 조회 쿼리
+	 * @return 테이블
+	 */
+	static String[] getReadTables(String sql) {
+		List<String> tokens = new ArrayList<String>();
+		Matcher matcher = TOKEN_PATTERN.matcher(sql);
+		while (matcher.find()) {
+			tokens.add(matcher.group());
+		}
+		Set<String> tables = new LinkedHashSet<String>();
+		for (int i = 0; i < tokens.size(); i++) {
+			String token = tokens.get(i);
+			if (!"FROM".equalsIgnoreCase(token) && !"JOIN".equalsIgnoreCase(token)) {
+				continue;
+			}
+			int j = i + 1;
+			while (j < tokens.size() && isIdentifier(tokens.get(j))) {
+				tables.add(normalize(tokens.get(j++)));
+				if (j < tokens.size() && "AS".equalsIgnoreCase(tokens.get(j))) {
+					j++;
+				}
+				if (j < tokens.size() && isIdentifier(tokens.get(j))) {
+					j++;
+				}
+				if (j < tokens.size() && ",".equals(tokens.get(j))) {
+					j++;
+				} else {
+					break;
+				}
+			}
+		}
+		return tables.toArray(new String[tables.size()]);
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	private static boolean isIdentifier(String token) {
+		char c = token.charAt(0);
+		return (Character.isLetter(c) || c == '_' || c == '"' || c == '`' || c == '[') && !KEYWORDS.contains(token.toUpperCase());
+	}
+
+	/*
+	 * 따옴표를 없애고 스키마를 뗀 대문자 테이블명
+	 */
+	private static String normalize(String table) {
+		String name = table.replace("\"", "").replace("`", "").replace("[", "").replace("]", "");
+		int dot = name.lastIndexOf('.');
+		return ((dot < 0) ? name : name.substring(dot + 1)).toUpperCase();
+	}
+
+	private static String getTableKey(String serviceName, String table) {
+		return TABLE_PREFIX + serviceName + "." + table;
+	}
+
+	/**
+	 * 한번의 조회에 대한 캐시 키와 테이블 버전
+	 */
+	static final class Lookup {
+		private final String key;
+		private final String[] tableKeys;
+		private final String[] versions;
+		private final QueryCacheMetric metric;
+		private RecordSet result = null;
+		private boolean skipStore = false;
+
+		private Lookup(String serviceName, String sql, List<Object> params, int currPage, int pageSize, String[] tables) {
+			StringBuilder buf = new StringBuilder(sql.length() + 64);
+			buf.append(sql).append('\n').append(currPage).append(',').append(pageSize);
+			for (Object param : params) {
+				buf.append('\n');
+				if (param == null || "".equals(param)) {
+					buf.append("null");
+				} else if (param instanceof java.util.Date) {
+					buf.append("Date:").append(((java.util.Date) param).getTime());
+				} else if (param instanceof byte[]) {
+					buf.append("byte[]:").append(Arrays.toString((byte[]) param));
+				} else {
+					buf.append(param.getClass().getName()).append(':').append(param);
+				}
+			}
+			this.key = KEY_PREFIX + serviceName + "." + CryptUtil.hashSHA1HexString(buf.toString());
+			this.tableKeys = new String[tables.length];
+			for (int i = 0; i < tables.length; i++) {
+				tableKeys[i] = getTableKey(serviceName, normalize(tables[i]));
+			}
+			this.versions = new String[tables.length];
+			this.metric = Metrics.getQueryCacheMetric(SPACE_PATTERN.matcher(sql.trim()).replaceAll(" "));
+		}
+
+		/**
+		 * 캐시에서 찾은 조회결과를 리턴한다.
+		 * @return 조회결과, 찾지 못했으면 null
+		 */
+		RecordSet getResult() {
+			return result;
+		}
+
+		/**
+		 * 조회결과를 조회 전에 읽은 테이블 버전과 함께 캐시에 보관한다. 조회 중에 테이블이 변경되었으면 보관된 항목은 바로 무효가 된다.
+		 * @param result 조회결과
+		 * @param seconds 보관시간(초)
+		 */
+		void store(RecordSet result, int seconds) {
+			if (skipStore || result == null) {
+				return;
+			}
+			skipStore = true;
+			try {
+				Cache.set(key, new Entry(versions, result), seconds);
+			} catch (Throwable e) {
+				logger.error("쿼리 결과 캐시에 보관할 수 없습니다.", e);
+			}
+		}
+	}
+
+	/**
+	 * 캐시에 보관되는 항목, 꺼낼 때마다 새 RecordSet 을 만들도록 직렬화된 조회결과를 가진다.
+	 */
+	private static final class Entry implements Serializable {
+		private static final long serialVersionUID = 2817265028837393415L;
+		private final String[] versions;
+		private final byte[] data;
+
+		private Entry(String[] versions, RecordSet result) throws IOException {
+			this.versions = versions;
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			ObjectOutputStream oos = new ObjectOutputStream(bos);
+			oos.writeObject(result);
+			oos.close();
+			this.data = bos.toByteArray();
+		}
+
+		private RecordSet toRecordSet() throws IOException, ClassNotFoundException {
+			ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data));
+			try {
+				return (RecordSet) ois.readObject();
+			} finally {
+				ois.close();
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,195 @@
+package framework.db;
+
+import java.io.Closeable;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * 쿼리 결과를 메모리에 모두 담지 않고 한 행씩 읽는 전방향 커서 클래스
+ * RecordSet 을 상속하므로 RecordSet 을 받는 출력 유틸(JsonUtil, CsvUtil, ExcelUtil 등)에 그대로 넘길 수 있다.
+ * 행 데이터는 하나의 RecordMap 을 재사용하므로, 다음 행으로 이동한 후에는 이전 행의 값을 참조할 수 없다.
+ * 마지막 행을 지나거나 close() 를 호출하면 ResultSet 과 문장을 닫는다.
+ * <br>
+ * ex) 대용량 조회결과를 CSV 로 출력하는 경우
+ * <br>
+ * RecordCursor cursor = pstmt.executeCursor(1000);
+ * <br>
+ * try { CsvUtil.render(response, cursor, ","); } finally { cursor.close(); }
+ */
+public class RecordCursor extends RecordSet implements Closeable {
+	private static final long serialVersionUID = 2364418547325962167L;
+	private static final Log logger = LogFactory.getLog(RecordCursor.class);
+	private final transient ResultSet rs;
+	private final transient AbstractStatement stmt;
+	private final transient DB db;
+	private final transient ColumnMetaData meta;
+	private final RecordMap row;
+	private boolean closed = false;
+
+	RecordCursor(ResultSet rs, ColumnMetaData meta, AbstractStatement stmt, DB db) {
+		super(meta);
+		this.rs = rs;
+		this.stmt = stmt;
+		this.db = db;
+		this.meta = meta;
+		this.row = new RecordMap(meta.names.length);
+		db.cursorOpened();
+	}
+
+	/**
+	 * 다음 행으로 이동한다. 마지막 행을 지나면 커서를 닫는다.
+	 * @return 다음 행이 있으면 true
+	 */
+	@Override
+	public boolean nextRow() {
+		if (closed) {
+			return false;
+		}
+		try {
+			if (!rs.next()) {
+				close();
+				return false;
+			}
+			row.clear();
+			readRow(rs, meta, row);
+			currow++;
+			return true;
+		} catch (SQLException e) {
+			close();
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * 전방향 커서이므로 현재 위치로만 이동할 수 있다. 읽기 전에 moveRow(0) 을 호출하는 출력 유틸과 호환된다.
+	 * @param row 이동할 위치
+	 * @return 현재 위치이면 true
+	 */
+	@Override
+	public boolean moveRow(int row) {
+		if (row == currow) {
+			return true;
+		}
+		throw new UnsupportedOperationException("RecordCursor 는 전방향으로만 이동할 수 있습니다.");
+	}
+
+	@Override
+	public boolean firstRow() {
+		return moveRow(0);
+	}
+
+	@Override
+	public boolean preRow() {
+		throw new UnsupportedOperationException("RecordCursor 는 전방향으로만 이동할 수 있습니다.");
+	}
+
+	@Override
+	public boolean lastRow() {
+		throw new UnsupportedOperationException("RecordCursor 는 전방향으로만 이동할 수 있습니다.");
+	}
+
+	/**
+	 * 마지막 행까지 읽었는지 여부를 리턴한다.
+	 * @return 커서가 닫혔으면 true
+	 */
+	@Override
+	public boolean isLast() {
+		return closed;
+	}
+
+	/**
+	 * 지금까지 읽은 행의 수를 리턴한다.
+	 * @return 읽은 행의 수
+	 */
+	@Override
+	public int getRowCount() {
+		return currow;
+	}
+
+	/**
+	 * 행을 읽었는지 여부를 리턴한다.
+	 * @return 읽은 행이 없으면 true
+	 */
+	@Override
+	public boolean isEmpty() {
+		return currow == 0;
+	}
+
+	/**
+	 * 커서는 행을 모두 담지 않으므로 지원하지 않는다.
+	 */
+	@Override
+	public List<RecordMap> getRows() {
+		throw new UnsupportedOperationException("RecordCursor 는 행을 메모리에 담지 않습니다.");
+	}
+
+	/**
+	 * 남은 행을 차례로 리턴하는 이터레이터를 반환한다. 이터레이터가 리턴하는 RecordMap 은 재사용된다.
+	 */
+	@Override
+	public Iterator<RecordMap> iterator() {
+		return new Iterator<RecordMap>() {
+			private boolean fetched = false;
+			private boolean hasNext = false;
+
+			@Override
+			public boolean hasNext() {
+				if (!fetched) {
+					hasNext = nextRow();
+					fetched = true;
+				}
+				return hasNext;
+			}
+
+			@Override
+			public RecordMap next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				fetched = false;
+				return row;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * ResultSet 과 문장을 닫는다. 여러번 호출해도 된다.
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			rs.close();
+		} catch (SQLException e) {
+			logger.error("", e);
+		}
+		try {
+			stmt.close();
+		} catch (Throwable e) {
+			logger.error("", e);
+		}
+		db.cursorClosed();
+	}
+
+	@Override
+	RecordMap getRow(int row) {
+		if (row != currow || row == 0 || closed) {
+			throw new IllegalStateException("RecordCursor 는 현재 행만 읽을 수 있습니다.");
+		}
+		return this.row;
+	}
+}
\ No newline at end of file
@@ -58,6 +58,8 @@ public class RecordMap extends LinkedHashMap<String, Object> {
 			return Integer.valueOf(0);
 		} else if (value instanceof Integer) {
 			return (Integer) value;
+		} else if (isIntegral(value) && ((Number) value).longValue() == ((Number) value).intValue()) {
+			return Integer.valueOf(((Number) value).intValue());
 		} else {
 			try {
 				return Integer.valueOf(value.toString().trim());
@@ -73,6 +75,8 @@ public class RecordMap extends LinkedHashMap<String, Object> {
 			return Long.valueOf(0);
 		} else if (value instanceof Long) {
 			return (Long) value;
+		} else if (isIntegral(value)) {
+			return Long.valueOf(((Number) value).longValue());
 		} else {
 			try {
 				return Long.valueOf(value.toString().trim());
@@ -88,6 +92,8 @@ public class RecordMap extends LinkedHashMap<String, Object> {
 			return Float.valueOf(0);
 		} else if (value instanceof Float) {
 			return (Float) value;
+		} else if (value instanceof Number) {
+			return Float.valueOf(((Number) value).floatValue());
 		} else {
 			try {
 				return Float.valueOf(value.toString().trim());
@@ -103,6 +109,8 @@ public class RecordMap extends LinkedHashMap<String, Object> {
 			return Double.valueOf(0);
 		} else if (value instanceof Double) {
 			return (Double) value;
+		} else if (value instanceof Number) {
+			return Double.valueOf(((Number) value).doubleValue());
 		} else {
 			try {
 				return Double.valueOf(value.toString().trim());
@@ -118,6 +126,8 @@ public class RecordMap extends LinkedHashMap<String, Object> {
 			return BigDecimal.valueOf(0);
 		} else if (value instanceof BigDecimal) {
 			return (BigDecimal) value;
+		} else if (isIntegral(value)) {
+			return BigDecimal.valueOf(((Number) value).longValue());
 		} else {
 			try {
 				return new BigDecimal(value.toString().trim());
@@ -172,4 +182,13 @@ public class RecordMap extends LinkedHashMap<String, Object> {
 			return Timestamp.valueOf(value.toString());
 		}
 	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	/*
+	 * 문자열로 변환하지 않고 바로 변환할 수 있는 정수 타입인지 여부
+	 */
+	private boolean isIntegral(Object value) {
+		return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,112 @@
+package framework.db;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 같은 SQL 의 쿼리 결과가 공유하는 컬럼 이름과 색인, 컬럼 단위 저장(ColumnarRows)에서 컬럼을 찾을 때 사용한다.
+ * 이름이 같은 컬럼이 여러개이면 하나의 자리(slot)를 사용하며, RecordMap 과 같이 처음 위치에 마지막 컬럼의 값이 담긴다.
+ * 컬럼 이름은 소문자이므로 소문자 키는 바로 찾고, 그 외의 키만 소문자로 바꾸어 찾는다.
+ */
+final class RecordSchema implements Serializable {
+	private static final long serialVersionUID = 4710582943105716233L;
+	private final String[] names;
+	private final int[] slots;
+	private final int[] lastColumns;
+	private final Map<String, Integer> index;
+
+	/**
+	 * 컬럼 이름으로 스키마를 생성한다.
+	 * @param columnNames 소문자로 된 컬럼 이름
+	 */
+	RecordSchema(String[] columnNames) {
+		List<String> list = new ArrayList<String>(columnNames.length);
+		List<Integer> lastList = new ArrayList<Integer>(columnNames.length);
+		slots = new int[columnNames.length];
+		index = new HashMap<String, Integer>();
+		for (int i = 0; i < columnNames.length; i++) {
+			Integer slot = index.get(columnNames[i]);
+			if (slot == null) {
+				slot = Integer.valueOf(list.size());
+				list.add(columnNames[i]);
+				lastList.add(Integer.valueOf(i));
+				index.put(columnNames[i], slot);
+			} else {
+				lastList.set(slot.intValue(), Integer.valueOf(i));
+			}
+			slots[i] = slot.intValue();
+		}
+		names = list.toArray(new String[list.size()]);
+		lastColumns = new int[names.length];
+		for (int i = 0; i < lastColumns.length; i++) {
+			lastColumns[i] = lastList.get(i).intValue();
+		}
+	}
+
+	/**
+	 * 자리의 수(중복을 제외한 컬럼 이름의 수)를 리턴한다.
+	 * @return 자리의 수
+	 */
+	int size() {
+		return names.length;
+	}
+
+	/**
+	 * 컬럼의 수(중복 포함)를 리턴한다.
+	 * @return 컬럼의 수
+	 */
+	int getColumnCount() {
+		return slots.length;
+	}
+
+	/**
+	 * 자리의 컬럼 이름을 리턴한다.
+	 * @param slot 자리
+	 * @return 컬럼 이름
+	 */
+	String getName(int slot) {
+		return names[slot];
+	}
+
+	/**
+	 * 컬럼 위치에 해당하는 자리를 리턴한다.
+	 * @param column 컬럼 위치, 첫번째 컬럼은 0
+	 * @return 자리
+	 */
+	int getSlot(int column) {
+		return slots[column];
+	}
+
+	/**
+	 * 키에 해당하는 자리를 리턴한다. 대소문자를 구분하지 않는다.
+	 * @param key 컬럼 이름
+	 * @return 자리, 없으면 -1
+	 */
+	int indexOf(Object key) {
+		if (key == null) {
+			return -1;
+		}
+		String name = key.toString();
+		Integer slot = index.get(name);
+		if (slot == null) {
+			String lower = name.toLowerCase();
+			if (!lower.equals(name)) {
+				slot = index.get(lower);
+			}
+		}
+		return (slot == null) ? -1 : slot.intValue();
+	}
+
+	/**
+	 * 키에 해당하는 컬럼 위치를 리턴한다. 이름이 같은 컬럼이 여러개이면 마지막 컬럼의 위치를 리턴한다.
+	 * @param key 컬럼 이름
+	 * @return 컬럼 위치(첫번째 컬럼은 0), 없으면 -1
+	 */
+	int columnOf(Object key) {
+		int slot = indexOf(key);
+		return (slot < 0) ? -1 : lastColumns[slot];
+	}
+}
\ No newline at end of file
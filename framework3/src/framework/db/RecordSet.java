@@ -3,7 +3,6 @@ package framework.db;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
@@ -18,7 +17,7 @@ import java.util.List;
 public class RecordSet implements Iterable<RecordMap>, Serializable {
 	private static final long serialVersionUID = -1248669129395067939L;
 	//Rows의 값
-	private final List<RecordMap> rows = new ArrayList<RecordMap>();
+	private List<RecordMap> rows = new ArrayList<RecordMap>();
 	/**
 	 * DB의 columns 이름
 	 */
@@ -28,7 +27,8 @@ public class RecordSet implements Iterable<RecordMap>, Serializable {
 	private int[] colScale = null;
 	private String[] colInfo = null;
 	private int[] columnsType = null;
-	private int currow = 0;
+	int currow = 0;
+	private int totalCount = -1;
 
 	/**
 	 * RecordSet의 생성자
@@ -45,34 +45,52 @@ public class RecordSet implements Iterable<RecordMap>, Serializable {
 	 * @param pagesize 한 페이지에 표시할 데이터 갯수
 	 */
 	public RecordSet(ResultSet rs, int curpage, int pagesize) {
+		this(rs, curpage, pagesize, null);
+	}
+
+	/**
+	 * 주어진 범위에 포함되는 새로운 RecordSet 객체를 생성한다. 컬럼 정보는 metaKey 별로 캐시된 정보를 사용한다.
+	 * @param rs 쿼리 실행결과
+	 * @param curpage 현재 표시할 페이지
+	 * @param pagesize 한 페이지에 표시할 데이터 갯수
+	 * @param metaKey 컬럼 정보 캐시 키, null 이면 캐시하지 않는다.
+	 */
+	RecordSet(ResultSet rs, int curpage, int pagesize, String metaKey) {
+		this(rs, curpage, pagesize, metaKey, 0);
+	}
+
+	/**
+	 * 새로운 RecordSet 객체를 생성한다. 끝의 컬럼 일부는 담지 않는다.
+	 * @param rs 쿼리 실행결과
+	 * @param curpage 현재 표시할 페이지
+	 * @param pagesize 한 페이지에 표시할 데이터 갯수
+	 * @param metaKey 컬럼 정보 캐시 키, null 이면 캐시하지 않는다.
+	 * @param extraColumnCount 담지 않을 끝의 컬럼 수
+	 */
+	RecordSet(ResultSet rs, int curpage, int pagesize, String metaKey, int extraColumnCount) {
+		this(rs, curpage, pagesize, metaKey, extraColumnCount, false);
+	}
+
+	/**
+	 * 새로운 RecordSet 객체를 생성한다. columnar 가 true 이면 행을 RecordMap 대신 컬럼 단위로 담아 메모리를 줄인다.
+	 * @param rs 쿼리 실행결과
+	 * @param curpage 현재 표시할 페이지
+	 * @param pagesize 한 페이지에 표시할 데이터 갯수
+	 * @param metaKey 컬럼 정보 캐시 키, null 이면 캐시하지 않는다.
+	 * @param extraColumnCount 담지 않을 끝의 컬럼 수
+	 * @param columnar 컬럼 단위 저장 여부
+	 */
+	RecordSet(ResultSet rs, int curpage, int pagesize, String metaKey, int extraColumnCount, boolean columnar) {
 		if (rs == null) {
 			return;
 		}
 		try {
-			ResultSetMetaData rsmd = rs.getMetaData();
-			int cnt = rsmd.getColumnCount();
-			colNms = new String[cnt];
-			colInfo = new String[cnt];
-			colSize = new int[cnt];
-			colSizeReal = new int[cnt];
-			colScale = new int[cnt];
-			// byte[] 데이터 처리를 위해서 추가
-			columnsType = new int[cnt];
-			for (int i = 1; i <= cnt; i++) {
-				//Table의 Field 가 대문자 인것은 소문자로 변경처리
-				colNms[i - 1] = rsmd.getColumnName(i).toLowerCase();
-				columnsType[i - 1] = rsmd.getColumnType(i);
-				//Fiels 의 정보 및 Size 추가
-				colSize[i - 1] = rsmd.getColumnDisplaySize(i);
-				colSizeReal[i - 1] = rsmd.getPrecision(i);
-				colScale[i - 1] = rsmd.getScale(i);
-				colInfo[i - 1] = rsmd.getColumnTypeName(i);
-			}
+			ColumnMetaData meta = ColumnMetaData.get(rs.getMetaData(), metaKey, extraColumnCount);
+			setColumns(meta);
+			ColumnarRows columnarRows = columnar ? new ColumnarRows(meta.schema) : null;
 			rs.setFetchSize(100);
 			int num = 0;
 			while (rs.next()) {
-				// 현재 Row 저장 객체
-				RecordMap columns = new RecordMap(cnt);
 				num++;
 				if (curpage != 0 && (num < (curpage - 1) * pagesize + 1)) {
 					continue;
@@ -80,14 +98,18 @@ public class RecordSet implements Iterable<RecordMap>, Serializable {
 				if (pagesize != 0 && (num > curpage * pagesize)) {
 					break;
 				}
-				for (int i = 1; i <= cnt; i++) {
-					if (rs.getObject(i) instanceof Number) {
-						columns.put(colNms[i - 1], rs.getObject(i));
-					} else {
-						columns.put(colNms[i - 1], rs.getString(i));
-					}
+				if (columnarRows != null) {
+					columnarRows.addRow(rs, meta);
+				} else {
+					// 현재 Row 저장 객체
+					RecordMap columns = new RecordMap(meta.names.length);
+					readRow(rs, meta, columns);
+					rows.add(columns);
 				}
-				rows.add(columns);
+			}
+			if (columnarRows != null) {
+				columnarRows.trim();
+				rows = columnarRows;
 			}
 		} catch (SQLException e) {
 			throw new RuntimeException(e);
@@ -101,6 +123,14 @@ public class RecordSet implements Iterable<RecordMap>, Serializable {
 		}
 	}
 
+	/**
+	 * 컬럼 정보만 가지는 RecordSet 객체를 생성한다. 행은 하위 클래스가 제공한다.
+	 * @param meta 컬럼 정보
+	 */
+	RecordSet(ColumnMetaData meta) {
+		setColumns(meta);
+	}
+
 	/**
 	 * 주어진 쿼리를 수행 후 컬럼명을 String[] 로 반환
 	 * @return String[]
@@ -205,6 +235,22 @@ public class RecordSet implements Iterable<RecordMap>, Serializable {
 		return getRowCount();
 	}
 
+	/**
+	 * 페이징 조회시 함께 구한 전체 레코드 건수를 구한다.
+	 * @return 전체 레코드 건수, 구하지 않았으면 -1
+	 */
+	public int getTotalCount() {
+		return totalCount;
+	}
+
+	/**
+	 * 전체 레코드 건수를 설정한다.
+	 * @param totalCount 전체 레코드 건수
+	 */
+	void setTotalCount(int totalCount) {
+		this.totalCount = totalCount;
+	}
+
 	/**
 	 * 현재 참조하고 있는 row의 위치를 구한다.
 	 * @return int 현재 Row의 위치
@@ -539,7 +585,10 @@ public class RecordSet implements Iterable<RecordMap>, Serializable {
 	 * @return Object  column data
 	 */
 	public Object get(int row, String colName) {
-		return rows.get(row - 1).get(colName);
+		if (rows instanceof ColumnarRows) {
+			return ((ColumnarRows) rows).getValue(row - 1, colName);
+		}
+		return getRow(row).get(colName);
 	}
 
 	/**
@@ -549,7 +598,7 @@ public class RecordSet implements Iterable<RecordMap>, Serializable {
 	 * @return String  column data
 	 */
 	public String getString(int row, String colName) {
-		return rows.get(row - 1).getString(colName);
+		return getRow(row).getString(colName);
 	}
 
 	/**
@@ -559,7 +608,7 @@ public class RecordSet implements Iterable<RecordMap>, Serializable {
 	 * @return Integer  column data
 	 */
 	public Integer getInt(int row, String colName) {
-		return rows.get(row - 1).getInt(colName);
+		return getRow(row).getInt(colName);
 	}
 
 	/**
@@ -569,7 +618,7 @@ public class RecordSet implements Iterable<RecordMap>, Serializable {
 	 * @return Integer  column data
 	 */
 	public Integer getInteger(int row, String colName) {
-		return rows.get(row - 1).getInteger(colName);
+		return getRow(row).getInteger(colName);
 	}
 
 	/**
@@ -579,7 +628,7 @@ public class RecordSet implements Iterable<RecordMap>, Serializable {
 	 * @return Long  column data
 	 */
 	public Long getLong(int row, String colName) {
-		return rows.get(row - 1).getLong(colName);
+		return getRow(row).getLong(colName);
 	}
 
 	/**
@@ -589,7 +638,7 @@ public class RecordSet implements Iterable<RecordMap>, Serializable {
 	 * @return Float column data
 	 */
 	public Float getFloat(int row, String colName) {
-		return rows.get(row - 1).getFloat(colName);
+		return getRow(row).getFloat(colName);
 	}
 
 	/**
@@ -599,7 +648,7 @@ public class RecordSet implements Iterable<RecordMap>, Serializable {
 	 * @return Double column data
 	 */
 	public Double getDouble(int row, String colName) {
-		return rows.get(row - 1).getDouble(colName);
+		return getRow(row).getDouble(colName);
 	}
 
 	/**
@@ -609,7 +658,7 @@ public class RecordSet implements Iterable<RecordMap>, Serializable {
 	 * @return BigDecimal column data
 	 */
 	public BigDecimal getBigDecimal(int row, String colName) {
-		return rows.get(row - 1).getBigDecimal(colName);
+		return getRow(row).getBigDecimal(colName);
 	}
 
 	/**
@@ -640,7 +689,7 @@ public class RecordSet implements Iterable<RecordMap>, Serializable {
 	 * @return Date column data
 	 */
 	public Date getDateFormat(int row, String colName, String format) {
-		return rows.get(row - 1).getDateFormat(colName, format);
+		return getRow(row).getDateFormat(colName, format);
 	}
 
 	/**
@@ -651,7 +700,7 @@ public class RecordSet implements Iterable<RecordMap>, Serializable {
 	 * @return Timestamp column data
 	 */
 	public Timestamp getTimestamp(int row, String colName) {
-		return rows.get(row - 1).getTimestamp(colName);
+		return getRow(row).getTimestamp(colName);
 	}
 
 	/**
@@ -691,4 +740,44 @@ public class RecordSet implements Iterable<RecordMap>, Serializable {
 	public Iterator<RecordMap> iterator() {
 		return rows.iterator();
 	}
+
+	/**
+	 * 해당하는 row 의 데이터를 리턴한다.
+	 * @param row row number, 첫번째 row는 1
+	 * @return row 데이터
+	 */
+	RecordMap getRow(int row) {
+		if (rows instanceof ColumnarRows) {
+			return ((ColumnarRows) rows).getView(row - 1);
+		}
+		return rows.get(row - 1);
+	}
+
+	/**
+	 * ResultSet 의 현재 행을 읽어 row 에 담는다. 컬럼 타입별로 정해진 방법으로 한번씩만 읽으며, 숫자는 숫자 객체로, 나머지는 문자열로 담는다.
+	 * @param rs 쿼리 실행결과
+	 * @param meta 컬럼 정보
+	 * @param row 행 데이터를 담을 객체
+	 * @throws SQLException 행을 읽을 수 없는 경우
+	 */
+	static void readRow(ResultSet rs, ColumnMetaData meta, RecordMap row) throws SQLException {
+		String[] colNms = meta.names;
+		for (int i = 1; i <= colNms.length; i++) {
+			row.put(colNms[i - 1], meta.read(rs, i));
+		}
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	/*
+	 * 컬럼 정보를 설정한다. 캐시된 배열은 변경하지 않으므로 공유한다.
+	 */
+	private void setColumns(ColumnMetaData meta) {
+		colNms = meta.names;
+		colInfo = meta.typeNames;
+		colSize = meta.sizes;
+		colSizeReal = meta.precisions;
+		colScale = meta.scales;
+		columnsType = meta.types;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,230 @@
+package framework.db;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import framework.config.Config;
+
+/**
+ * 서비스의 조회를 리플리카(replica) 데이터베이스로 분산하는 클래스
+ * 리플리카는 각각 하나의 서비스로 설정하며(db.리플리카서비스명.url 등), 주기적으로 상태와 복제 지연을 검사하여
+ * 연결할 수 없거나 지연이 허용치를 넘은 리플리카는 다시 정상이 될 때까지 분산 대상에서 제외한다.
+ * <br>
+ * application.properties 설정 (서비스명이 default 인 경우)
+ * <br>
+ * db.default.replicas : 리플리카 서비스명 목록(쉼표로 구분, 없으면 모든 조회를 주 데이터베이스에서 실행)
+ * <br>
+ * db.default.replica.lagQuery : 복제 지연(초)을 한 값으로 조회하는 쿼리(기본값 없음, 없으면 Connection.isValid 만 검사, 결과가 NULL 이면 복제가 중단된 것으로 본다)
+ * <br>
+ * db.default.replica.maxLag : 허용하는 복제 지연(초, 기본값 10)
+ * <br>
+ * db.default.replica.checkInterval : 검사 주기(밀리초, 기본값 5000)
+ */
+final class ReplicaRouter {
+	private static final Log logger = LogFactory.getLog(ReplicaRouter.class);
+	private static final ConcurrentMap<String, ReplicaRouter> routers = new ConcurrentHashMap<String, ReplicaRouter>();
+	private static final Pattern LOCKING_PATTERN = Pattern.compile("\\bfor\\s+(update|share)\\b|\\block\\s+in\\s+share\\s+mode\\b", Pattern.CASE_INSENSITIVE);
+	private static final int CHECK_TIMEOUT = 3;
+	private final String serviceName;
+	private final Replica[] replicas;
+	private final AtomicInteger next = new AtomicInteger();
+	private final String lagQuery;
+	private final int maxLag;
+	private Timer timer = null;
+
+	private ReplicaRouter(String serviceName, String[] names) {
+		Config config = Config.getInstance();
+		String prefix = "db." + serviceName + ".replica.";
+		this.serviceName = serviceName;
+		this.replicas = new Replica[names.length];
+		for (int i = 0; i < names.length; i++) {
+			replicas[i] = new Replica(names[i]);
+		}
+		this.lagQuery = config.getString(prefix + "lagQuery", "");
+		this.maxLag = config.getInt(prefix + "maxLag", Integer.valueOf(10)).intValue();
+		if (replicas.length > 0) {
+			long interval = config.getLong(prefix + "checkInterval", Long.valueOf(5000)).longValue();
+			timer = new Timer("framework-replica-" + serviceName, true);
+			timer.schedule(new CheckTask(), interval, interval);
+			logger.info("리플리카를 등록하였습니다. (" + serviceName + " : " + Arrays.asList(names) + ")");
+		}
+	}
+
+	/**
+	 * 서비스의 리플리카 라우터를 리턴한다.
+	 * @param serviceName 서비스명
+	 * @return 리플리카 라우터, 리플리카가 설정되지 않은 서비스이면 null
+	 */
+	static ReplicaRouter get(String serviceName) {
+		ReplicaRouter router = routers.get(serviceName);
+		if (router == null) {
+			synchronized (routers) {
+				router = routers.get(serviceName);
+				if (router == null) {
+					router = new ReplicaRouter(serviceName, parseNames(Config.getInstance().getString("db." + serviceName + ".replicas", "")));
+					routers.put(serviceName, router);
+				}
+			}
+		}
+		return (router.replicas.length == 0) ? null : router;
+	}
+
+	/**
+	 * 리플리카에서 실행할 수 있는 조회인지 여부를 리턴한다. 잠금을 거는 조회(FOR UPDATE 등)는 주 데이터베이스에서 실행해야 한다.
+	 * @param sql 쿼리
+	 * @return 리플리카에서 실행할 수 있으면 true
+	 */
+	static boolean isReadOnly(String sql) {
+		return sql == null || !LOCKING_PATTERN.matcher(sql).find();
+	}
+
+	/**
+	 * 검사를 멈추고 등록된 라우터를 비운다. 리플리카의 커넥션풀은 DB.closeDataSources 에서 닫힌다.
+	 */
+	static void closeAll() {
+		synchronized (routers) {
+			for (ReplicaRouter router : routers.values()) {
+				if (router.timer != null) {
+					router.timer.cancel();
+				}
+			}
+			routers.clear();
+		}
+	}
+
+	/**
+	 * 정상인 리플리카를 차례로 돌아가며 커넥션을 얻는다. 커넥션을 얻지 못한 리플리카는 제외하고 다음 리플리카를 시도한다.
+	 * @return 커넥션 객체, 정상인 리플리카가 없으면 null
+	 */
+	Connection getConnection() {
+		int start = next.getAndIncrement() & Integer.MAX_VALUE;
+		for (int i = 0; i < replicas.length; i++) {
+			Replica replica = replicas[(start + i) % replicas.length];
+			if (!replica.healthy) {
+				continue;
+			}
+			Connection conn = null;
+			try {
+				conn = DB.getDataSource(replica.name).getConnection();
+				if (!conn.getAutoCommit()) {
+					conn.setAutoCommit(true);
+				}
+				return conn;
+			} catch (SQLException e) {
+				if (conn != null) {
+					try {
+						conn.close();
+					} catch (Throwable te) {
+						logger.error("", te);
+					}
+				}
+				replica.setHealthy(false, e.getMessage());
+			}
+		}
+		return null;
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	private static String[] parseNames(String value) {
+		List<String> names = new ArrayList<String>();
+		for (String name : value.split(",")) {
+			if (!"".equals(name.trim())) {
+				names.add(name.trim());
+			}
+		}
+		return names.toArray(new String[names.size()]);
+	}
+
+	/*
+	 * 리플리카에 연결하여 상태와 복제 지연을 검사한다. 정상이면 null, 아니면 사유를 리턴한다.
+	 */
+	private String check(Replica replica) {
+		Connection conn = null;
+		try {
+			conn = DB.getDataSource(replica.name).getConnection();
+			if ("".equals(lagQuery)) {
+				return conn.isValid(CHECK_TIMEOUT) ? null : "invalid connection";
+			}
+			java.sql.Statement stmt = conn.createStatement();
+			try {
+				stmt.setQueryTimeout(CHECK_TIMEOUT);
+				ResultSet rs = stmt.executeQuery(lagQuery);
+				try {
+					if (!rs.next()) {
+						return "no result";
+					}
+					double lag = rs.getDouble(1);
+					if (rs.wasNull()) {
+						return "replication stopped";
+					}
+					return (lag > maxLag) ? "lag " + lag + "s > " + maxLag + "s" : null;
+				} finally {
+					rs.close();
+				}
+			} finally {
+				stmt.close();
+			}
+		} catch (Throwable e) {
+			return String.valueOf(e.getMessage());
+		} finally {
+			if (conn != null) {
+				try {
+					conn.close();
+				} catch (SQLException e) {
+					logger.error("", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 리플리카 하나의 상태
+	 */
+	private final class Replica {
+		private final String name;
+		private volatile boolean healthy = true;
+
+		private Replica(String name) {
+			this.name = name;
+		}
+
+		private void setHealthy(boolean healthy, String reason) {
+			if (this.healthy == healthy) {
+				return;
+			}
+			this.healthy = healthy;
+			if (healthy) {
+				logger.info("리플리카를 분산 대상에 다시 포함합니다. (" + serviceName + " : " + name + ")");
+			} else {
+				logger.error("리플리카를 분산 대상에서 제외합니다. (" + serviceName + " : " + name + ", " + reason + ")");
+			}
+		}
+	}
+
+	/**
+	 * 주기적으로 모든 리플리카를 검사하는 작업
+	 */
+	private final class CheckTask extends TimerTask {
+		@Override
+		public void run() {
+			for (Replica replica : replicas) {
+				String reason = check(replica);
+				replica.setHealthy(reason == null, reason);
+			}
+		}
+	}
+}
\ No newline at end of file
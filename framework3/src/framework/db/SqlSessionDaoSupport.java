@@ -11,106 +11,163 @@ import org.apache.ibatis.session.SqlSession;
 
 /**
  * MyBatis를 이용한 DAO를 작성할때 상속받는 부모 클래스
+ * 리플리카 조회를 사용하도록 생성하면(SqlSessionDaoSupport(db, true)) select 계열 메소드는 리플리카에서 실행하며, 주 데이터베이스의 SqlSession 은 처음 변경할 때 얻는다.
+ * 이 경우 db, sqlSession 필드는 처음 변경하기 전까지 null 이므로 getSqlSession() 을 사용한다. 잠금을 거는 조회(FOR UPDATE 등)는 주 데이터베이스에서 실행한다.
  */
 public class SqlSessionDaoSupport {
 	protected static final Log logger = LogFactory.getLog(SqlSessionDaoSupport.class);
 	protected MybatisDB db = null;
 	protected SqlSession sqlSession = null;
+	private final DB source;
+	private final boolean readFromReplica;
 
 	public SqlSessionDaoSupport(DB db) {
-		this.db = db.getMybatisDB();
-		this.sqlSession = this.db.getSqlSession();
+		this(db, false);
+	}
+
+	/**
+	 * DAO 생성자
+	 * @param db DB 객체
+	 * @param readFromReplica select 계열 메소드를 리플리카에서 실행할지 여부, 리플리카가 설정되지 않았거나 리플리카에서 조회할 수 없으면 무시된다.
+	 */
+	public SqlSessionDaoSupport(DB db, boolean readFromReplica) {
+		this.source = db;
+		this.readFromReplica = readFromReplica && db.isReadFromReplica() && ReplicaRouter.get(db.getServiceName()) != null;
+		if (!this.readFromReplica) {
+			getSqlSession();
+		}
 	}
 
 	protected void commit() {
-		this.db.commit();
+		if (this.db != null) {
+			this.db.commit();
+		}
 	}
 
 	protected void rollback() {
-		this.db.rollback();
+		if (this.db != null) {
+			this.db.rollback();
+		}
 	}
 
 	protected void clearCache() {
-		sqlSession.clearCache();
+		if (sqlSession != null) {
+			sqlSession.clearCache();
+		}
+	}
+
+	/**
+	 * 주 데이터베이스의 SqlSession 을 리턴한다. 아직 얻지 않았으면 주 데이터베이스에 연결한다.
+	 * @return SqlSession 객체
+	 */
+	protected SqlSession getSqlSession() {
+		if (sqlSession == null) {
+			this.db = source.getMybatisDB();
+			this.sqlSession = this.db.getSqlSession();
+		}
+		return sqlSession;
+	}
+
+	/**
+	 * 조회에 사용할 SqlSession 을 리턴한다. 리플리카에서 조회할 수 없거나 잠금을 거는 조회이면 주 데이터베이스의 SqlSession 을 리턴한다.
+	 * @param statement 매핑된 문장의 아이디
+	 * @param parameter 파라미터
+	 * @return SqlSession 객체
+	 */
+	protected SqlSession getReadSqlSession(String statement, Object parameter) {
+		if (sqlSession != null || !readFromReplica) {
+			return getSqlSession();
+		}
+		String sql = null;
+		try {
+			sql = MybatisDB.getSql(statement, parameter);
+		} catch (Throwable e) {
+			logger.error("", e);
+			return getSqlSession();
+		}
+		if (!ReplicaRouter.isReadOnly(sql)) {
+			return getSqlSession();
+		}
+		return source.getReadMybatisDB().getSqlSession();
 	}
 
 	protected int delete(String statement) {
-		return sqlSession.delete(statement);
+		return getSqlSession().delete(statement);
 	}
 
 	protected int delete(String statement, Object parameter) {
-		return sqlSession.delete(statement, parameter);
+		return getSqlSession().delete(statement, parameter);
 	}
 
 	protected <T> T getMapper(Class<T> type) {
-		return sqlSession.getMapper(type);
+		return getSqlSession().getMapper(type);
 	}
 
 	protected int insert(String statement) {
-		return sqlSession.insert(statement);
+		return getSqlSession().insert(statement);
 	}
 
 	protected int insert(String statement, Object parameter) {
-		return sqlSession.insert(statement, parameter);
+		return getSqlSession().insert(statement, parameter);
 	}
 
 	protected void select(String statement, ResultHandler handler) {
-		sqlSession.select(statement, handler);
+		getReadSqlSession(statement, null).select(statement, handler);
 	}
 
 	protected void select(String statement, Object parameter, ResultHandler handler) {
-		sqlSession.select(statement, parameter, handler);
+		getReadSqlSession(statement, parameter).select(statement, parameter, handler);
 	}
 
 	protected void select(String statement, Object parameter, RowBounds rowBounds, ResultHandler handler) {
-		sqlSession.select(statement, parameter, rowBounds, handler);
+		getReadSqlSession(statement, parameter).select(statement, parameter, rowBounds, handler);
 	}
 
 	protected <E> List<E> selectList(String statement) {
-		return sqlSession.selectList(statement);
+		return getReadSqlSession(statement, null).selectList(statement);
 	}
 
 	protected <E> List<E> selectList(String statement, Object parameter) {
-		return sqlSession.selectList(statement, parameter);
+		return getReadSqlSession(statement, parameter).selectList(statement, parameter);
 	}
 
 	protected <E> List<E> selectList(String statement, Object parameter, RowBounds rowBounds) {
-		return sqlSession.selectList(statement, parameter, rowBounds);
+		return getReadSqlSession(statement, parameter).selectList(statement, parameter, rowBounds);
 	}
 
 	protected <K, V> Map<K, V> selectMap(String statement, String mapKey) {
-		return sqlSession.selectMap(statement, mapKey);
+		return getReadSqlSession(statement, null).selectMap(statement, mapKey);
 	}
 
 	protected <K, V> Map<K, V> selectMap(String statement, Object parameter, String mapKey) {
-		return sqlSession.selectMap(statement, parameter, mapKey);
+		return getReadSqlSession(statement, parameter).selectMap(statement, parameter, mapKey);
 	}
 
 	protected <K, V> Map<K, V> selectMap(String statement, Object parameter, String mapKey, RowBounds rowBounds) {
-		return sqlSession.selectMap(statement, parameter, mapKey, rowBounds);
+		return getReadSqlSession(statement, parameter).selectMap(statement, parameter, mapKey, rowBounds);
 	}
 
 	protected <T> T selectOne(String statement) {
-		return sqlSession.selectOne(statement);
+		return getReadSqlSession(statement, null).selectOne(statement);
 	}
 
 	protected <T> T selectOne(String statement, Object parameter) {
-		return sqlSession.selectOne(statement, parameter);
+		return getReadSqlSession(statement, parameter).selectOne(statement, parameter);
 	}
 
 	protected int update(String statement) {
-		return sqlSession.update(statement);
+		return getSqlSession().update(statement);
 	}
 
 	protected int update(String statement, Object parameter) {
-		return sqlSession.update(statement, parameter);
+		return getSqlSession().update(statement, parameter);
 	}
 
 	protected RecordSet selectRecordSet(String statement) {
-		return sqlSession.selectOne(statement);
+		return getReadSqlSession(statement, null).selectOne(statement);
 	}
 
 	protected RecordSet selectRecordSet(String statement, Object parameter) {
-		return sqlSession.selectOne(statement, parameter);
+		return getReadSqlSession(statement, parameter).selectOne(statement, parameter);
 	}
 }
\ No newline at end of file
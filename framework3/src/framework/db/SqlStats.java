@@ -0,0 +1,134 @@
+package framework.db;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import framework.config.Config;
+import framework.metrics.Metrics;
+import framework.metrics.SqlMetric;
+
+/**
+ * 모든 문장의 실행을 정규화된 쿼리별 지표(Metrics.getSqlMetric)에 기록하고, 실행시간이 기준을 넘은 쿼리를 바인드 변수 값, 액션과 함께 로그에 기록하는 클래스
+ * 쿼리는 문자열, 숫자 상수를 ? 로 바꾸고 IN 목록과 공백을 줄여 정규화하며, 같은 쿼리 문자열의 지표 객체는 캐시하여 실행마다 다시 정규화하지 않는다.
+ * <br>
+ * application.properties 설정 (서비스명이 default 인 경우)
+ * <br>
+ * db.default.slowQueryThreshold : 느린 쿼리로 기록할 실행시간(밀리초, 기본값 1000, 0 이하이면 기록하지 않음)
+ */
+final class SqlStats {
+	private static final Log logger = LogFactory.getLog(SqlStats.class);
+	private static final int MAX_CACHE_SIZE = 10000;
+	private static final Pattern STRING_PATTERN = Pattern.compile("'(?:[^']|'')*'");
+	private static final Pattern NUMBER_PATTERN = Pattern.compile("(?<![\\w.$#])\\d+(?:\\.\\d+)?(?![\\w.])");
+	private static final Pattern IN_LIST_PATTERN = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+	private static final Pattern SPACE_PATTERN = Pattern.compile("\\s+");
+	private static final ConcurrentMap<String, SqlMetric> metricCache = new ConcurrentHashMap<String, SqlMetric>();
+	private static final ConcurrentMap<String, Long> thresholdMap = new ConcurrentHashMap<String, Long>();
+
+	/**
+	 * 생성자, 외부에서 객체를 인스턴스화 할 수 없도록 설정
+	 */
+	private SqlStats() {
+	}
+
+	/**
+	 * 실행을 기록한다. 실행시간이 기준을 넘으면 느린 쿼리 로그를 남긴다.
+	 * @param db 실행한 DB 객체
+	 * @param caller 호출한 객체
+	 * @param sql 쿼리
+	 * @param params 바인드 변수 값, 없으면 null
+	 * @param startTime 시작시각(System.nanoTime())
+	 * @param fetched 조회한 행 수
+	 * @param updated 변경한 행 수
+	 */
+	static void record(DB db, Object caller, String sql, List<?> params, long startTime, long fetched, long updated) {
+		long elapsed = System.nanoTime() - startTime;
+		String callerName = (caller == null) ? "" : caller.getClass().getName();
+		SqlMetric metric = getMetric(sql);
+		metric.record(elapsed, fetched, updated, callerName);
+		long threshold = getThreshold(db.getServiceName());
+		if (threshold > 0 && elapsed >= threshold) {
+			metric.slow();
+			StringBuilder buf = new StringBuilder();
+			buf.append("느린 쿼리 : " + TimeUnit.NANOSECONDS.toMillis(elapsed) + "ms");
+			buf.append(", Rows : " + ((updated > 0) ? updated : fetched));
+			buf.append(", Action : " + db.getActionName());
+			buf.append(", Caller : " + callerName + "\n");
+			buf.append("@Sql Command : \n" + sql);
+			if (params != null && !params.isEmpty()) {
+				buf.append("\n@Sql Params : " + params);
+			}
+			logger.warn(buf.toString());
+		}
+	}
+
+	/**
+	 * 실행 중 오류가 발생했음을 기록한다.
+	 * @param sql 쿼리
+	 */
+	static void error(String sql) {
+		getMetric(sql).error();
+	}
+
+	/**
+	 * 배치 실행 결과의 변경 행 수 합계를 리턴한다. 행 수를 알 수 없는 결과(SUCCESS_NO_INFO)는 더하지 않는다.
+	 * @param counts 배치 실행 결과
+	 * @return 변경 행 수
+	 */
+	static long sum(int[] counts) {
+		long total = 0;
+		if (counts != null) {
+			for (int count : counts) {
+				if (count > 0) {
+					total += count;
+				}
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * 쿼리를 정규화한다.
+	 * @param sql 쿼리
+	 * @return 정규화된 쿼리
+	 */
+	static String normalize(String sql) {
+		String result = STRING_PATTERN.matcher(sql).replaceAll("?");
+		result = NUMBER_PATTERN.matcher(result).replaceAll("?");
+		result = IN_LIST_PATTERN.matcher(result).replaceAll("(?)");
+		return SPACE_PATTERN.matcher(result.trim()).replaceAll(" ");
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	/*
+	 * 쿼리 문자열의 지표 객체, 상수가 포함된 쿼리가 많아 캐시가 가득 차면 캐시하지 않고 매번 정규화한다.
+	 */
+	private static SqlMetric getMetric(String sql) {
+		String key = (sql == null) ? "" : sql;
+		SqlMetric metric = metricCache.get(key);
+		if (metric == null) {
+			metric = Metrics.getSqlMetric(normalize(key));
+			if (metricCache.size() < MAX_CACHE_SIZE) {
+				metricCache.putIfAbsent(key, metric);
+			}
+		}
+		return metric;
+	}
+
+	private static long getThreshold(String serviceName) {
+		Long threshold = thresholdMap.get(serviceName);
+		if (threshold == null) {
+			long millis = Config.getInstance().getLong("db." + serviceName + ".slowQueryThreshold", Long.valueOf(1000)).longValue();
+			threshold = Long.valueOf(TimeUnit.MILLISECONDS.toNanos(millis));
+			thresholdMap.put(serviceName, threshold);
+		}
+		return threshold.longValue();
+	}
+}
\ No newline at end of file
@@ -1,5 +1,6 @@
 package framework.db;
 
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
@@ -10,9 +11,11 @@ public final class Statement extends AbstractStatement {
 	private String sql = null;
 	private DB db = null;
 	private java.sql.Statement stmt = null;
+	private Connection stmtConnection = null;
 	private RecordSet rs = null;
 	private int upCnt = 0;
 	private Object caller = null;
+	private boolean columnar = false;
 
 	public static Statement create(String sql, DB db, Object caller) {
 		return new Statement(sql, db, caller);
@@ -22,12 +25,34 @@ public final class Statement extends AbstractStatement {
 		this.sql = sql;
 		this.db = db;
 		this.caller = caller;
+		this.columnar = db.isColumnar();
+	}
+
+	/**
+	 * 조회결과를 컬럼 단위로 담을지 여부를 설정한다. 기본값은 DB 의 설정을 따른다.
+	 * 행이 많은 조회결과의 메모리 사용량을 줄이며, RecordSet 의 사용법은 같다.
+	 * @param columnar 컬럼 단위 저장 여부
+	 */
+	public void setColumnar(boolean columnar) {
+		this.columnar = columnar;
 	}
 
 	protected java.sql.Statement getStatement() {
+		return getStatement(db.getConnection());
+	}
+
+	/*
+	 * 컨넥션의 Statement 를 리턴한다. 이전에 다른 컨넥션(리플리카)에서 만든 Statement 는 닫고 새로 만든다.
+	 */
+	private java.sql.Statement getStatement(Connection conn) {
+		if (stmt != null && stmtConnection != conn) {
+			close();
+		}
 		try {
 			if (stmt == null) {
-				stmt = db.getConnection().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				stmtConnection = conn;
+				db.opened(this);
 				stmt.setFetchSize(100);
 			}
 		} catch (SQLException e) {
@@ -42,6 +67,9 @@ public final class Statement extends AbstractStatement {
 		if (stmt != null) {
 			try {
 				stmt.close();
+				stmt = null;
+				stmtConnection = null;
+				db.closed(this);
 			} catch (SQLException e) {
 				logger.error("", e);
 				throw new RuntimeException(e);
@@ -49,24 +77,45 @@ public final class Statement extends AbstractStatement {
 		}
 	}
 
+	/**
+	 * 쿼리를 실행한다. currPage 와 pageSize 가 0 보다 크면 데이터베이스에 맞는 페이징 쿼리로 해당 페이지만 조회하며,
+	 * 데이터베이스 페이징을 사용할 수 없으면 결과를 읽으면서 페이징한다.
+	 * @param currPage 현재 페이지, 첫번째 페이지는 1
+	 * @param pageSize 한 페이지에 표시할 데이터 갯수
+	 * @return RecordSet 객체
+	 */
 	public RecordSet executeQuery(int currPage, int pageSize) {
 		if (getSQL() == null) {
 			logger.error("Query is Null");
 			return null;
 		}
+		String query = getSQL();
+		int extraColumnCount = 0;
+		if (currPage > 0 && pageSize > 0) {
+			Dialect dialect = Dialect.get(db.getServiceName(), db.getReadConnection(query));
+			if (dialect != null) {
+				query = dialect.getPageSql(query, (currPage - 1) * pageSize, pageSize);
+				extraColumnCount = dialect.getExtraColumnCount();
+				currPage = 0;
+				pageSize = 0;
+			}
+		}
+		long startTime = System.nanoTime();
 		try {
-			java.sql.Statement stmt = getStatement();
+			java.sql.Statement stmt = getStatement(db.getReadConnection(query));
 			if (logger.isDebugEnabled()) {
 				StringBuilder log = new StringBuilder();
 				log.append("@Sql Start (STATEMENT) FetchSize : " + stmt.getFetchSize() + " Caller : " + caller.getClass().getName() + "\n");
-				log.append("@Sql Command : \n" + getSQL());
+				log.append("@Sql Command : \n" + query);
 				logger.debug(log.toString());
 			}
-			rs = new RecordSet(stmt.executeQuery(getSQL()), currPage, pageSize);
+			rs = new RecordSet(stmt.executeQuery(query), currPage, pageSize, null, extraColumnCount, columnar);
+			SqlStats.record(db, caller, getSQL(), null, startTime, rs.getRowCount(), 0);
 			if (logger.isDebugEnabled()) {
 				logger.debug("@Sql End (STATEMENT)");
 			}
 		} catch (SQLException e) {
+			SqlStats.error(getSQL());
 			logger.error("", e);
 			throw new RuntimeException(e.getMessage() + "\nSQL : " + getSQL(), e);
 		}
@@ -77,6 +126,94 @@ public final class Statement extends AbstractStatement {
 		return executeQuery(0, 0);
 	}
 
+	/**
+	 * 페이징 조회를 하고 전체 건수를 함께 구한다. 전체 건수는 RecordSet 의 getTotalCount() 로 얻는다.
+	 * @param currPage 현재 페이지, 첫번째 페이지는 1
+	 * @param pageSize 한 페이지에 표시할 데이터 갯수
+	 * @return RecordSet 객체
+	 */
+	public RecordSet executeQueryWithCount(int currPage, int pageSize) {
+		int totalCount = executeCount();
+		RecordSet result = executeQuery(currPage, pageSize);
+		if (result != null) {
+			result.setTotalCount(totalCount);
+		}
+		return result;
+	}
+
+	/**
+	 * SELECT COUNT(*) FROM (쿼리) 를 실행하여 전체 건수를 구한다.
+	 * @return 전체 건수
+	 */
+	public int executeCount() {
+		if (getSQL() == null) {
+			logger.error("Query is Null");
+			return 0;
+		}
+		String countSql = Dialect.getCountSql(getSQL());
+		long startTime = System.nanoTime();
+		try {
+			java.sql.Statement stmt = getStatement(db.getReadConnection(countSql));
+			if (logger.isDebugEnabled()) {
+				logger.debug("@Sql Start (STATEMENT COUNT) Caller : " + caller.getClass().getName() + "\n@Sql Command : \n" + countSql);
+			}
+			ResultSet resultSet = stmt.executeQuery(countSql);
+			try {
+				int count = resultSet.next() ? resultSet.getInt(1) : 0;
+				SqlStats.record(db, caller, countSql, null, startTime, 1, 0);
+				return count;
+			} finally {
+				resultSet.close();
+			}
+		} catch (SQLException e) {
+			SqlStats.error(countSql);
+			logger.error("", e);
+			throw new RuntimeException(e.getMessage() + "\nSQL : " + countSql, e);
+		}
+	}
+
+	public RecordCursor executeCursor() {
+		return executeCursor(100);
+	}
+
+	/**
+	 * 쿼리를 실행하고 결과를 한 행씩 읽는 커서를 리턴한다. 커서를 닫으면 이 문장도 닫힌다.
+	 * @param fetchSize 데이터베이스에서 한번에 가져올 행의 수(MySQL 은 Integer.MIN_VALUE 이어야 스트리밍된다)
+	 * @return RecordCursor 객체
+	 */
+	public RecordCursor executeCursor(int fetchSize) {
+		if (getSQL() == null) {
+			logger.error("Query is Null");
+			return null;
+		}
+		ResultSet resultSet = null;
+		long startTime = System.nanoTime();
+		try {
+			java.sql.Statement stmt = getStatement(db.getReadConnection(getSQL()));
+			stmt.setFetchSize(fetchSize);
+			if (logger.isDebugEnabled()) {
+				StringBuilder log = new StringBuilder();
+				log.append("@Sql Start (STATEMENT CURSOR) FetchSize : " + stmt.getFetchSize() + " Caller : " + caller.getClass().getName() + "\n");
+				log.append("@Sql Command : \n" + getSQL());
+				logger.debug(log.toString());
+			}
+			resultSet = stmt.executeQuery(getSQL());
+			SqlStats.record(db, caller, getSQL(), null, startTime, 0, 0);
+			return new RecordCursor(resultSet, ColumnMetaData.get(resultSet.getMetaData(), null), this, db);
+		} catch (SQLException e) {
+			SqlStats.error(getSQL());
+			logger.error("", e);
+			if (resultSet != null) {
+				try {
+					resultSet.close();
+				} catch (SQLException se) {
+					logger.error("", se);
+				}
+			}
+			throw new RuntimeException(e.getMessage() + "\nSQL : " + getSQL(), e);
+		}
+	}
+
 	public RecordSet executeQuery(String sql) {
 		setSQL(sql);
 		return executeQuery(0, 0);
@@ -92,6 +229,7 @@ public final class Statement extends AbstractStatement {
 			logger.error("Query is Null");
 			return 0;
 		}
+		long startTime = System.nanoTime();
 		try {
 			java.sql.Statement stmt = getStatement();
 			if (logger.isDebugEnabled()) {
@@ -101,10 +239,13 @@ public final class Statement extends AbstractStatement {
 				logger.debug(log.toString());
 			}
 			upCnt = stmt.executeUpdate(getSQL());
+			db.written(getSQL());
+			SqlStats.record(db, caller, getSQL(), null, startTime, 0, upCnt);
 			if (logger.isDebugEnabled()) {
 				logger.debug("@Sql End (STATEMENT)");
 			}
 		} catch (SQLException e) {
+			SqlStats.error(getSQL());
 			logger.error("", e);
 			throw new RuntimeException(e.getMessage() + "\nSQL : " + getSQL(), e);
 		}
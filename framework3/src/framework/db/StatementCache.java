@@ -0,0 +1,188 @@
+package framework.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * 물리적 커넥션 하나에 속한 PreparedStatement 를 SQL 별로 보관하는 LRU 캐시
+ * 캐시에서 얻은 PreparedStatement 의 close() 는 문장을 닫지 않고 파라미터, 배치, 문장 설정(fetchSize, maxRows, queryTimeout)을 되돌린 후 캐시에 돌려놓는다.
+ * 같은 SQL 의 문장이 이미 사용중이면 캐시하지 않는 새 문장을 준비한다.
+ */
+final class StatementCache {
+	private static final Log logger = LogFactory.getLog(StatementCache.class);
+	private static final int DEFAULT_FETCH_SIZE = 100;
+	private final Connection connection;
+	private final Map<String, CachedStatement> cache;
+
+	/**
+	 * 캐시 생성자
+	 * @param connection 물리적 커넥션
+	 * @param maxSize 보관할 최대 문장 수
+	 */
+	StatementCache(Connection connection, final int maxSize) {
+		this.connection = connection;
+		this.cache = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+				if (size() <= maxSize) {
+					return false;
+				}
+				CachedStatement cached = eldest.getValue();
+				cached.evicted = true;
+				if (cached.user == null) {
+					closeQuietly(cached);
+				}
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * SQL 에 해당하는 PreparedStatement 를 캐시에서 얻거나 새로 준비한다.
+	 * @param owner 문장의 getConnection() 이 리턴할 커넥션
+	 * @param sql SQL 문장
+	 * @param resultSetType ResultSet 타입
+	 * @param resultSetConcurrency ResultSet 동시성
+	 * @return PreparedStatement 객체
+	 * @throws SQLException 문장을 준비할 수 없는 경우
+	 */
+	synchronized java.sql.PreparedStatement prepare(Connection owner, String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+		String key = resultSetType + ":" + resultSetConcurrency + ":" + sql;
+		CachedStatement cached = cache.get(key);
+		if (cached == null) {
+			cached = new CachedStatement(connection.prepareStatement(sql, resultSetType, resultSetConcurrency));
+			cache.put(key, cached);
+		} else if (cached.user != null) {
+			return connection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+		}
+		StatementHandle handle = new StatementHandle(cached, owner);
+		cached.user = handle;
+		return (java.sql.PreparedStatement) Proxy.newProxyInstance(StatementCache.class.getClassLoader(), new Class<?>[] { java.sql.PreparedStatement.class }, handle);
+	}
+
+	/**
+	 * 커넥션이 반납될 때 닫지 않고 남아있는 문장을 회수한다. 회수된 문장의 이전 핸들은 더 이상 사용할 수 없다.
+	 */
+	synchronized void reclaim() {
+		for (CachedStatement cached : new ArrayList<CachedStatement>(cache.values())) {
+			if (cached.user != null) {
+				giveBack(cached);
+			}
+		}
+	}
+
+	/**
+	 * 캐시에 보관된 문장을 모두 닫는다.
+	 */
+	synchronized void close() {
+		List<CachedStatement> list = new ArrayList<CachedStatement>(cache.values());
+		cache.clear();
+		for (CachedStatement cached : list) {
+			closeQuietly(cached);
+		}
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	/*
+	 * 사용이 끝난 문장의 파라미터와 남은 배치를 지우고 문장 설정을 기본값으로 되돌려 캐시에 돌려놓는다.
+	 * 캐시에서 밀려난 문장이거나 되돌릴 수 없으면 닫는다.
+	 */
+	private synchronized void giveBack(CachedStatement cached) {
+		cached.user = null;
+		if (cached.evicted) {
+			closeQuietly(cached);
+			return;
+		}
+		try {
+			cached.statement.clearParameters();
+			cached.statement.clearBatch();
+			cached.statement.clearWarnings();
+			cached.statement.setFetchSize(DEFAULT_FETCH_SIZE);
+			cached.statement.setMaxRows(0);
+			cached.statement.setQueryTimeout(0);
+		} catch (Throwable e) {
+			cached.evicted = true;
+			cache.values().remove(cached);
+			closeQuietly(cached);
+		}
+	}
+
+	private void closeQuietly(CachedStatement cached) {
+		try {
+			cached.statement.close();
+		} catch (Throwable e) {
+			logger.error("", e);
+		}
+	}
+
+	/**
+	 * 캐시에 보관되는 물리적 문장
+	 */
+	private static final class CachedStatement {
+		private final java.sql.PreparedStatement statement;
+		private volatile StatementHandle user = null;
+		private boolean evicted = false;
+
+		private CachedStatement(java.sql.PreparedStatement statement) {
+			this.statement = statement;
+		}
+	}
+
+	/**
+	 * 캐시에서 얻어간 문장 하나를 나타내는 프록시 핸들러, close() 를 호출하면 캐시에 돌려놓고 이후의 호출은 예외를 발생시킨다.
+	 */
+	private final class StatementHandle implements InvocationHandler {
+		private final CachedStatement cached;
+		private final Connection owner;
+
+		private StatementHandle(CachedStatement cached, Connection owner) {
+			this.cached = cached;
+			this.owner = owner;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String methodName = method.getName();
+			if ("close".equals(methodName)) {
+				synchronized (StatementCache.this) {
+					if (cached.user == this) {
+						giveBack(cached);
+					}
+				}
+				return null;
+			} else if ("isClosed".equals(methodName)) {
+				return Boolean.valueOf(cached.user != this);
+			} else if ("getConnection".equals(methodName)) {
+				return owner;
+			} else if ("equals".equals(methodName)) {
+				return Boolean.valueOf(proxy == args[0]);
+			} else if ("hashCode".equals(methodName)) {
+				return Integer.valueOf(System.identityHashCode(proxy));
+			} else if ("toString".equals(methodName)) {
+				return "CachedStatement[" + cached.statement + "]";
+			}
+			if (cached.user != this) {
+				throw new SQLException("이미 닫힌 문장입니다.");
+			}
+			try {
+				return method.invoke(cached.statement, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+}
\ No newline at end of file
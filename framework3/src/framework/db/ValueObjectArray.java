@@ -1,12 +1,14 @@
 package framework.db;
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * 테이블의 값을 담는 VO의 배열 클래스
+ * VO는 처리 유형(INSERT, UPDATE 등)별 목록에 추가한 순서대로 담기며, 유형별로 한번에 조회한다.
  */
 public class ValueObjectArray {
 	public final static String INSERT = "IK";
@@ -15,41 +17,39 @@ public class ValueObjectArray {
 	public final static String USER_UPDATE = "UU";
 	public final static String USER_DELETE = "UD";
 	public final static String UPDATE_ONLY = "UO";
-	private final Map<String, ValueObject> voMap = new LinkedHashMap<String, ValueObject>();
+	private final Map<String, List<ValueObject>> buckets = new HashMap<String, List<ValueObject>>();
 	private String[] keys = null;
 	private String[] fields = null;
-	private int seq = 0;
+	private int size = 0;
 
 	public void add(String type, ValueObject vo) {
 		if (vo == null) {
 			return;
 		}
-		voMap.put(type + seq++, vo);
+		List<ValueObject> bucket = buckets.get(type);
+		if (bucket == null) {
+			bucket = new ArrayList<ValueObject>();
+			buckets.put(type, bucket);
+		}
+		bucket.add(vo);
+		size++;
 	}
 
 	public int size() {
-		return voMap.size();
+		return size;
 	}
 
 	public ValueObject[] get(String type) {
 		if (size() == 0) {
 			return null;
 		}
-		List<ValueObject> list = new ArrayList<ValueObject>();
-		for (String key : voMap.keySet()) {
-			if (key.substring(0, 2).equals(type)) {
-				list.add(voMap.get(key));
-			}
-		}
-		ValueObject[] voArray = new ValueObject[list.size()];
-		for (int i = 0; i < voArray.length; i++) {
-			voArray[i] = list.get(i);
-		}
-		return voArray;
+		List<ValueObject> bucket = getBucket(type);
+		return bucket.toArray(new ValueObject[bucket.size()]);
 	}
 
 	public void clear() {
-		voMap.clear();
+		buckets.clear();
+		size = 0;
 		fields = null;
 		keys = null;
 	}
@@ -85,4 +85,17 @@ public class ValueObjectArray {
 		}
 		return fields.clone();
 	}
+
+	/**
+	 * 유형의 VO 목록을 복사하지 않고 리턴한다. AbstractOrmDao.save 에서 사용한다.
+	 * @param type 처리 유형
+	 * @return 추가한 순서대로의 VO 목록, 없으면 빈 목록
+	 */
+	List<ValueObject> getBucket(String type) {
+		List<ValueObject> bucket = buckets.get(type);
+		if (bucket == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(bucket);
+	}
 }
\ No newline at end of file
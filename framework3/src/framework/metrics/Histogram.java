@@ -0,0 +1,150 @@
+package framework.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 잠금 없이(lock-free) 값을 기록하는 로그-선형(log-linear) 버킷 히스토그램 클래스
+ * 2의 거듭제곱 구간을 8개의 하위 버킷으로 나누어 상대오차 12.5% 이내로 백분위수를 계산하며, 기록시 객체를 생성하지 않는다.
+ */
+public final class Histogram {
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_EXPONENT = 40;
+	private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * 값을 기록한다. 음수는 0으로 기록한다.
+	 * @param value 기록할 값
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		buckets.incrementAndGet(getIndex(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		long currMax = max.get();
+		while (value > currMax) {
+			if (max.compareAndSet(currMax, value)) {
+				break;
+			}
+			currMax = max.get();
+		}
+	}
+
+	/**
+	 * 현재까지 기록된 값의 스냅샷을 리턴한다.
+	 * @return 스냅샷
+	 */
+	public Snapshot getSnapshot() {
+		long[] counts = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = buckets.get(i);
+		}
+		return new Snapshot(counts, count.get(), sum.get(), max.get());
+	}
+
+	/**
+	 * 히스토그램의 특정 시점 값
+	 */
+	public static final class Snapshot {
+		private final long[] counts;
+		private final long count;
+		private final long sum;
+		private final long max;
+
+		private Snapshot(long[] counts, long count, long sum, long max) {
+			this.counts = counts;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		/**
+		 * 기록된 값의 개수를 리턴한다.
+		 * @return 개수
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * 기록된 값의 합계를 리턴한다.
+		 * @return 합계
+		 */
+		public long getSum() {
+			return sum;
+		}
+
+		/**
+		 * 기록된 값의 최대값을 리턴한다.
+		 * @return 최대값
+		 */
+		public long getMax() {
+			return max;
+		}
+
+		/**
+		 * 백분위수를 리턴한다.
+		 * <br>
+		 * ex) 99 백분위수 : getPercentile(0.99)
+		 * @param quantile 0과 1사이의 분위
+		 * @return 백분위수, 기록된 값이 없으면 0
+		 */
+		public long getPercentile(double quantile) {
+			long total = 0;
+			for (long c : counts) {
+				total += c;
+			}
+			if (total == 0) {
+				return 0;
+			}
+			long rank = (long) Math.ceil(quantile * total);
+			if (rank < 1) {
+				rank = 1;
+			}
+			long accumulated = 0;
+			for (int i = 0; i < counts.length; i++) {
+				accumulated += counts[i];
+				if (accumulated >= rank) {
+					return Math.min(getUpperBound(i), max);
+				}
+			}
+			return max;
+		}
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	/*
+	 * 값이 속하는 버킷의 인덱스
+	 */
+	private static int getIndex(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if (exponent > MAX_EXPONENT) {
+			return BUCKET_COUNT - 1;
+		}
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	/*
+	 * 버킷에 속하는 값의 상한
+	 */
+	private static long getUpperBound(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+		int subBucket = index % SUB_BUCKET_COUNT;
+		return ((SUB_BUCKET_COUNT + subBucket + 1L) << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,128 @@
+package framework.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 동시실행 제한기(bulkhead)의 실행중인 요청 수, 대기중인 요청 수, 거부 건수를 기록하는 클래스
+ */
+public final class LimiterMetric {
+	private final String name;
+	private final int limit;
+	private final int queueSize;
+	private final AtomicLong active = new AtomicLong();
+	private final AtomicLong waiting = new AtomicLong();
+	private final AtomicLong queueFull = new AtomicLong();
+	private final AtomicLong timeout = new AtomicLong();
+
+	LimiterMetric(String name, int limit, int queueSize) {
+		this.name = name;
+		this.limit = limit;
+		this.queueSize = queueSize;
+	}
+
+	/**
+	 * 실행 허가를 얻었음을 기록한다.
+	 */
+	public void acquired() {
+		active.incrementAndGet();
+	}
+
+	/**
+	 * 실행 허가를 반납했음을 기록한다.
+	 */
+	public void released() {
+		active.decrementAndGet();
+	}
+
+	/**
+	 * 대기를 시작했음을 기록한다.
+	 */
+	public void waitStarted() {
+		waiting.incrementAndGet();
+	}
+
+	/**
+	 * 대기를 마쳤음을 기록한다.
+	 */
+	public void waitEnded() {
+		waiting.decrementAndGet();
+	}
+
+	/**
+	 * 대기열이 가득차서 거부되었음을 기록한다.
+	 */
+	public void rejectedByQueueFull() {
+		queueFull.incrementAndGet();
+	}
+
+	/**
+	 * 대기시간이 초과되어 거부되었음을 기록한다.
+	 */
+	public void rejectedByTimeout() {
+		timeout.incrementAndGet();
+	}
+
+	/**
+	 * 이름을 리턴한다.
+	 * @return 이름
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 최대 동시실행 수를 리턴한다.
+	 * @return 최대 동시실행 수
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * 최대 대기 수를 리턴한다.
+	 * @return 최대 대기 수
+	 */
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	/**
+	 * 실행중인 요청 수를 리턴한다.
+	 * @return 실행중인 요청 수
+	 */
+	public long getActive() {
+		return active.get();
+	}
+
+	/**
+	 * 대기중인 요청 수를 리턴한다.
+	 * @return 대기중인 요청 수
+	 */
+	public long getWaiting() {
+		return waiting.get();
+	}
+
+	/**
+	 * 대기열이 가득차서 거부된 건수를 리턴한다.
+	 * @return 거부 건수
+	 */
+	public long getQueueFull() {
+		return queueFull.get();
+	}
+
+	/**
+	 * 대기시간이 초과되어 거부된 건수를 리턴한다.
+	 * @return 거부 건수
+	 */
+	public long getTimeout() {
+		return timeout.get();
+	}
+
+	/**
+	 * 포화도(실행중인 요청 수 / 최대 동시실행 수)를 리턴한다.
+	 * @return 포화도
+	 */
+	public double getSaturation() {
+		return (limit <= 0) ? 0 : (double) active.get() / limit;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,153 @@
+package framework.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 대량적재(bulk load)의 단계별(읽기, 변환, 쓰기) 처리 건수와 처리율, 격리된 오류 행 수, 단계 사이 대기열의 크기를 기록하는 클래스
+ */
+public final class LoadMetric {
+	private final String name;
+	private final Status status;
+	private final AtomicLong read = new AtomicLong();
+	private final AtomicLong transformed = new AtomicLong();
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicLong quarantined = new AtomicLong();
+	private final long startTime = System.nanoTime();
+	private volatile long endTime = 0;
+
+	/**
+	 * 대량적재 단계 사이 대기열의 현재 상태를 제공하는 인터페이스
+	 */
+	public interface Status {
+		/**
+		 * 읽기 단계와 변환 단계 사이 대기열의 크기를 리턴한다.
+		 * @return 대기중인 행 수
+		 */
+		int getReadQueueSize();
+
+		/**
+		 * 변환 단계와 쓰기 단계 사이 대기열의 크기를 리턴한다.
+		 * @return 대기중인 행 수
+		 */
+		int getWriteQueueSize();
+	}
+
+	LoadMetric(String name, Status status) {
+		this.name = name;
+		this.status = status;
+	}
+
+	/**
+	 * 읽은 행 수를 더한다.
+	 * @param count 행 수
+	 */
+	public void read(long count) {
+		read.addAndGet(count);
+	}
+
+	/**
+	 * 변환한 행 수를 더한다.
+	 * @param count 행 수
+	 */
+	public void transformed(long count) {
+		transformed.addAndGet(count);
+	}
+
+	/**
+	 * 데이터베이스에 쓴 행 수를 더한다.
+	 * @param count 행 수
+	 */
+	public void written(long count) {
+		written.addAndGet(count);
+	}
+
+	/**
+	 * 오류로 격리된 행 수를 더한다.
+	 * @param count 행 수
+	 */
+	public void quarantined(long count) {
+		quarantined.addAndGet(count);
+	}
+
+	/**
+	 * 적재가 끝났음을 기록한다. 이후의 처리율은 끝난 시각을 기준으로 계산한다.
+	 */
+	public void finished() {
+		endTime = System.nanoTime();
+	}
+
+	/**
+	 * 이름을 리턴한다.
+	 * @return 이름
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 읽은 행 수를 리턴한다.
+	 * @return 행 수
+	 */
+	public long getRead() {
+		return read.get();
+	}
+
+	/**
+	 * 변환한 행 수를 리턴한다.
+	 * @return 행 수
+	 */
+	public long getTransformed() {
+		return transformed.get();
+	}
+
+	/**
+	 * 데이터베이스에 쓴 행 수를 리턴한다.
+	 * @return 행 수
+	 */
+	public long getWritten() {
+		return written.get();
+	}
+
+	/**
+	 * 오류로 격리된 행 수를 리턴한다.
+	 * @return 행 수
+	 */
+	public long getQuarantined() {
+		return quarantined.get();
+	}
+
+	/**
+	 * 읽기 단계와 변환 단계 사이 대기열의 크기를 리턴한다.
+	 * @return 대기중인 행 수
+	 */
+	public int getReadQueueSize() {
+		return status.getReadQueueSize();
+	}
+
+	/**
+	 * 변환 단계와 쓰기 단계 사이 대기열의 크기를 리턴한다.
+	 * @return 대기중인 행 수
+	 */
+	public int getWriteQueueSize() {
+		return status.getWriteQueueSize();
+	}
+
+	/**
+	 * 시작 후 경과한 시간을 리턴한다.
+	 * @return 경과시간(나노초)
+	 */
+	public long getElapsed() {
+		long end = endTime;
+		return ((end == 0) ? System.nanoTime() : end) - startTime;
+	}
+
+	/**
+	 * 초당 처리 건수를 리턴한다.
+	 * @param count 처리 건수
+	 * @return 초당 처리 건수
+	 */
+	public double getRate(long count) {
+		long elapsed = getElapsed();
+		return (elapsed <= 0) ? 0 : count * 1000000000.0 / elapsed;
+	}
+}
\ No newline at end of file
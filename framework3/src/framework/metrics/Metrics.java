@@ -0,0 +1,543 @@
+package framework.metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 라우트별, 액션별 요청 지표(처리시간 히스토그램, 처리중인 요청 수, 오류 건수)와 동시실행 제한기, 커넥션풀, 대량적재, 쿼리 결과 캐시, 쿼리 실행 지표를 보관하는 레지스트리 클래스
+ * 지표 객체는 라우트와 액션이 처음 등록될 때 한번 생성되며, 이후의 기록은 잠금과 객체 생성 없이 수행된다.
+ * 보관된 지표는 Prometheus 텍스트 형식 또는 JSON 형식으로 출력할 수 있다.
+ */
+public final class Metrics {
+
+	/**
+	 * 라우트 지표의 종류
+	 */
+	public static final String TYPE_ROUTE = "route";
+
+	/**
+	 * 액션 지표의 종류
+	 */
+	public static final String TYPE_ACTION = "action";
+
+	/**
+	 * 쿼리 지표 수가 최대값에 도달한 후 새로 실행된 쿼리를 모아 기록하는 지표의 쿼리 이름
+	 */
+	public static final String OVERFLOW_SQL = "(other)";
+
+	private static final int MAX_SQL_METRICS = 1000;
+
+	private static final ConcurrentMap<String, RequestMetric> routeMetrics = new ConcurrentHashMap<String, RequestMetric>();
+	private static final ConcurrentMap<String, RequestMetric> actionMetrics = new ConcurrentHashMap<String, RequestMetric>();
+	private static final ConcurrentMap<String, LimiterMetric> limiterMetrics = new ConcurrentHashMap<String, LimiterMetric>();
+	private static final ConcurrentMap<String, PoolMetric> poolMetrics = new ConcurrentHashMap<String, PoolMetric>();
+	private static final ConcurrentMap<String, LoadMetric> loadMetrics = new ConcurrentHashMap<String, LoadMetric>();
+	private static final ConcurrentMap<String, QueryCacheMetric> queryCacheMetrics = new ConcurrentHashMap<String, QueryCacheMetric>();
+	private static final ConcurrentMap<String, SqlMetric> sqlMetrics = new ConcurrentHashMap<String, SqlMetric>();
+	private static final double[] QUANTILES = new double[] { 0.5, 0.99, 0.999 };
+
+	/**
+	 * 생성자, 외부에서 객체를 인스턴스화 할 수 없도록 설정
+	 */
+	private Metrics() {
+	}
+
+	/**
+	 * 라우트(요청 경로)의 지표 객체를 리턴한다. 없으면 생성한다.
+	 * @param path 요청 경로
+	 * @return 지표 객체
+	 */
+	public static RequestMetric getRouteMetric(String path) {
+		return getMetric(routeMetrics, TYPE_ROUTE, path);
+	}
+
+	/**
+	 * 액션(패키지 + 클래스 + 메소드명)의 지표 객체를 리턴한다. 없으면 생성한다.
+	 * @param actionName 액션 이름
+	 * @return 지표 객체
+	 */
+	public static RequestMetric getActionMetric(String actionName) {
+		return getMetric(actionMetrics, TYPE_ACTION, actionName);
+	}
+
+	/**
+	 * 동시실행 제한기의 지표 객체를 생성하여 등록한다. 같은 이름의 지표가 있으면 교체한다.
+	 * @param name 제한기 이름
+	 * @param limit 최대 동시실행 수
+	 * @param queueSize 최대 대기 수
+	 * @return 지표 객체
+	 */
+	public static LimiterMetric registerLimiterMetric(String name, int limit, int queueSize) {
+		LimiterMetric metric = new LimiterMetric(name, limit, queueSize);
+		limiterMetrics.put(name, metric);
+		return metric;
+	}
+
+	/**
+	 * 커넥션풀의 지표 객체를 생성하여 등록한다. 같은 이름의 지표가 있으면 교체한다.
+	 * @param name 커넥션풀 이름
+	 * @param status 커넥션풀의 현재 상태를 제공하는 객체
+	 * @return 지표 객체
+	 */
+	public static PoolMetric registerPoolMetric(String name, PoolMetric.Status status) {
+		PoolMetric metric = new PoolMetric(name, status);
+		poolMetrics.put(name, metric);
+		return metric;
+	}
+
+	/**
+	 * 대량적재의 지표 객체를 생성하여 등록한다. 같은 이름의 지표가 있으면 교체한다.
+	 * @param name 대량적재 이름
+	 * @param status 단계 사이 대기열의 현재 상태를 제공하는 객체
+	 * @return 지표 객체
+	 */
+	public static LoadMetric registerLoadMetric(String name, LoadMetric.Status status) {
+		LoadMetric metric = new LoadMetric(name, status);
+		loadMetrics.put(name, metric);
+		return metric;
+	}
+
+	/**
+	 * 쿼리 결과 캐시의 지표 객체를 리턴한다. 없으면 생성한다.
+	 * 쿼리 지표와 같이 지표 수가 최대값(1000)에 도달한 후의 새 쿼리는 OVERFLOW_SQL 지표에 함께 기록한다.
+	 * @param sql 쿼리
+	 * @return 지표 객체
+	 */
+	public static QueryCacheMetric getQueryCacheMetric(String sql) {
+		QueryCacheMetric metric = queryCacheMetrics.get(sql);
+		if (metric == null) {
+			if (queryCacheMetrics.size() >= MAX_SQL_METRICS) {
+				sql = OVERFLOW_SQL;
+				metric = queryCacheMetrics.get(sql);
+				if (metric != null) {
+					return metric;
+				}
+			}
+			metric = new QueryCacheMetric(sql);
+			QueryCacheMetric old = queryCacheMetrics.putIfAbsent(sql, metric);
+			if (old != null) {
+				metric = old;
+			}
+		}
+		return metric;
+	}
+
+	/**
+	 * 정규화된 쿼리의 실행 지표 객체를 리턴한다. 없으면 생성한다.
+	 * 동적으로 만든 쿼리로 지표가 끝없이 늘어나지 않도록, 쿼리 지표 수가 최대값(1000)에 도달한 후의 새 쿼리는 OVERFLOW_SQL 지표에 함께 기록한다.
+	 * @param sql 정규화된 쿼리
+	 * @return 지표 객체
+	 */
+	public static SqlMetric getSqlMetric(String sql) {
+		SqlMetric metric = sqlMetrics.get(sql);
+		if (metric == null) {
+			if (sqlMetrics.size() >= MAX_SQL_METRICS) {
+				sql = OVERFLOW_SQL;
+				metric = sqlMetrics.get(sql);
+				if (metric != null) {
+					return metric;
+				}
+			}
+			metric = new SqlMetric(sql);
+			SqlMetric old = sqlMetrics.putIfAbsent(sql, metric);
+			if (old != null) {
+				metric = old;
+			}
+		}
+		return metric;
+	}
+
+	/**
+	 * 모든 지표를 Prometheus 텍스트 형식으로 출력한다.
+	 * <br>
+	 * ex) response로 지표를 출력하는 경우 : Metrics.renderPrometheus(response)
+	 * @param response 클라이언트로 응답할 Response 객체
+	 */
+	public static void renderPrometheus(HttpServletResponse response) {
+		response.setContentType("text/plain; version=0.0.4; charset=utf-8");
+		PrintWriter pw = getWriter(response);
+		pw.print(toPrometheus());
+		pw.flush();
+	}
+
+	/**
+	 * 모든 지표를 JSON 형식으로 출력한다.
+	 * <br>
+	 * ex) response로 지표를 출력하는 경우 : Metrics.renderJson(response)
+	 * @param response 클라이언트로 응답할 Response 객체
+	 */
+	public static void renderJson(HttpServletResponse response) {
+		response.setContentType("application/json; charset=utf-8");
+		PrintWriter pw = getWriter(response);
+		pw.print(toJson());
+		pw.flush();
+	}
+
+	/**
+	 * 모든 지표를 Prometheus 텍스트 형식으로 변환한다. 처리시간의 단위는 초이다.
+	 * @return Prometheus 텍스트 형식의 문자열
+	 */
+	public static String toPrometheus() {
+		Map<String, RequestMetric> metrics = getSortedMetrics();
+		StringBuilder buf = new StringBuilder();
+		buf.append("# HELP framework_request_duration_seconds 요청 처리시간\n");
+		buf.append("# TYPE framework_request_duration_seconds summary\n");
+		for (RequestMetric metric : metrics.values()) {
+			String labels = "type=\"" + metric.getType() + "\",name=\"" + escapeLabel(metric.getName()) + "\"";
+			Histogram.Snapshot snapshot = metric.getLatency();
+			for (double quantile : QUANTILES) {
+				buf.append("framework_request_duration_seconds{" + labels + ",quantile=\"" + quantile + "\"} " + toSeconds(snapshot.getPercentile(quantile)) + "\n");
+			}
+			buf.append("framework_request_duration_seconds_sum{" + labels + "} " + toSeconds(snapshot.getSum()) + "\n");
+			buf.append("framework_request_duration_seconds_count{" + labels + "} " + snapshot.getCount() + "\n");
+		}
+		buf.append("# HELP framework_requests_in_flight 처리중인 요청 수\n");
+		buf.append("# TYPE framework_requests_in_flight gauge\n");
+		for (RequestMetric metric : metrics.values()) {
+			buf.append("framework_requests_in_flight{type=\"" + metric.getType() + "\",name=\"" + escapeLabel(metric.getName()) + "\"} " + metric.getInFlight() + "\n");
+		}
+		buf.append("# HELP framework_request_errors_total 예외 종류별 오류 건수\n");
+		buf.append("# TYPE framework_request_errors_total counter\n");
+		for (RequestMetric metric : metrics.values()) {
+			for (Map.Entry<String, Long> entry : metric.getErrors().entrySet()) {
+				buf.append("framework_request_errors_total{type=\"" + metric.getType() + "\",name=\"" + escapeLabel(metric.getName()) + "\",exception=\"" + entry.getKey() + "\"} " + entry.getValue() + "\n");
+			}
+		}
+		appendLimiterPrometheus(buf);
+		appendPoolPrometheus(buf);
+		appendLoadPrometheus(buf);
+		appendQueryCachePrometheus(buf);
+		appendSqlPrometheus(buf);
+		return buf.toString();
+	}
+
+	/**
+	 * 모든 지표를 JSON 형식으로 변환한다. 처리시간의 단위는 밀리초이다.
+	 * @return JSON 형식의 문자열
+	 */
+	public static String toJson() {
+		StringBuilder buf = new StringBuilder();
+		buf.append("{\"routes\":");
+		appendJson(buf, routeMetrics);
+		buf.append(",\"actions\":");
+		appendJson(buf, actionMetrics);
+		buf.append(",\"limiters\":[");
+		int count = 0;
+		for (LimiterMetric limiter : new TreeMap<String, LimiterMetric>(limiterMetrics).values()) {
+			if (count++ > 0) {
+				buf.append(",");
+			}
+			buf.append("{\"name\":\"" + escapeJson(limiter.getName()) + "\"");
+			buf.append(",\"limit\":" + limiter.getLimit());
+			buf.append(",\"queueSize\":" + limiter.getQueueSize());
+			buf.append(",\"active\":" + limiter.getActive());
+			buf.append(",\"waiting\":" + limiter.getWaiting());
+			buf.append(",\"saturation\":" + limiter.getSaturation());
+			buf.append(",\"rejectedQueueFull\":" + limiter.getQueueFull());
+			buf.append(",\"rejectedTimeout\":" + limiter.getTimeout() + "}");
+		}
+		buf.append("],\"pools\":[");
+		count = 0;
+		for (PoolMetric pool : new TreeMap<String, PoolMetric>(poolMetrics).values()) {
+			if (count++ > 0) {
+				buf.append(",");
+			}
+			Histogram.Snapshot snapshot = pool.getWaitTime();
+			buf.append("{\"name\":\"" + escapeJson(pool.getName()) + "\"");
+			buf.append(",\"active\":" + pool.getActive());
+			buf.append(",\"idle\":" + pool.getIdle());
+			buf.append(",\"maxActive\":" + pool.getMaxActive());
+			buf.append(",\"waitCount\":" + snapshot.getCount());
+			buf.append(",\"waitP50\":" + toMillis(snapshot.getPercentile(0.5)));
+			buf.append(",\"waitP99\":" + toMillis(snapshot.getPercentile(0.99)));
+			buf.append(",\"waitMax\":" + toMillis(snapshot.getMax()));
+			buf.append(",\"timeouts\":" + pool.getTimeout());
+			buf.append(",\"leaks\":" + pool.getLeak() + "}");
+		}
+		buf.append("],\"loads\":[");
+		count = 0;
+		for (LoadMetric load : new TreeMap<String, LoadMetric>(loadMetrics).values()) {
+			if (count++ > 0) {
+				buf.append(",");
+			}
+			buf.append("{\"name\":\"" + escapeJson(load.getName()) + "\"");
+			buf.append(",\"read\":" + load.getRead());
+			buf.append(",\"transformed\":" + load.getTransformed());
+			buf.append(",\"written\":" + load.getWritten());
+			buf.append(",\"quarantined\":" + load.getQuarantined());
+			buf.append(",\"readRate\":" + load.getRate(load.getRead()));
+			buf.append(",\"transformRate\":" + load.getRate(load.getTransformed()));
+			buf.append(",\"writeRate\":" + load.getRate(load.getWritten()));
+			buf.append(",\"readQueue\":" + load.getReadQueueSize());
+			buf.append(",\"writeQueue\":" + load.getWriteQueueSize());
+			buf.append(",\"elapsed\":" + toMillis(load.getElapsed()) + "}");
+		}
+		buf.append("],\"queryCaches\":[");
+		count = 0;
+		for (QueryCacheMetric queryCache : new TreeMap<String, QueryCacheMetric>(queryCacheMetrics).values()) {
+			if (count++ > 0) {
+				buf.append(",");
+			}
+			buf.append("{\"sql\":\"" + escapeJson(queryCache.getSql()) + "\"");
+			buf.append(",\"hits\":" + queryCache.getHits());
+			buf.append(",\"misses\":" + queryCache.getMisses());
+			buf.append(",\"hitRatio\":" + queryCache.getHitRatio() + "}");
+		}
+		buf.append("],\"sqls\":[");
+		count = 0;
+		for (SqlMetric sql : new TreeMap<String, SqlMetric>(sqlMetrics).values()) {
+			if (count++ > 0) {
+				buf.append(",");
+			}
+			Histogram.Snapshot snapshot = sql.getLatency();
+			buf.append("{\"sql\":\"" + escapeJson(sql.getSql()) + "\"");
+			buf.append(",\"count\":" + snapshot.getCount());
+			buf.append(",\"sum\":" + toMillis(snapshot.getSum()));
+			buf.append(",\"max\":" + toMillis(snapshot.getMax()));
+			buf.append(",\"p50\":" + toMillis(snapshot.getPercentile(0.5)));
+			buf.append(",\"p99\":" + toMillis(snapshot.getPercentile(0.99)));
+			buf.append(",\"rowsFetched\":" + sql.getRowsFetched());
+			buf.append(",\"rowsUpdated\":" + sql.getRowsUpdated());
+			buf.append(",\"errors\":" + sql.getErrors());
+			buf.append(",\"slow\":" + sql.getSlow());
+			buf.append(",\"callers\":{");
+			int callerCount = 0;
+			for (Map.Entry<String, Long> entry : sql.getCallers().entrySet()) {
+				if (callerCount++ > 0) {
+					buf.append(",");
+				}
+				buf.append("\"" + escapeJson(entry.getKey()) + "\":" + entry.getValue());
+			}
+			buf.append("}}");
+		}
+		buf.append("]}");
+		return buf.toString();
+	}
+
+	//////////////////////////////////////////////////////////////////////////////////////////Private 메소드
+
+	private static RequestMetric getMetric(ConcurrentMap<String, RequestMetric> metrics, String type, String name) {
+		RequestMetric metric = metrics.get(name);
+		if (metric == null) {
+			metric = new RequestMetric(type, name);
+			RequestMetric old = metrics.putIfAbsent(name, metric);
+			if (old != null) {
+				metric = old;
+			}
+		}
+		return metric;
+	}
+
+	/*
+	 * 라우트, 액션 순서로 이름순 정렬된 지표
+	 */
+	private static Map<String, RequestMetric> getSortedMetrics() {
+		Map<String, RequestMetric> map = new TreeMap<String, RequestMetric>();
+		for (RequestMetric metric : routeMetrics.values()) {
+			map.put("1" + metric.getName(), metric);
+		}
+		for (RequestMetric metric : actionMetrics.values()) {
+			map.put("2" + metric.getName(), metric);
+		}
+		return map;
+	}
+
+	private static void appendLimiterPrometheus(StringBuilder buf) {
+		Map<String, LimiterMetric> limiters = new TreeMap<String, LimiterMetric>(limiterMetrics);
+		if (limiters.isEmpty()) {
+			return;
+		}
+		buf.append("# HELP framework_limiter_limit 최대 동시실행 수\n");
+		buf.append("# TYPE framework_limiter_limit gauge\n");
+		for (LimiterMetric limiter : limiters.values()) {
+			buf.append("framework_limiter_limit{name=\"" + escapeLabel(limiter.getName()) + "\"} " + limiter.getLimit() + "\n");
+		}
+		buf.append("# HELP framework_limiter_active 실행중인 요청 수\n");
+		buf.append("# TYPE framework_limiter_active gauge\n");
+		for (LimiterMetric limiter : limiters.values()) {
+			buf.append("framework_limiter_active{name=\"" + escapeLabel(limiter.getName()) + "\"} " + limiter.getActive() + "\n");
+		}
+		buf.append("# HELP framework_limiter_waiting 대기중인 요청 수\n");
+		buf.append("# TYPE framework_limiter_waiting gauge\n");
+		for (LimiterMetric limiter : limiters.values()) {
+			buf.append("framework_limiter_waiting{name=\"" + escapeLabel(limiter.getName()) + "\"} " + limiter.getWaiting() + "\n");
+		}
+		buf.append("# HELP framework_limiter_rejected_total 거부 건수\n");
+		buf.append("# TYPE framework_limiter_rejected_total counter\n");
+		for (LimiterMetric limiter : limiters.values()) {
+			buf.append("framework_limiter_rejected_total{name=\"" + escapeLabel(limiter.getName()) + "\",reason=\"queue_full\"} " + limiter.getQueueFull() + "\n");
+			buf.append("framework_limiter_rejected_total{name=\"" + escapeLabel(limiter.getName()) + "\",reason=\"timeout\"} " + limiter.getTimeout() + "\n");
+		}
+	}
+
+	private static void appendPoolPrometheus(StringBuilder buf) {
+		Map<String, PoolMetric> pools = new TreeMap<String, PoolMetric>(poolMetrics);
+		if (pools.isEmpty()) {
+			return;
+		}
+		buf.append("# HELP framework_pool_connections 상태별 커넥션 수\n");
+		buf.append("# TYPE framework_pool_connections gauge\n");
+		for (PoolMetric pool : pools.values()) {
+			buf.append("framework_pool_connections{name=\"" + escapeLabel(pool.getName()) + "\",state=\"active\"} " + pool.getActive() + "\n");
+			buf.append("framework_pool_connections{name=\"" + escapeLabel(pool.getName()) + "\",state=\"idle\"} " + pool.getIdle() + "\n");
+			buf.append("framework_pool_connections{name=\"" + escapeLabel(pool.getName()) + "\",state=\"max\"} " + pool.getMaxActive() + "\n");
+		}
+		buf.append("# HELP framework_pool_wait_seconds 커넥션 대기시간\n");
+		buf.append("# TYPE framework_pool_wait_seconds summary\n");
+		for (PoolMetric pool : pools.values()) {
+			String labels = "name=\"" + escapeLabel(pool.getName()) + "\"";
+			Histogram.Snapshot snapshot = pool.getWaitTime();
+			for (double quantile : QUANTILES) {
+				buf.append("framework_pool_wait_seconds{" + labels + ",quantile=\"" + quantile + "\"} " + toSeconds(snapshot.getPercentile(quantile)) + "\n");
+			}
+			buf.append("framework_pool_wait_seconds_sum{" + labels + "} " + toSeconds(snapshot.getSum()) + "\n");
+			buf.append("framework_pool_wait_seconds_count{" + labels + "} " + snapshot.getCount() + "\n");
+		}
+		buf.append("# HELP framework_pool_timeouts_total 커넥션 대기시간 초과 건수\n");
+		buf.append("# TYPE framework_pool_timeouts_total counter\n");
+		for (PoolMetric pool : pools.values()) {
+			buf.append("framework_pool_timeouts_total{name=\"" + escapeLabel(pool.getName()) + "\"} " + pool.getTimeout() + "\n");
+		}
+		buf.append("# HELP framework_pool_leaks_total 누수 의심 커넥션 건수\n");
+		buf.append("# TYPE framework_pool_leaks_total counter\n");
+		for (PoolMetric pool : pools.values()) {
+			buf.append("framework_pool_leaks_total{name=\"" + escapeLabel(pool.getName()) + "\"} " + pool.getLeak() + "\n");
+		}
+	}
+
+	private static void appendLoadPrometheus(StringBuilder buf) {
+		Map<String, LoadMetric> loads = new TreeMap<String, LoadMetric>(loadMetrics);
+		if (loads.isEmpty()) {
+			return;
+		}
+		buf.append("# HELP framework_load_rows_total 대량적재 단계별 처리 건수\n");
+		buf.append("# TYPE framework_load_rows_total counter\n");
+		for (LoadMetric load : loads.values()) {
+			String name = escapeLabel(load.getName());
+			buf.append("framework_load_rows_total{name=\"" + name + "\",stage=\"read\"} " + load.getRead() + "\n");
+			buf.append("framework_load_rows_total{name=\"" + name + "\",stage=\"transform\"} " + load.getTransformed() + "\n");
+			buf.append("framework_load_rows_total{name=\"" + name + "\",stage=\"write\"} " + load.getWritten() + "\n");
+			buf.append("framework_load_rows_total{name=\"" + name + "\",stage=\"quarantine\"} " + load.getQuarantined() + "\n");
+		}
+		buf.append("# HELP framework_load_queue_rows 대량적재 단계 사이 대기열의 행 수\n");
+		buf.append("# TYPE framework_load_queue_rows gauge\n");
+		for (LoadMetric load : loads.values()) {
+			String name = escapeLabel(load.getName());
+			buf.append("framework_load_queue_rows{name=\"" + name + "\",queue=\"read\"} " + load.getReadQueueSize() + "\n");
+			buf.append("framework_load_queue_rows{name=\"" + name + "\",queue=\"write\"} " + load.getWriteQueueSize() + "\n");
+		}
+	}
+
+	private static void appendQueryCachePrometheus(StringBuilder buf) {
+		Map<String, QueryCacheMetric> queryCaches = new TreeMap<String, QueryCacheMetric>(queryCacheMetrics);
+		if (queryCaches.isEmpty()) {
+			return;
+		}
+		buf.append("# HELP framework_query_cache_total 쿼리 결과 캐시의 적중, 실패 건수\n");
+		buf.append("# TYPE framework_query_cache_total counter\n");
+		for (QueryCacheMetric queryCache : queryCaches.values()) {
+			String sql = escapeLabel(queryCache.getSql());
+			buf.append("framework_query_cache_total{sql=\"" + sql + "\",result=\"hit\"} " + queryCache.getHits() + "\n");
+			buf.append("framework_query_cache_total{sql=\"" + sql + "\",result=\"miss\"} " + queryCache.getMisses() + "\n");
+		}
+	}
+
+	private static void appendSqlPrometheus(StringBuilder buf) {
+		Map<String, SqlMetric> sqls = new TreeMap<String, SqlMetric>(sqlMetrics);
+		if (sqls.isEmpty()) {
+			return;
+		}
+		buf.append("# HELP framework_sql_duration_seconds 쿼리 실행시간\n");
+		buf.append("# TYPE framework_sql_duration_seconds summary\n");
+		for (SqlMetric sql : sqls.values()) {
+			String labels = "sql=\"" + escapeLabel(sql.getSql()) + "\"";
+			Histogram.Snapshot snapshot = sql.getLatency();
+			for (double quantile : QUANTILES) {
+				buf.append("framework_sql_duration_seconds{" + labels + ",quantile=\"" + quantile + "\"} " + toSeconds(snapshot.getPercentile(quantile)) + "\n");
+			}
+			buf.append("framework_sql_duration_seconds_sum{" + labels + "} " + toSeconds(snapshot.getSum()) + "\n");
+			buf.append("framework_sql_duration_seconds_count{" + labels + "} " + snapshot.getCount() + "\n");
+		}
+		buf.append("# HELP framework_sql_duration_seconds_max 쿼리 최대 실행시간\n");
+		buf.append("# TYPE framework_sql_duration_seconds_max gauge\n");
+		for (SqlMetric sql : sqls.values()) {
+			buf.append("framework_sql_duration_seconds_max{sql=\"" + escapeLabel(sql.getSql()) + "\"} " + toSeconds(sql.getLatency().getMax()) + "\n");
+		}
+		buf.append("# HELP framework_sql_rows_total 조회, 변경한 행 수\n");
+		buf.append("# TYPE framework_sql_rows_total counter\n");
+		for (SqlMetric sql : sqls.values()) {
+			String label = escapeLabel(sql.getSql());
+			buf.append("framework_sql_rows_total{sql=\"" + label + "\",type=\"fetched\"} " + sql.getRowsFetched() + "\n");
+			buf.append("framework_sql_rows_total{sql=\"" + label + "\",type=\"updated\"} " + sql.getRowsUpdated() + "\n");
+		}
+		buf.append("# HELP framework_sql_errors_total 쿼리 오류 건수\n");
+		buf.append("# TYPE framework_sql_errors_total counter\n");
+		for (SqlMetric sql : sqls.values()) {
+			buf.append("framework_sql_errors_total{sql=\"" + escapeLabel(sql.getSql()) + "\"} " + sql.getErrors() + "\n");
+		}
+		buf.append("# HELP framework_sql_slow_total 느린 쿼리 건수\n");
+		buf.append("# TYPE framework_sql_slow_total counter\n");
+		for (SqlMetric sql : sqls.values()) {
+			buf.append("framework_sql_slow_total{sql=\"" + escapeLabel(sql.getSql()) + "\"} " + sql.getSlow() + "\n");
+		}
+	}
+
+	private static void appendJson(StringBuilder buf, Map<String, RequestMetric> metrics) {
+		buf.append("[");
+		int count = 0;
+		for (RequestMetric metric : new TreeMap<String, RequestMetric>(metrics).values()) {
+			if (count++ > 0) {
+				buf.append(",");
+			}
+			Histogram.Snapshot snapshot = metric.getLatency();
+			buf.append("{\"name\":\"" + escapeJson(metric.getName()) + "\"");
+			buf.append(",\"count\":" + snapshot.getCount());
+			buf.append(",\"inFlight\":" + metric.getInFlight());
+			buf.append(",\"p50\":" + toMillis(snapshot.getPercentile(0.5)));
+			buf.append(",\"p99\":" + toMillis(snapshot.getPercentile(0.99)));
+			buf.append(",\"p999\":" + toMillis(snapshot.getPercentile(0.999)));
+			buf.append(",\"max\":" + toMillis(snapshot.getMax()));
+			buf.append(",\"sum\":" + toMillis(snapshot.getSum()));
+			buf.append(",\"errors\":{");
+			int errorCount = 0;
+			for (Map.Entry<String, Long> entry : metric.getErrors().entrySet()) {
+				if (errorCount++ > 0) {
+					buf.append(",");
+				}
+				buf.append("\"" + escapeJson(entry.getKey()) + "\":" + entry.getValue());
+			}
+			buf.append("}}");
+		}
+		buf.append("]");
+	}
+
+	private static double toSeconds(long nanos) {
+		return nanos / 1000000000.0;
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / 1000000.0;
+	}
+
+	private static String escapeLabel(String str) {
+		return str.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private static String escapeJson(String str) {
+		return str.replace("\\", "\\\\").replace("\"", "\\\"").replace("\r", "\\r").replace("\n", "\\n").replace("\t", "\\t");
+	}
+
+	private static PrintWriter getWriter(HttpServletResponse response) {
+		try {
+			return response.getWriter();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
\ No newline at end of file
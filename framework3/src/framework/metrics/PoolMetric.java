@@ -0,0 +1,120 @@
+package framework.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 커넥션풀의 사용중/유휴 커넥션 수, 커넥션을 얻기까지 기다린 시간, 대기시간 초과 및 누수 의심 건수를 기록하는 클래스
+ */
+public final class PoolMetric {
+	private final String name;
+	private final Status status;
+	private final Histogram waitTime = new Histogram();
+	private final AtomicLong timeout = new AtomicLong();
+	private final AtomicLong leak = new AtomicLong();
+
+	/**
+	 * 커넥션풀의 현재 상태를 제공하는 인터페이스
+	 */
+	public interface Status {
+		/**
+		 * 사용중인 커넥션 수를 리턴한다.
+		 * @return 사용중인 커넥션 수
+		 */
+		int getNumActive();
+
+		/**
+		 * 유휴 커넥션 수를 리턴한다.
+		 * @return 유휴 커넥션 수
+		 */
+		int getNumIdle();
+
+		/**
+		 * 최대 커넥션 수를 리턴한다.
+		 * @return 최대 커넥션 수
+		 */
+		int getMaxActive();
+	}
+
+	PoolMetric(String name, Status status) {
+		this.name = name;
+		this.status = status;
+	}
+
+	/**
+	 * 커넥션을 얻기까지 기다린 시간을 기록한다.
+	 * @param nanos 대기시간(나노초)
+	 */
+	public void recordWaitTime(long nanos) {
+		waitTime.record(nanos);
+	}
+
+	/**
+	 * 대기시간 초과로 커넥션을 얻지 못했음을 기록한다.
+	 */
+	public void timedOut() {
+		timeout.incrementAndGet();
+	}
+
+	/**
+	 * 누수가 의심되는 커넥션을 발견했음을 기록한다.
+	 */
+	public void leakDetected() {
+		leak.incrementAndGet();
+	}
+
+	/**
+	 * 이름을 리턴한다.
+	 * @return 이름
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 사용중인 커넥션 수를 리턴한다.
+	 * @return 사용중인 커넥션 수
+	 */
+	public int getActive() {
+		return status.getNumActive();
+	}
+
+	/**
+	 * 유휴 커넥션 수를 리턴한다.
+	 * @return 유휴 커넥션 수
+	 */
+	public int getIdle() {
+		return status.getNumIdle();
+	}
+
+	/**
+	 * 최대 커넥션 수를 리턴한다.
+	 * @return 최대 커넥션 수
+	 */
+	public int getMaxActive() {
+		return status.getMaxActive();
+	}
+
+	/**
+	 * 커넥션 대기시간(나노초) 히스토그램의 스냅샷을 리턴한다.
+	 * @return 스냅샷
+	 */
+	public Histogram.Snapshot getWaitTime() {
+		return waitTime.getSnapshot();
+	}
+
+	/**
+	 * 대기시간 초과 건수를 리턴한다.
+	 * @return 대기시간 초과 건수
+	 */
+	public long getTimeout() {
+		return timeout.get();
+	}
+
+	/**
+	 * 누수 의심 건수를 리턴한다.
+	 * @return 누수 의심 건수
+	 */
+	public long getLeak() {
+		return leak.get();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+package framework.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 쿼리 결과 캐시의 쿼리별 적중(hit), 실패(miss) 건수를 기록하는 클래스
+ */
+public final class QueryCacheMetric {
+	private final String sql;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	QueryCacheMetric(String sql) {
+		this.sql = sql;
+	}
+
+	/**
+	 * 캐시에서 결과를 찾았음을 기록한다.
+	 */
+	public void hit() {
+		hits.incrementAndGet();
+	}
+
+	/**
+	 * 캐시에 결과가 없거나 무효화되어 데이터베이스에서 조회했음을 기록한다.
+	 */
+	public void miss() {
+		misses.incrementAndGet();
+	}
+
+	/**
+	 * 쿼리를 리턴한다.
+	 * @return 쿼리
+	 */
+	public String getSql() {
+		return sql;
+	}
+
+	/**
+	 * 적중 건수를 리턴한다.
+	 * @return 적중 건수
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * 실패 건수를 리턴한다.
+	 * @return 실패 건수
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * 적중률을 리턴한다.
+	 * @return 0 ~ 1 사이의 적중률, 조회가 없었으면 0
+	 */
+	public double getHitRatio() {
+		long hit = hits.get();
+		long total = hit + misses.get();
+		return (total == 0) ? 0 : (double) hit / total;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,104 @@
+package framework.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 라우트 또는 액션 하나의 처리시간 히스토그램, 처리중인 요청 수, 예외 종류별 오류 건수를 기록하는 클래스
+ * <br>
+ * ex) 처리시간 기록 : long startTime = metric.start(); try { ... } catch (Throwable e) { metric.error(e); throw e; } finally { metric.stop(startTime); }
+ */
+public final class RequestMetric {
+	private final String type;
+	private final String name;
+	private final Histogram latency = new Histogram();
+	private final AtomicLong inFlight = new AtomicLong();
+	private final ConcurrentMap<Class<?>, AtomicLong> errors = new ConcurrentHashMap<Class<?>, AtomicLong>();
+
+	RequestMetric(String type, String name) {
+		this.type = type;
+		this.name = name;
+	}
+
+	/**
+	 * 요청 처리의 시작을 기록한다.
+	 * @return 시작시간(나노초), stop 메소드에 전달한다.
+	 */
+	public long start() {
+		inFlight.incrementAndGet();
+		return System.nanoTime();
+	}
+
+	/**
+	 * 요청 처리의 종료를 기록한다.
+	 * @param startTime start 메소드가 리턴한 시작시간(나노초)
+	 */
+	public void stop(long startTime) {
+		latency.record(System.nanoTime() - startTime);
+		inFlight.decrementAndGet();
+	}
+
+	/**
+	 * 오류 건수를 예외 클래스별로 기록한다.
+	 * @param e 발생한 예외
+	 */
+	public void error(Throwable e) {
+		Class<?> exceptionClass = (e == null) ? Throwable.class : e.getClass();
+		AtomicLong counter = errors.get(exceptionClass);
+		if (counter == null) {
+			counter = new AtomicLong();
+			AtomicLong old = errors.putIfAbsent(exceptionClass, counter);
+			if (old != null) {
+				counter = old;
+			}
+		}
+		counter.incrementAndGet();
+	}
+
+	/**
+	 * 종류(route, action)를 리턴한다.
+	 * @return 종류
+	 */
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * 이름(요청 경로 또는 액션 이름)을 리턴한다.
+	 * @return 이름
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 처리시간(나노초) 히스토그램의 스냅샷을 리턴한다.
+	 * @return 스냅샷
+	 */
+	public Histogram.Snapshot getLatency() {
+		return latency.getSnapshot();
+	}
+
+	/**
+	 * 처리중인 요청 수를 리턴한다.
+	 * @return 처리중인 요청 수
+	 */
+	public long getInFlight() {
+		return inFlight.get();
+	}
+
+	/**
+	 * 예외 클래스 이름별 오류 건수를 리턴한다.
+	 * @return 예외 클래스 이름별 오류 건수
+	 */
+	public Map<String, Long> getErrors() {
+		Map<String, Long> map = new TreeMap<String, Long>();
+		for (Map.Entry<Class<?>, AtomicLong> entry : errors.entrySet()) {
+			map.put(entry.getKey().getName(), Long.valueOf(entry.getValue().get()));
+		}
+		return map;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,124 @@
+package framework.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 정규화된 쿼리별 실행 건수, 실행시간 히스토그램, 조회/변경 행 수, 오류 건수, 느린 쿼리 건수, 호출한 클래스별 실행 건수를 기록하는 클래스
+ */
+public final class SqlMetric {
+	private final String sql;
+	private final Histogram latency = new Histogram();
+	private final AtomicLong rowsFetched = new AtomicLong();
+	private final AtomicLong rowsUpdated = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicLong slow = new AtomicLong();
+	private final ConcurrentMap<String, AtomicLong> callers = new ConcurrentHashMap<String, AtomicLong>();
+
+	SqlMetric(String sql) {
+		this.sql = sql;
+	}
+
+	/**
+	 * 실행을 기록한다.
+	 * @param elapsed 실행시간(나노초)
+	 * @param fetched 조회한 행 수
+	 * @param updated 변경한 행 수
+	 * @param caller 호출한 클래스 이름
+	 */
+	public void record(long elapsed, long fetched, long updated, String caller) {
+		latency.record(elapsed);
+		if (fetched > 0) {
+			rowsFetched.addAndGet(fetched);
+		}
+		if (updated > 0) {
+			rowsUpdated.addAndGet(updated);
+		}
+		AtomicLong counter = callers.get(caller);
+		if (counter == null) {
+			counter = new AtomicLong();
+			AtomicLong old = callers.putIfAbsent(caller, counter);
+			if (old != null) {
+				counter = old;
+			}
+		}
+		counter.incrementAndGet();
+	}
+
+	/**
+	 * 실행 중 오류가 발생했음을 기록한다.
+	 */
+	public void error() {
+		errors.incrementAndGet();
+	}
+
+	/**
+	 * 느린 쿼리로 기록되었음을 기록한다.
+	 */
+	public void slow() {
+		slow.incrementAndGet();
+	}
+
+	/**
+	 * 정규화된 쿼리를 리턴한다.
+	 * @return 쿼리
+	 */
+	public String getSql() {
+		return sql;
+	}
+
+	/**
+	 * 실행시간(나노초) 히스토그램의 스냅샷을 리턴한다. 실행 건수, 합계, 최대값을 포함한다.
+	 * @return 스냅샷
+	 */
+	public Histogram.Snapshot getLatency() {
+		return latency.getSnapshot();
+	}
+
+	/**
+	 * 조회한 행 수를 리턴한다.
+	 * @return 행 수
+	 */
+	public long getRowsFetched() {
+		return rowsFetched.get();
+	}
+
+	/**
+	 * 변경한 행 수를 리턴한다.
+	 * @return 행 수
+	 */
+	public long getRowsUpdated() {
+		return rowsUpdated.get();
+	}
+
+	/**
+	 * 오류 건수를 리턴한다.
+	 * @return 오류 건수
+	 */
+	public long getErrors() {
+		return errors.get();
+	}
+
+	/**
+	 * 느린 쿼리 건수를 리턴한다.
+	 * @return 느린 쿼리 건수
+	 */
+	public long getSlow() {
+		return slow.get();
+	}
+
+	/**
+	 * 호출한 클래스 이름별 실행 건수를 리턴한다.
+	 * @return 클래스 이름별 실행 건수
+	 */
+	public Map<String, Long> getCallers() {
+		Map<String, Long> map = new TreeMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> entry : callers.entrySet()) {
+			map.put(entry.getKey(), Long.valueOf(entry.getValue().get()));
+		}
+		return map;
+	}
+}
\ No newline at end of file
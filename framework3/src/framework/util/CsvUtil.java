@@ -13,7 +13,9 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import javax.servlet.http.HttpServletResponse;
@@ -99,12 +101,7 @@ public final class CsvUtil {
 			br = new BufferedReader(new InputStreamReader(is));
 			String line = null;
 			while ((line = br.readLine()) != null) {
-				String[] items = line.split(sep);
-				RecordMap map = new RecordMap();
-				for (int i = 0; i < items.length; i++) {
-					map.put(String.valueOf(i), items[i]);
-				}
-				mapList.add(map);
+				mapList.add(parseLine(line, sep));
 			}
 		} catch (IOException e) {
 			logger.error("", e);
@@ -120,6 +117,58 @@ public final class CsvUtil {
 		return mapList;
 	}
 
+	/**
+	 * 구분자에 의해서 파일을 한 행씩 파싱하는 이터레이터를 리턴한다. 파일 전체를 메모리에 담지 않으므로 대용량 파일에 사용한다.
+	 * 마지막 행을 읽으면 입력스트림을 닫으며, 중간에 멈추는 경우에는 호출한 쪽에서 입력스트림을 닫아야 한다.
+	 * <br>
+	 * ex) 파일을 한 행씩 읽는 경우 : Iterator&lt;RecordMap&gt; it = CsvUtil.iterate(is, ",")
+	 * @param is 입력스트림
+	 * @param sep 열 구분자로 쓰일 문자열
+	 * @return 데이터의 이터레이터, 각 행의 키는 열 번호("0", "1", ...)
+	 */
+	public static Iterator<RecordMap> iterate(InputStream is, final String sep) {
+		final BufferedReader br = new BufferedReader(new InputStreamReader(is));
+		return new Iterator<RecordMap>() {
+			private String line = null;
+			private boolean eof = false;
+
+			@Override
+			public boolean hasNext() {
+				if (line == null && !eof) {
+					try {
+						line = br.readLine();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+					if (line == null) {
+						eof = true;
+						try {
+							br.close();
+						} catch (IOException e) {
+							logger.error("", e);
+						}
+					}
+				}
+				return line != null;
+			}
+
+			@Override
+			public RecordMap next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				String current = line;
+				line = null;
+				return parseLine(current, sep);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
 	/**
 	 * RecordSet을 구분자(CSV, TSV 등)파일 형식으로 출력한다.
 	 * <br>
@@ -380,6 +429,20 @@ public final class CsvUtil {
 
 	////////////////////////////////////////////////////////////////////////////////////////// Private 메소드
 
+	/**
+	 * 한 행을 구분자로 나누어 열 번호를 키로 하는 RecordMap 으로 변환한다.
+	 * @param line 행
+	 * @param sep 열 구분자로 쓰일 문자열
+	 */
+	private static RecordMap parseLine(String line, String sep) {
+		String[] items = line.split(sep);
+		RecordMap map = new RecordMap();
+		for (int i = 0; i < items.length; i++) {
+			map.put(String.valueOf(i), items[i]);
+		}
+		return map;
+	}
+
 	/**
 	 * 구분자로 쓰이는 문자열 또는 개행문자가 값에 포함되어 있을 경우 값을 쌍따옴표로 둘러싸도록 변환한다.
 	 * @param str 변환할 문자열
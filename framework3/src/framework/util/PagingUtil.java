@@ -3,6 +3,8 @@ package framework.util;
 import java.util.HashMap;
 import java.util.Map;
 
+import framework.db.RecordSet;
+
 /**
  * 네비게이션 관련 페이징 정보 추출 유틸리티 클래스
  */
@@ -14,6 +16,20 @@ public final class PagingUtil {
 	private PagingUtil() {
 	}
 
+	/**
+	 * 전체 건수를 함께 조회한 RecordSet 으로 페이징을 위해 필요한 정보를 리턴한다.
+	 * <br>
+	 * ex) RecordSet rs = pstmt.executeQueryWithCount(pagenum, 10); Map paging = PagingUtil.getPagingMap(rs, pagenum, 10, 10)
+	 * @param rs executeQueryWithCount 로 조회한 RecordSet 객체
+	 * @param pagenum 현재 페이지 번호
+	 * @param pagesize 한페이지에 보여질 사이즈
+	 * @param displaysize 네비게이션 페이징 사이즈
+	 * @return 페이징 정보를 담고 있는 맵 객체
+	 */
+	public static Map<String, Integer> getPagingMap(RecordSet rs, int pagenum, int pagesize, int displaysize) {
+		return getPagingMap(Math.max(0, rs.getTotalCount()), pagenum, pagesize, displaysize);
+	}
+
 	/**
 	 * 페이징을 위해 필요한 정보를 리턴한다.
 	 * @param totcnt 전체 레코드 건수